@@ -3,23 +3,35 @@ package com.fern.lang;
 import static com.fern.util.Util.str;
 
 import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 
 class AFn<RT> implements IFn<RT> {
     private static final Object[] EMPTY_ARGS = new Object[]{ /* empty */};
     private static final int MAX_ARGS = 254; // number of 4 byte references minus 'this'
     private static final String UNDOCUMENTED = "No documentation available";
-    private static final String ANONYMOUS_FN_NAME = "ANONYMOUS";
+    static final String ANONYMOUS_FN_NAME = "ANONYMOUS";
     private static final AtomicInteger UNIQUE_FN_ID = new AtomicInteger(0);
 
-    private final String uniqueId;
+    /**
+     * Return type of the fns of a FnBody class, as resolving it is reflective.
+     */
+    private static final ClassValue<Type> RETURN_TYPES = new ClassValue<>() {
+        @Override
+        protected Type computeValue(Class<?> fnBodyClass) {
+            return ((ParameterizedType) fnBodyClass.getGenericSuperclass()).getActualTypeArguments()[0];
+        }
+    };
+
+    private final int id;
     private final String name;
     private final String doc;
     private final Args defs;
-    private Class<RT> retType;
-    private final AtomicReference<FnBody<RT>> body;
-    private final AtomicReference<String> quickStr;
+    private final Class<RT> retType;
+    private final FnBody<RT> body;
+    private volatile String uniqueId; // lazy, as is quickStr
+    private volatile String quickStr;
+    private volatile FnMetrics metrics;
 
     AFn(String name, String doc, Args defs, FnBody<RT> fnBody) {
         this(name, doc, defs, null, fnBody);
@@ -36,21 +48,20 @@ class AFn<RT> implements IFn<RT> {
         if (body == null) {
             throw new NullPointerException("fnBody");
         }
+        this.id = UNIQUE_FN_ID.getAndIncrement();
         this.name = (name != null) ? name : ANONYMOUS_FN_NAME;
         this.doc = (doc != null) ? doc : UNDOCUMENTED;
         this.defs = defs;
-        this.body = new AtomicReference<>(body.setFn(this, defs.size(), defs.isLastArgVararg()));
-        this.retType = (retType != null) ? retType : (Class<RT>) ((ParameterizedType) this.body.get().getClass().getGenericSuperclass()).getActualTypeArguments()[0];
-        this.uniqueId = String.format("fn-%d %s [%s] => %s",
-                UNIQUE_FN_ID.getAndIncrement(),
-                this.name,
-                this.defs.moniker(),
-                this.retType.getSimpleName());
-        this.quickStr = new AtomicReference<>(null);
+        this.body = body.setFn(this, defs.size(), defs.isLastArgVararg());
+        this.retType = (retType != null) ? retType : (Class<RT>) RETURN_TYPES.get(body.getClass());
     }
 
     @Override
     public String uniqueId() {
+        String uniqueId = this.uniqueId;
+        if (uniqueId == null) {
+            this.uniqueId = uniqueId = "fn-" + id + " " + name + " [" + defs.moniker() + "] => " + retType.getSimpleName();
+        }
         return uniqueId;
     }
 
@@ -92,7 +103,47 @@ class AFn<RT> implements IFn<RT> {
 
     @Override
     public final RT invoke(Object... args) {
-        FnBody<RT> fnBody = body.get();
+        if (false == Instrumentation.isActive()) {
+            return invokeBody(args);
+        }
+        return invokeInstrumented(args);
+    }
+
+    private RT invokeInstrumented(Object... args) {
+        FnMetrics metrics = this.metrics;
+        boolean profiled = Profiler.push(this);
+        FnInvokeEvent event = FnInvokeEvent.enabled() ? new FnInvokeEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long start = metrics != null ? System.nanoTime() : 0L;
+        boolean failed = true;
+        try {
+            RT result = invokeBody(args);
+            failed = false;
+            return result;
+        } finally {
+            if (profiled) {
+                Profiler.pop();
+            }
+            if (metrics != null) {
+                metrics.record(System.nanoTime() - start, failed);
+            }
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.name = name;
+                    event.uniqueId = uniqueId();
+                    event.arity = args != null ? args.length : 0;
+                    event.failed = failed;
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    private RT invokeBody(Object... args) {
+        FnBody<RT> fnBody = body;
         checkArity(args);
         fnBody.pushArgs(args);
         try {
@@ -102,6 +153,25 @@ class AFn<RT> implements IFn<RT> {
         }
     }
 
+    synchronized FnMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new FnMetrics(uniqueId());
+            Instrumentation.metricsEnabled();
+        }
+        return metrics;
+    }
+
+    synchronized void disableMetrics() {
+        if (metrics != null) {
+            metrics = null;
+            Instrumentation.metricsDisabled();
+        }
+    }
+
+    FnMetrics metrics() {
+        return metrics;
+    }
+
     private final void checkArity(Object... args) {
         int arity = argDefs().size();
         if (args == null) {
@@ -123,23 +193,17 @@ class AFn<RT> implements IFn<RT> {
 
     @Override
     public final String toString() {
-        String str = quickStr.get();
+        String str = quickStr;
         if (str == null) {
-            synchronized (quickStr) {
-                str = quickStr.get();
-                if (str == null) {
-                    int arity = defs.size();
-                    StringBuilder sb = new StringBuilder();
-                    sb.append("fn/").append(arity);
-                    if (name != null) {
-                        sb.append(" ").append(name);
-                    }
-                    sb.append(" (").append(defs).append(") -> ").append(retType.getName());
-                    sb.append("\n").append(doc());
-                    quickStr.set(sb.toString());
-                }
+            StringBuilder sb = new StringBuilder();
+            sb.append("fn/").append(defs.size());
+            if (name != null) {
+                sb.append(" ").append(name);
             }
+            sb.append(" (").append(defs).append(") -> ").append(retType.getName());
+            sb.append("\n").append(doc());
+            quickStr = str = sb.toString();
         }
-        return quickStr.get();
+        return str;
     }
-}
\ No newline at end of file
+}
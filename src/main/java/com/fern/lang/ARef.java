@@ -0,0 +1,64 @@
+package com.fern.lang;
+
+import static com.fern.util.Util.str;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Base for managed references: holds the optional validator, which vetoes new
+ * values, and the watches, which are called after every change of value with
+ * (key, reference, oldVal, newVal).
+ */
+abstract class ARef<T> implements IDeref<T> {
+    private volatile IPredicate validator;
+    private final ConcurrentMap<Object, IFn<?>> watches;
+
+    ARef(IPredicate validator) {
+        this.validator = validator;
+        this.watches = new ConcurrentHashMap<>();
+    }
+
+    public IPredicate getValidator() {
+        return validator;
+    }
+
+    public void setValidator(IPredicate validator) {
+        if (validator != null) {
+            validate(validator, deref());
+        }
+        this.validator = validator;
+    }
+
+    public ARef<T> addWatch(Object key, IFn<?> watch) {
+        if (watch.argDefs().size() != 4) {
+            throw new IllegalArgumentException(str("expected fn/4 (key, ref, old, new), got: %s", watch));
+        }
+        watches.put(key, watch);
+        return this;
+    }
+
+    public ARef<T> removeWatch(Object key) {
+        watches.remove(key);
+        return this;
+    }
+
+    final void validate(T newVal) {
+        validate(validator, newVal);
+    }
+
+    private static void validate(IPredicate validator, Object newVal) {
+        if (validator != null && false == validator.isTrue(new Object[]{newVal})) {
+            throw new IllegalStateException(str("invalid reference state: %s", newVal));
+        }
+    }
+
+    final void notifyWatches(T oldVal, T newVal) {
+        if (false == watches.isEmpty()) {
+            for (Map.Entry<Object, IFn<?>> watch : watches.entrySet()) {
+                watch.getValue().invoke(watch.getKey(), this, oldVal, newVal);
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.fern.lang;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uncoordinated, asynchronous reference. The value changes through actions,
+ * fns sent to the agent which are applied to (current, args...), one at the
+ * time and in the order they were sent.
+ * <p>
+ * Agents do not own threads. All agents share a pool sized to the number of
+ * cores ({@linkplain #send(IFn, Object...)}), and a virtual thread executor for
+ * actions that may block ({@linkplain #sendOff(IFn, Object...)}). An agent with
+ * pending actions is scheduled once, and the scheduled task drains up to
+ * BATCH_SIZE actions before yielding the thread to other agents.
+ * <p>
+ * When an action fails (throws, or its result is vetoed by the validator), the
+ * agent keeps its value, stops processing actions, and rejects new ones until
+ * {@linkplain #restart(Object)} is called.
+ *
+ * @param <T> type of the value held
+ */
+public final class Agent<T> extends ARef<T> {
+    private static final int BATCH_SIZE = 64;
+    private static final AtomicInteger POOLED_THREAD_ID = new AtomicInteger();
+    private static final ExecutorService POOLED = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "fern-agent-" + POOLED_THREAD_ID.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+    private static final ExecutorService BLOCKING = Executors.newVirtualThreadPerTaskExecutor();
+
+    public static <T> Agent<T> neu(T initVal) {
+        return new Agent<>(initVal, null);
+    }
+
+    public static <T> Agent<T> neu(T initVal, IPredicate validator) {
+        return new Agent<>(initVal, validator);
+    }
+
+    /**
+     * A null fn marks an await request, args[0] being the latch to count down.
+     */
+    private record Action(IFn<?> fn, Object[] args, Executor executor) {
+    }
+
+    private final Queue<Action> actions;
+    private final AtomicBoolean isScheduled;
+    private volatile T state;
+    private volatile Exception error;
+
+    private Agent(T initVal, IPredicate validator) {
+        super(validator);
+        validate(initVal);
+        state = initVal;
+        actions = new ConcurrentLinkedQueue<>();
+        isScheduled = new AtomicBoolean();
+    }
+
+    @Override
+    public T deref() {
+        return state;
+    }
+
+    /**
+     * Queues fn to be applied to (current, args...) on the shared pool. The fn
+     * should not block, use sendOff for that.
+     *
+     * @return this agent
+     * @throws IllegalStateException when the agent has failed
+     */
+    public Agent<T> send(IFn<?> fn, Object... args) {
+        return dispatch(fn, args, POOLED);
+    }
+
+    /**
+     * Queues fn to be applied to (current, args...) on a virtual thread, where
+     * blocking (I/O, sleeping, waiting) is cheap.
+     *
+     * @return this agent
+     * @throws IllegalStateException when the agent has failed
+     */
+    public Agent<T> sendOff(IFn<?> fn, Object... args) {
+        return dispatch(fn, args, BLOCKING);
+    }
+
+    /**
+     * Blocks until all the actions sent so far by this thread have been applied.
+     *
+     * @return false if the timeout elapsed first
+     * @throws IllegalStateException when the agent has failed
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        dispatch(null, new Object[]{latch}, POOLED);
+        return latch.await(timeout, unit);
+    }
+
+    /**
+     * @return the exception of the failed action, or null when the agent is running
+     */
+    public Exception error() {
+        return error;
+    }
+
+    /**
+     * Clears the failure, sets the value to newVal and resumes processing the
+     * pending actions.
+     */
+    public Agent<T> restart(T newVal) {
+        if (error == null) {
+            throw new IllegalStateException("agent does not need restarting");
+        }
+        validate(newVal);
+        T oldVal = state;
+        state = newVal;
+        error = null;
+        notifyWatches(oldVal, newVal);
+        schedule();
+        return this;
+    }
+
+    private Agent<T> dispatch(IFn<?> fn, Object[] args, Executor executor) {
+        Exception failure = error;
+        if (failure != null) {
+            throw new IllegalStateException("agent has failed, it needs restarting", failure);
+        }
+        actions.offer(new Action(fn, args != null ? args : new Object[]{null}, executor));
+        schedule();
+        return this;
+    }
+
+    private void schedule() {
+        Action head = actions.peek();
+        if (head != null && error == null && isScheduled.compareAndSet(false, true)) {
+            Executor executor = head.executor();
+            executor.execute(() -> drain(executor));
+        }
+    }
+
+    private void drain(Executor executor) {
+        try {
+            for (int i = 0; i < BATCH_SIZE && error == null; i++) {
+                Action action = actions.peek();
+                if (action == null || action.executor() != executor) {
+                    break;
+                }
+                actions.poll();
+                apply(action);
+            }
+        } finally {
+            isScheduled.set(false);
+            schedule();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void apply(Action action) {
+        if (action.fn() == null) {
+            ((CountDownLatch) action.args()[0]).countDown();
+            return;
+        }
+        T oldVal = state;
+        Object[] fnArgs = new Object[1 + action.args().length];
+        fnArgs[0] = oldVal;
+        System.arraycopy(action.args(), 0, fnArgs, 1, action.args().length);
+        try {
+            T newVal = (T) action.fn().invoke(fnArgs);
+            validate(newVal);
+            state = newVal;
+            notifyWatches(oldVal, newVal);
+        } catch (Exception e) {
+            error = e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Agent: " + state;
+    }
+}
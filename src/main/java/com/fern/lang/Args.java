@@ -5,11 +5,11 @@ import com.fern.util.Util;
 import static com.fern.util.Util.noe;
 
 import java.util.Arrays;
-import java.util.stream.Collectors;
 
 final class Args {
     private final Class<?>[] defs;
     private final boolean lastArgIsVararg;
+    private volatile String moniker;
 
     Args(boolean lastArgIsVararg, Class<?>... defs) {
         for (int i = 0; i < defs.length; i++) {
@@ -22,15 +22,24 @@ final class Args {
     }
 
     String moniker() {
-        if (defs.length > 0) {
-            StringBuilder sb = Util.THR_SB.get();
-            sb.append(Arrays.stream(defs).map(Class::getSimpleName).collect(Collectors.joining(", ")));
+        if (defs.length == 0) {
+            return null;
+        }
+        String moniker = this.moniker;
+        if (moniker == null) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < defs.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(defs[i].getSimpleName());
+            }
             if (lastArgIsVararg) {
                 sb.append("*");
             }
-            return sb.toString();
+            this.moniker = moniker = sb.toString();
         }
-        return null;
+        return moniker;
     }
 
     boolean isLastArgVararg() {
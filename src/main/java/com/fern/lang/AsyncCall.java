@@ -0,0 +1,73 @@
+package com.fern.lang;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Future of the invocation of a fn on an executor. The fn is invoked on the
+ * executing thread, so its argument frames are pushed to, and popped from, that
+ * thread's call stack. The args are copied on creation.
+ * <p>
+ * When the future completes by any other means than the invocation returning
+ * (cancel, completeExceptionally, orTimeout), the executing thread is
+ * interrupted, and if the invocation had not started, it never does.
+ *
+ * @param <RT> return type of the fn
+ */
+final class AsyncCall<RT> extends CompletableFuture<RT> implements Runnable {
+    static final ExecutorService DEFAULT_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    static <RT> AsyncCall<RT> submit(Executor executor, IFn<RT> fn, Object... args) {
+        AsyncCall<RT> call = new AsyncCall<>(fn, args);
+        try {
+            executor.execute(call);
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+        }
+        return call;
+    }
+
+    private final IFn<RT> fn;
+    private final Object[] args;
+    private Thread runner;
+    private boolean interrupted;
+
+    private AsyncCall(IFn<RT> fn, Object[] args) {
+        this.fn = fn;
+        this.args = args != null ? args.clone() : null;
+        whenComplete((result, error) -> interruptRunner());
+    }
+
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (isDone()) {
+                return;
+            }
+            runner = Thread.currentThread();
+        }
+        try {
+            complete(fn.invoke(args));
+        } catch (Throwable t) {
+            completeExceptionally(t);
+        } finally {
+            boolean clearInterrupt;
+            synchronized (this) {
+                runner = null;
+                clearInterrupt = interrupted;
+            }
+            if (clearInterrupt) {
+                Thread.interrupted(); // do not leak it to the executor's next task
+            }
+        }
+    }
+
+    private synchronized void interruptRunner() {
+        if (runner != null && runner != Thread.currentThread()) {
+            interrupted = true;
+            runner.interrupt();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.fern.lang;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Uncoordinated, synchronous, lock-free reference. Updates are done by swapping
+ * in the result of applying a pure fn to the current value, retrying until the
+ * compare-and-set succeeds. The fn may therefore be invoked more than once.
+ * <p>
+ * Failed attempts back off before retrying: first spinning, then parking for a
+ * randomised, exponentially growing period. Under heavy contention this spreads
+ * out the retries, so that threads don't keep invalidating each other's work.
+ *
+ * @param <T> type of the value held
+ */
+public final class Atom<T> extends ARef<T> {
+    private static final int SPIN_ATTEMPTS = 4;
+    private static final int MAX_BACKOFF_SHIFT = 10;
+    private static final long MIN_BACKOFF_NANOS = 1_000L;
+
+    public static <T> Atom<T> neu(T initVal) {
+        return new Atom<>(initVal, null);
+    }
+
+    public static <T> Atom<T> neu(T initVal, IPredicate validator) {
+        return new Atom<>(initVal, validator);
+    }
+
+    private final AtomicReference<T> state;
+
+    private Atom(T initVal, IPredicate validator) {
+        super(validator);
+        validate(initVal);
+        state = new AtomicReference<>(initVal);
+    }
+
+    @Override
+    public T deref() {
+        return state.get();
+    }
+
+    /**
+     * Atomically sets the value to fn(current, args...).
+     *
+     * @param fn   pure fn, with side effects it may be invoked several times
+     * @param args extra args passed to fn after the current value
+     * @return the new value
+     */
+    @SuppressWarnings("unchecked")
+    public T swap(IFn<?> fn, Object... args) {
+        int argsLen = args != null ? args.length : 0;
+        Object[] fnArgs = new Object[1 + argsLen];
+        if (argsLen > 0) {
+            System.arraycopy(args, 0, fnArgs, 1, argsLen);
+        }
+        for (int attempt = 0; ; attempt++) {
+            T oldVal = state.get();
+            fnArgs[0] = oldVal;
+            T newVal = (T) fn.invoke(fnArgs);
+            validate(newVal);
+            if (state.compareAndSet(oldVal, newVal)) {
+                notifyWatches(oldVal, newVal);
+                return newVal;
+            }
+            backoff(attempt);
+        }
+    }
+
+    /**
+     * Sets the value to newVal if, and only if, the current value is identical to oldVal.
+     *
+     * @return true if the value was set
+     */
+    public boolean compareAndSet(T oldVal, T newVal) {
+        validate(newVal);
+        if (state.compareAndSet(oldVal, newVal)) {
+            notifyWatches(oldVal, newVal);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the value to newVal regardless of the current value.
+     *
+     * @return newVal
+     */
+    public T reset(T newVal) {
+        validate(newVal);
+        T oldVal = state.getAndSet(newVal);
+        notifyWatches(oldVal, newVal);
+        return newVal;
+    }
+
+    static void backoff(int attempt) {
+        if (attempt < SPIN_ATTEMPTS) {
+            for (int i = 0; i < 1 << attempt; i++) {
+                Thread.onSpinWait();
+            }
+        } else {
+            long ceiling = MIN_BACKOFF_NANOS << Math.min(attempt - SPIN_ATTEMPTS, MAX_BACKOFF_SHIFT);
+            LockSupport.parkNanos(1L + ThreadLocalRandom.current().nextLong(ceiling));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Atom: " + state.get();
+    }
+}
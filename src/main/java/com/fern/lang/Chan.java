@@ -0,0 +1,366 @@
+package com.fern.lang;
+
+import com.fern.seq.ISeq;
+import com.fern.seq.List;
+
+import static com.fern.util.Util.str;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded channel, a conduit of values between threads. Null cannot be put, as
+ * it is what take returns once the channel is closed and drained.
+ * <p>
+ * Waiting is done by parking, so it is meant to be used from virtual threads,
+ * see {@linkplain #go(IFn, Object...)}, where a blocked put or take costs no
+ * platform thread. Takers and putters only signal each other when the other
+ * side is actually waiting.
+ * <p>
+ * The buffer decides what a put on a full channel does:
+ * <ul>
+ *     <li>FIXED: waits for room.</li>
+ *     <li>DROPPING: discards the new value, without waiting.</li>
+ *     <li>SLIDING: discards the oldest value, without waiting.</li>
+ * </ul>
+ *
+ * @param <T> type of the values conveyed
+ */
+public final class Chan<T> {
+    public enum Buffer {
+        FIXED, DROPPING, SLIDING
+    }
+
+    private static final AtomicInteger GO_ID = new AtomicInteger();
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fern-chan-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static <T> Chan<T> neu(int capacity) {
+        return new Chan<>(capacity, Buffer.FIXED);
+    }
+
+    public static <T> Chan<T> neu(int capacity, Buffer buffer) {
+        return new Chan<>(capacity, buffer);
+    }
+
+    /**
+     * @return a channel that closes itself after the delay, to be used with alts
+     */
+    public static <T> Chan<T> timeout(long delay, TimeUnit unit) {
+        Chan<T> chan = new Chan<>(1, Buffer.FIXED);
+        TIMER.schedule(chan::close, delay, unit);
+        return chan;
+    }
+
+    /**
+     * Runs body on a new virtual thread.
+     *
+     * @return a channel that will receive the result of the body (unless null),
+     * and which is closed once the body completes
+     */
+    public static Chan<Object> go(IFn<?> body, Object... args) {
+        Chan<Object> result = new Chan<>(1, Buffer.FIXED);
+        Thread.ofVirtual().name("fern-go-" + GO_ID.getAndIncrement()).start(() -> {
+            try {
+                Object value = body.invoke(args);
+                if (value != null) {
+                    result.put(value);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                result.close();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Waits until any of the channels has a value, or is closed and drained. When
+     * several are ready the choice is random, so that no channel starves.
+     *
+     * @return [value, chan], value being null if chan is closed
+     */
+    public static ISeq alts(Chan<?>... chans) throws InterruptedException {
+        if (chans.length == 0) {
+            throw new IllegalArgumentException("at least 1 chan is required");
+        }
+        Thread waiter = Thread.currentThread();
+        int first = ThreadLocalRandom.current().nextInt(chans.length);
+        while (true) {
+            for (Chan<?> chan : chans) {
+                chan.addAltWaiter(waiter);
+            }
+            try {
+                for (int i = 0; i < chans.length; i++) {
+                    Chan<?> chan = chans[(first + i) % chans.length];
+                    Object value = chan.poll();
+                    if (value != null || chan.isDrained()) {
+                        return new List(value, chan);
+                    }
+                }
+                LockSupport.park(waiter);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            } finally {
+                for (Chan<?> chan : chans) {
+                    chan.removeAltWaiter(waiter);
+                }
+            }
+        }
+    }
+
+    private final Buffer buffer;
+    private final Object[] items;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    private final ArrayList<Thread> altWaiters;
+    private int head;
+    private int count;
+    private int waitingTakers;
+    private int waitingPutters;
+    private boolean isClosed;
+
+    private Chan(int capacity, Buffer buffer) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(str("capacity must be > 0, got: %d", capacity));
+        }
+        if (buffer == null) {
+            throw new NullPointerException("buffer");
+        }
+        this.buffer = buffer;
+        items = new Object[capacity];
+        lock = new ReentrantLock();
+        notEmpty = lock.newCondition();
+        notFull = lock.newCondition();
+        altWaiters = new ArrayList<>(0);
+    }
+
+    /**
+     * Puts the value, waiting for room if the buffer is FIXED and full.
+     *
+     * @return false if the channel is closed, in which case the value is discarded
+     */
+    public boolean put(T value) throws InterruptedException {
+        checkNotNull(value);
+        lock.lockInterruptibly();
+        try {
+            while (false == isClosed && count == items.length && buffer == Buffer.FIXED) {
+                waitingPutters++;
+                try {
+                    notFull.await();
+                } finally {
+                    waitingPutters--;
+                }
+            }
+            return enqueue(value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts the value if there is room (or the buffer is DROPPING/SLIDING), without waiting.
+     *
+     * @return false if the channel is closed, or FIXED and full
+     */
+    public boolean offer(T value) {
+        checkNotNull(value);
+        lock.lock();
+        try {
+            if (count == items.length && buffer == Buffer.FIXED) {
+                return false;
+            }
+            return enqueue(value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next value, waiting for one to arrive.
+     *
+     * @return the value, or null if the channel is closed and drained
+     */
+    public T take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0 && false == isClosed) {
+                waitingTakers++;
+                try {
+                    notEmpty.await();
+                } finally {
+                    waitingTakers--;
+                }
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next value, waiting at most timeout for one to arrive.
+     *
+     * @return the value, or null if the timeout elapsed or the channel is closed and drained
+     */
+    public T take(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0 && false == isClosed) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                waitingTakers++;
+                try {
+                    nanos = notEmpty.awaitNanos(nanos);
+                } finally {
+                    waitingTakers--;
+                }
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the next value, or null if there is none, without waiting
+     */
+    public T poll() {
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the channel. Puts are rejected from then on, while takes keep
+     * returning the values buffered until drained, and null thereafter.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            if (false == isClosed) {
+                isClosed = true;
+                notEmpty.signalAll();
+                notFull.signalAll();
+                wakeAltWaiters();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return isClosed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isDrained() {
+        lock.lock();
+        try {
+            return isClosed && count == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void checkNotNull(Object value) {
+        if (value == null) {
+            throw new NullPointerException("null cannot be put in a chan");
+        }
+    }
+
+    // lock is held
+    private boolean enqueue(T value) {
+        if (isClosed) {
+            return false;
+        }
+        if (count == items.length) {
+            if (buffer == Buffer.DROPPING) {
+                return true;
+            }
+            // SLIDING: drop the oldest
+            items[head] = null;
+            head = (head + 1) % items.length;
+            count--;
+        }
+        items[(head + count) % items.length] = value;
+        count++;
+        if (waitingTakers > 0) {
+            notEmpty.signal();
+        }
+        wakeAltWaiters();
+        return true;
+    }
+
+    // lock is held
+    @SuppressWarnings("unchecked")
+    private T dequeue() {
+        if (count == 0) {
+            return null;
+        }
+        T value = (T) items[head];
+        items[head] = null;
+        head = (head + 1) % items.length;
+        count--;
+        if (waitingPutters > 0) {
+            notFull.signal();
+        }
+        return value;
+    }
+
+    // lock is held
+    private void wakeAltWaiters() {
+        for (int i = 0; i < altWaiters.size(); i++) {
+            LockSupport.unpark(altWaiters.get(i));
+        }
+    }
+
+    private void addAltWaiter(Thread waiter) {
+        lock.lock();
+        try {
+            altWaiters.add(waiter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeAltWaiter(Thread waiter) {
+        lock.lock();
+        try {
+            altWaiters.remove(waiter);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
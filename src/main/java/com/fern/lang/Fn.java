@@ -1,13 +1,29 @@
 package com.fern.lang;
 
 import com.fern.seq.Colls;
+import com.fern.seq.IHashed;
 import com.fern.seq.ISeq;
+import com.fern.seq.ITransient;
 import com.fern.seq.List;
+import com.fern.seq.Map;
+import com.fern.seq.Set;
+import com.fern.seq.SortedMap;
+import com.fern.seq.SortedSet;
 
 import static com.fern.util.Util.str;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 public final class Fn {
     private Fn() {
@@ -57,19 +73,8 @@ public final class Fn {
     // ===============================
     @SuppressWarnings({"unchecked"})
     public static <RT> IFn<RT> compose(IFn<?>... fns) {
-        if (fns.length < 1) {
-            throw new IllegalArgumentException("at least 1 fn is required");
-        }
+        checkComposable(fns);
         IFn<?> firstFn = fns[0];
-        Class<?> prevFnReturnType = firstFn.returnType();
-        for (int i = 1; i < fns.length; i++) {
-            IFn<?> fn = fns[i];
-            if (false == zeroth(fn).isAssignableFrom(prevFnReturnType)) {
-                throw new IllegalArgumentException(str(
-                        "incompatible types, expected %s, got %s for fn %dth: %s", fn.argDefs(), prevFnReturnType, i, fn));
-            }
-            prevFnReturnType = fn.returnType();
-        }
         return new AFn<>(null, null, firstFn.argDefs(), (Class<RT>) firstFn.returnType(), new FnBody<RT>() {
             @Override
             public RT fnBody() {
@@ -83,6 +88,21 @@ public final class Fn {
         });
     }
 
+    private static void checkComposable(IFn<?>... fns) {
+        if (fns.length < 1) {
+            throw new IllegalArgumentException("at least 1 fn is required");
+        }
+        Class<?> prevFnReturnType = fns[0].returnType();
+        for (int i = 1; i < fns.length; i++) {
+            IFn<?> fn = fns[i];
+            if (false == zeroth(fn).isAssignableFrom(prevFnReturnType)) {
+                throw new IllegalArgumentException(str(
+                        "incompatible types, expected %s, got %s for fn %dth: %s", fn.argDefs(), prevFnReturnType, i, fn));
+            }
+            prevFnReturnType = fn.returnType();
+        }
+    }
+
     private static Class<?> zeroth(IFn<?> fn) {
         Args argDefs = fn.argDefs();
         if (argDefs.size() == 1) {
@@ -163,15 +183,15 @@ public final class Fn {
         }
         int arity = fn.argDefs().size();
         if ((arity == 1 && fn.argDefs().isLastArgVararg()) || arity == seqs.length) {
-            Object[] results = new Object[numberOfFnInvokes];
+            ITransient<ISeq> results = Colls.transientList(numberOfFnInvokes);
             Object[] args = new Object[seqs.length];
             for (int argIdx = 0; argIdx < numberOfFnInvokes; argIdx++) {
                 for (int seqIdx = 0; seqIdx < seqs.length; seqIdx++) {
                     args[seqIdx] = seqs[seqIdx].nth(argIdx);
                 }
-                results[argIdx] = fn.invoke(args);
+                results.conj(fn.invoke(args));
             }
-            return new List(results);
+            return results.persistent();
         }
         throw new IllegalArgumentException(str("%s incompatible with |seqs| = %d", fn, seqs.length));
     }
@@ -193,15 +213,63 @@ public final class Fn {
             System.arraycopy(xargs, 0, extended, 1, xargsLen);
         }
         Object[] array = seq.toArray();
-        Object[] results = new Object[array.length];
-        int offset = 0;
+        ITransient<ISeq> results = Colls.transientList(array.length);
         for (int i = 0; i < array.length; i++) {
             extended[0] = array[i];
             if (pred.isTrue(extended)) {
-                results[offset++] = array[i];
+                results.conj(array[i]);
             }
         }
-        return new List(0, offset, results);
+        return results.persistent();
+    }
+
+    // =================
+    // =    I N T O    =
+    // =================
+    /**
+     * Pours the contents of 'from' into a new seq of the same kind as 'to', through
+     * a transient, so that no locking happens while the elements are added. Maps take
+     * (key, val) entries, sets take elements, lists (and nil) get elements appended.
+     * Sorted maps and sets keep the comparator of 'to'.
+     */
+    public static ISeq into(ISeq to, ISeq from) {
+        ITransient<? extends ISeq> result;
+        if (to instanceof SortedMap sorted) {
+            result = Colls.transientSortedMap(sorted.comparator());
+            for (Object entry : to.items()) {
+                result.conj(entry);
+            }
+        } else if (to instanceof SortedSet sorted) {
+            result = Colls.transientSortedSet(sorted.comparator());
+            for (Object e : to.toArray()) {
+                result.conj(e);
+            }
+        } else if (to instanceof Map) {
+            result = Colls.transientMap();
+            for (Object entry : to.items()) {
+                result.conj(entry);
+            }
+        } else if (to instanceof Set) {
+            result = Colls.transientSet();
+            for (Object e : to.toArray()) {
+                result.conj(e);
+            }
+        } else {
+            int toSize = Colls.isNil(to) ? 0 : to.size();
+            result = Colls.transientList(toSize + (Colls.isNil(from) ? 0 : from.size()));
+            if (toSize > 0) {
+                for (Object e : to.toArray()) {
+                    result.conj(e);
+                }
+            }
+        }
+        if (false == Colls.isNil(from)) {
+            boolean isMap = from instanceof Map || from instanceof SortedMap;
+            for (Object e : isMap ? from.items().toArray() : from.toArray()) {
+                result.conj(e);
+            }
+        }
+        return result.persistent();
     }
 
     // ===========================
@@ -472,4 +540,288 @@ public final class Fn {
         }
         return offset == 0 ? seq : new List(offset, array.length, array);
     }
-}
\ No newline at end of file
+
+    // ===============================
+    // =    A G G R E G A T I O N    =
+    // ===============================
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * Large seqs are aggregated in parallel, each worker thread filling in its own
+     * partial map, and partial maps are merged pairwise at the end (no locking).
+     */
+    private static Stream<Object> aggregationStream(ISeq seq) {
+        return seq.size() >= PARALLEL_THRESHOLD ? Colls.parallelStream(seq) : Colls.stream(seq);
+    }
+
+    private static final class Counter {
+        private long count;
+    }
+
+    /**
+     * @return map of keyFn(e) to the list of elements e sharing that key, in seq order
+     */
+    public static IHashed groupBy(IFn<?> keyFn, ISeq seq) {
+        if (Colls.isNil(seq) || seq.isEmpty()) {
+            return Map.neu();
+        }
+        HashMap<Object, ArrayList<Object>> groups = aggregationStream(seq).collect(
+                HashMap::new,
+                (partial, e) -> partial.computeIfAbsent(keyFn.invoke(e), k -> new ArrayList<>()).add(e),
+                (left, right) -> right.forEach((k, group) -> left.merge(k, group, (l, r) -> {
+                    l.addAll(r);
+                    return l;
+                })));
+        ITransient<IHashed> result = Colls.transientMap();
+        groups.forEach((k, group) -> result.assoc(k, new List(group.toArray())));
+        return result.persistent();
+    }
+
+    /**
+     * @return map of distinct element to the number of times it appears in seq (Long)
+     */
+    public static IHashed frequencies(ISeq seq) {
+        if (Colls.isNil(seq) || seq.isEmpty()) {
+            return Map.neu();
+        }
+        HashMap<Object, Counter> counters = aggregationStream(seq).collect(
+                HashMap::new,
+                (partial, e) -> partial.computeIfAbsent(e, k -> new Counter()).count++,
+                (left, right) -> right.forEach((k, counter) -> left.merge(k, counter, (l, r) -> {
+                    l.count += r.count;
+                    return l;
+                })));
+        ITransient<IHashed> result = Colls.transientMap();
+        counters.forEach((k, counter) -> result.assoc(k, counter.count));
+        return result.persistent();
+    }
+
+    /**
+     * @return map of keyFn(e) to the last element e in seq with that key
+     */
+    public static IHashed indexBy(IFn<?> keyFn, ISeq seq) {
+        if (Colls.isNil(seq) || seq.isEmpty()) {
+            return Map.neu();
+        }
+        HashMap<Object, Object> index = aggregationStream(seq).collect(
+                HashMap::new,
+                (partial, e) -> partial.put(keyFn.invoke(e), e),
+                HashMap::putAll);
+        ITransient<IHashed> result = Colls.transientMap();
+        index.forEach(result::assoc);
+        return result.persistent();
+    }
+
+    /**
+     * Splits seq into runs of consecutive elements for which fn returns the same value.
+     * The values are computed in parallel for large seqs, the split itself is sequential.
+     *
+     * @return list of lists
+     */
+    public static ISeq partitionBy(IFn<?> fn, ISeq seq) {
+        if (Colls.isNil(seq) || seq.isEmpty()) {
+            return new List();
+        }
+        Object[] array = seq.toArray();
+        Object[] keys = aggregationStream(seq).map(e -> fn.invoke(e)).toArray();
+        ITransient<ISeq> partitions = Colls.transientList();
+        ITransient<ISeq> current = Colls.transientList();
+        current.conj(array[0]);
+        for (int i = 1; i < array.length; i++) {
+            if (false == Objects.equals(keys[i], keys[i - 1])) {
+                partitions.conj(current.persistent());
+                current = Colls.transientList();
+            }
+            current.conj(array[i]);
+        }
+        partitions.conj(current.persistent());
+        return partitions.persistent();
+    }
+
+    // =================
+    // =    J O I N    =
+    // =================
+    private static HashMap<Object, ArrayList<Object>> hashIndex(IFn<?> keyFn, Object[] array) {
+        HashMap<Object, ArrayList<Object>> index = new HashMap<>();
+        for (Object e : array) {
+            index.computeIfAbsent(keyFn.invoke(e), k -> new ArrayList<>(1)).add(e);
+        }
+        return index;
+    }
+
+    private static HashSet<Object> hashKeys(IFn<?> keyFn, ISeq seq) {
+        HashSet<Object> keys = new HashSet<>();
+        for (Object e : seq.toArray()) {
+            keys.add(keyFn.invoke(e));
+        }
+        return keys;
+    }
+
+    /**
+     * Inner equi-join. A hash index is built on the smaller seq, and the larger one
+     * probes it (in parallel when large enough).
+     *
+     * @return list of [a, b] pairs such that keyFnA(a) equals keyFnB(b), in the
+     * order of the probing seq
+     */
+    public static ISeq join(IFn<?> keyFnA, IFn<?> keyFnB, ISeq seqA, ISeq seqB) {
+        if (Colls.isNil(seqA) || Colls.isNil(seqB) || seqA.isEmpty() || seqB.isEmpty()) {
+            return new List();
+        }
+        boolean indexA = seqA.size() <= seqB.size();
+        HashMap<Object, ArrayList<Object>> index = indexA ?
+                hashIndex(keyFnA, seqA.toArray())
+                :
+                hashIndex(keyFnB, seqB.toArray());
+        IFn<?> probeKeyFn = indexA ? keyFnB : keyFnA;
+        return aggregationStream(indexA ? seqB : seqA).flatMap(probe -> {
+            ArrayList<Object> matches = index.get(probeKeyFn.invoke(probe));
+            if (matches == null) {
+                return Stream.empty();
+            }
+            return matches.stream().map(match -> indexA ? new List(match, probe) : new List(probe, match));
+        }).collect(Colls.toList());
+    }
+
+    /**
+     * @return elements a of seqA for which some b in seqB has keyFnB(b) equal to keyFnA(a)
+     */
+    public static ISeq semijoin(IFn<?> keyFnA, IFn<?> keyFnB, ISeq seqA, ISeq seqB) {
+        return probeKeys(keyFnA, keyFnB, seqA, seqB, true);
+    }
+
+    /**
+     * @return elements a of seqA for which no b in seqB has keyFnB(b) equal to keyFnA(a)
+     */
+    public static ISeq antijoin(IFn<?> keyFnA, IFn<?> keyFnB, ISeq seqA, ISeq seqB) {
+        return probeKeys(keyFnA, keyFnB, seqA, seqB, false);
+    }
+
+    private static ISeq probeKeys(IFn<?> keyFnA, IFn<?> keyFnB, ISeq seqA, ISeq seqB, boolean keepMatches) {
+        if (Colls.isNil(seqA) || seqA.isEmpty()) {
+            return new List();
+        }
+        if (Colls.isNil(seqB) || seqB.isEmpty()) {
+            return keepMatches ? new List() : seqA;
+        }
+        HashSet<Object> keys = hashKeys(keyFnB, seqB);
+        return aggregationStream(seqA)
+                .filter(a -> keys.contains(keyFnA.invoke(a)) == keepMatches)
+                .collect(Colls.toList());
+    }
+
+    // ===================
+    // =    A S Y N C    =
+    // ===================
+    //
+    // Futures returned are structured: completing them by any means other than
+    // their own result (cancel, orTimeout for a deadline, completeExceptionally)
+    // cancels, and interrupts, the invocations they are waiting on.
+
+    /**
+     * Invokes fn on executor. {@linkplain IFn#invokeAsync(Object...)} uses virtual threads.
+     */
+    public static <RT> CompletableFuture<RT> invokeAsync(Executor executor, IFn<RT> fn, Object... args) {
+        return AsyncCall.submit(executor, fn, args);
+    }
+
+    /**
+     * Asynchronous {@linkplain #compose(IFn...)}, each fn is invoked with the result
+     * of the previous one once it is available, on a virtual thread.
+     */
+    @SuppressWarnings({"unchecked"})
+    public static <RT> Invocable<CompletableFuture<RT>> composeAsync(IFn<?>... fns) {
+        checkComposable(fns);
+        return args -> {
+            CompletableFuture<RT> result = new CompletableFuture<>();
+            AtomicReference<CompletableFuture<?>> inFlight = new AtomicReference<>();
+            result.whenComplete((r, error) -> {
+                CompletableFuture<?> stage = inFlight.get();
+                if (stage != null) {
+                    stage.cancel(true);
+                }
+            });
+            composeStep(fns, 0, args, inFlight, (CompletableFuture<Object>) result);
+            return result;
+        };
+    }
+
+    private static void composeStep(IFn<?>[] fns,
+                                    int i,
+                                    Object[] args,
+                                    AtomicReference<CompletableFuture<?>> inFlight,
+                                    CompletableFuture<Object> result) {
+        CompletableFuture<?> stage = fns[i].invokeAsync(args);
+        inFlight.set(stage);
+        if (result.isDone()) {
+            stage.cancel(true);
+            return;
+        }
+        stage.whenComplete((r, error) -> {
+            if (error != null) {
+                result.completeExceptionally(unwrap(error));
+            } else if (i + 1 == fns.length) {
+                result.complete(r);
+            } else {
+                composeStep(fns, i + 1, new Object[]{r}, inFlight, result);
+            }
+        });
+    }
+
+    /**
+     * Invokes fn with each element of seq, all concurrently on virtual threads.
+     *
+     * @return future of the list of results, in the order of seq
+     */
+    public static CompletableFuture<ISeq> mapAsync(IFn<?> fn, ISeq seq) {
+        if (Colls.isNil(seq) || seq.isEmpty()) {
+            return CompletableFuture.completedFuture(new List());
+        }
+        Object[] elements = seq.toArray();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            futures[i] = fn.invokeAsync(elements[i]);
+        }
+        return allOf(futures);
+    }
+
+    /**
+     * Fails fast: when a future fails, the result fails with its error, and the
+     * other futures are cancelled.
+     *
+     * @return future of the list of results, in the order of futures
+     */
+    public static CompletableFuture<ISeq> allOf(CompletableFuture<?>... futures) {
+        if (futures.length == 0) {
+            return CompletableFuture.completedFuture(new List());
+        }
+        CompletableFuture<ISeq> result = new CompletableFuture<>();
+        Object[] results = new Object[futures.length];
+        AtomicInteger pending = new AtomicInteger(futures.length);
+        for (int i = 0; i < futures.length; i++) {
+            int idx = i;
+            futures[i].whenComplete((r, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(unwrap(error));
+                } else {
+                    results[idx] = r;
+                    if (pending.decrementAndGet() == 0) {
+                        result.complete(new List(results));
+                    }
+                }
+            });
+        }
+        result.whenComplete((r, error) -> {
+            if (error != null) {
+                for (CompletableFuture<?> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        });
+        return result;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,38 @@
+package com.fern.lang;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for the invocation of a fn, its duration being that of the invocation.
+ */
+@Name("com.fern.FnInvoke")
+@Label("Fn Invoke")
+@Category({"Fern", "Lang"})
+@Description("Invocation of a fern fn")
+@StackTrace(false)
+final class FnInvokeEvent extends jdk.jfr.Event {
+    private static final FnInvokeEvent PROBE = new FnInvokeEvent();
+
+    /**
+     * @return true when a recording has the event enabled
+     */
+    static boolean enabled() {
+        return PROBE.isEnabled();
+    }
+
+    @Label("Name")
+    String name;
+
+    @Label("Unique Id")
+    String uniqueId;
+
+    @Label("Arity")
+    int arity;
+
+    @Label("Failed")
+    boolean failed;
+}
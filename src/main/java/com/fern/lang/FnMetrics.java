@@ -0,0 +1,68 @@
+package com.fern.lang;
+
+import static com.fern.util.Util.str;
+
+import com.fern.util.Histogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Invocation count, error count and latency (nanos) histogram of a fn. Metrics
+ * are opt-in, per fn ({@linkplain #enable(IFn)}) or per namespace
+ * ({@linkplain NS#enableMetrics(String)}). While no fn has metrics, and fns are
+ * not otherwise instrumented, invocations pay a single volatile read.
+ */
+public final class FnMetrics {
+    /**
+     * Enables metrics for fn (for its root when fn is a var), keeping them if already enabled.
+     */
+    public static FnMetrics enable(IFn<?> fn) {
+        return afn(fn).enableMetrics();
+    }
+
+    public static void disable(IFn<?> fn) {
+        afn(fn).disableMetrics();
+    }
+
+    /**
+     * @return metrics of fn, null when not enabled
+     */
+    public static FnMetrics of(IFn<?> fn) {
+        return afn(fn).metrics();
+    }
+
+    private static AFn<?> afn(IFn<?> fn) {
+        IFn<?> target = fn instanceof Var<?> var ? var.root() : fn;
+        if (target instanceof AFn<?> afn) {
+            return afn;
+        }
+        throw new IllegalArgumentException(str("not a fern fn: %s", fn.getClass().getName()));
+    }
+
+    public record Snapshot(String uniqueId, long invocations, long errors, Histogram.Snapshot latencies) {
+    }
+
+    private final String uniqueId;
+    private final LongAdder invocations;
+    private final LongAdder errors;
+    private final Histogram latencies;
+
+    FnMetrics(String uniqueId) {
+        this.uniqueId = uniqueId;
+        invocations = new LongAdder();
+        errors = new LongAdder();
+        latencies = new Histogram();
+    }
+
+    void record(long nanos, boolean failed) {
+        invocations.increment();
+        if (failed) {
+            errors.increment();
+        }
+        latencies.record(nanos);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(uniqueId, invocations.sum(), errors.sum(), latencies.snapshot());
+    }
+}
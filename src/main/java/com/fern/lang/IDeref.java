@@ -0,0 +1,6 @@
+package com.fern.lang;
+
+@FunctionalInterface
+public interface IDeref<T> {
+    T deref();
+}
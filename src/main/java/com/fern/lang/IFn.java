@@ -1,6 +1,7 @@
 package com.fern.lang;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 public interface IFn<RT> extends Runnable, Callable<RT>, Invocable<RT> {
     String uniqueId();
@@ -12,4 +13,13 @@ public interface IFn<RT> extends Runnable, Callable<RT>, Invocable<RT> {
     String doc();
 
     Args argDefs();
+
+    /**
+     * Invokes the fn on a virtual thread.
+     *
+     * @return the future result, cancelling it interrupts the invocation
+     */
+    default CompletableFuture<RT> invokeAsync(Object... args) {
+        return AsyncCall.submit(AsyncCall.DEFAULT_EXECUTOR, this, args);
+    }
 }
\ No newline at end of file
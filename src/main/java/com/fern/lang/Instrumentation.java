@@ -0,0 +1,52 @@
+package com.fern.lang;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+
+/**
+ * Whether fn invocations are instrumented, that is, whether any fn has
+ * {@linkplain FnMetrics}, a {@linkplain Profiler} is running, or a JFR recording
+ * has the {@linkplain FnInvokeEvent} enabled. Uninstrumented invocations pay a
+ * single volatile read.
+ * <p>
+ * The flag is updated when metrics are enabled/disabled, when profilers start/stop,
+ * and when recordings change state. Recordings changing their settings while
+ * running are not seen until the next change of state.
+ */
+final class Instrumentation {
+    private static volatile boolean active;
+    private static int metricsCount;
+
+    static {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recordingStateChanged(Recording recording) {
+                update();
+            }
+        });
+        update();
+    }
+
+    private Instrumentation() {
+        throw new IllegalAccessError("this class comprises static utilities only");
+    }
+
+    static boolean isActive() {
+        return active;
+    }
+
+    static synchronized void metricsEnabled() {
+        metricsCount++;
+        update();
+    }
+
+    static synchronized void metricsDisabled() {
+        metricsCount--;
+        update();
+    }
+
+    static synchronized void update() {
+        active = metricsCount > 0 || Profiler.isRunning() || FnInvokeEvent.enabled();
+    }
+}
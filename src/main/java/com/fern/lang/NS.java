@@ -5,14 +5,18 @@ import static com.fern.util.Util.str;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 public final class NS {
     private static final Map<String, ConcurrentMap<String, IFn<?>>> NAMESPACES = new ConcurrentHashMap<>();
+    private static final Map<String, ConcurrentMap<String, Var<?>>> VARS = new ConcurrentHashMap<>();
+    private static final Set<String> METERED = ConcurrentHashMap.newKeySet();
 
     public static final String GLOBAL_NS = "global-ns";
-    private static final String SEP = "/";
+    static final String SEP = "/";
 
     private static String fnKey(String ns, IFn<?> fn) {
         return THR_SB.get().append(ns).append(SEP).append(fn.uniqueId()).toString();
@@ -23,33 +27,149 @@ public final class NS {
     }
 
     public static String regfn(String ns, IFn<?> fn) {
-        ConcurrentMap<String, IFn<?>> nsfns = NAMESPACES.get(ns);
-        if (nsfns == null) {
-            ConcurrentMap<String, IFn<?>> other = NAMESPACES.putIfAbsent(ns, nsfns = new ConcurrentHashMap<>());
-            if (other != null) {
-                nsfns = other;
-            }
-        }
+        ConcurrentMap<String, IFn<?>> nsfns = NAMESPACES.computeIfAbsent(ns, k -> new ConcurrentHashMap<>());
         String uniqueId = fn.uniqueId();
         if (null != nsfns.putIfAbsent(uniqueId, fn)) {
             throw new IllegalAccessError(str("NS(%s) already contains: %s", ns, uniqueId));
         }
+        if (METERED.contains(ns)) {
+            meter(fn, true);
+        }
         return fnKey(ns, fn);
     }
 
     public static <T> IFn<T> fn(String fnKey) {
-        if (fnKey.contains(SEP)) {
-            String[] parts = fnKey.split(SEP);
-            if (2 == parts.length) {
-                ConcurrentMap<String, IFn<?>> nsfns = NAMESPACES.get(parts[0]);
-                if (null != nsfns) {
-                    @SuppressWarnings("unchecked") IFn<T> fn = (IFn<T>) nsfns.get(parts[1]);
-                    if (null != fn) {
-                        return fn;
-                    }
-                }
+        int sep = fnKey.indexOf(SEP);
+        if (sep > 0 && sep == fnKey.lastIndexOf(SEP)) {
+            IFn<T> fn = lookup(fnKey.substring(0, sep), fnKey.substring(sep + 1));
+            if (null != fn) {
+                return fn;
             }
         }
         throw new IllegalAccessError(str("not a valid key: %s", fnKey));
     }
-}
\ No newline at end of file
+
+    public static <T> IFn<T> fn(String ns, String uniqueId) {
+        IFn<T> fn = lookup(ns, uniqueId);
+        if (null == fn) {
+            throw new IllegalAccessError(str("NS(%s) does not contain: %s", ns, uniqueId));
+        }
+        return fn;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> IFn<T> lookup(String ns, String uniqueId) {
+        ConcurrentMap<String, IFn<?>> nsfns = NAMESPACES.get(ns);
+        return null != nsfns ? (IFn<T>) nsfns.get(uniqueId) : null;
+    }
+
+    // ===============
+    // =    V A R    =
+    // ===============
+    public static <T> Var<T> def(String name, IFn<T> fn) {
+        return def(GLOBAL_NS, name, fn);
+    }
+
+    /**
+     * Defines name in ns as fn. The var is created on first definition, and
+     * redefinition swaps its root.
+     *
+     * @return the var, the same for all definitions of (ns, name)
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Var<T> def(String ns, String name, IFn<T> fn) {
+        if (fn == null) {
+            throw new NullPointerException("fn");
+        }
+        if (name.contains(SEP)) {
+            throw new IllegalArgumentException(str("invalid name: %s", name));
+        }
+        ConcurrentMap<String, Var<?>> nsvars = VARS.computeIfAbsent(ns, k -> new ConcurrentHashMap<>());
+        if (METERED.contains(ns)) {
+            meter(fn, true);
+        }
+        Var<T> var = (Var<T>) nsvars.get(name);
+        if (var == null) {
+            Var<T> created = new Var<>(ns, name, fn);
+            var = (Var<T>) nsvars.putIfAbsent(name, created);
+            if (var == null) {
+                return created;
+            }
+        }
+        IFn<T> oldRoot = var.bindRoot(fn);
+        if (METERED.contains(ns) && oldRoot != fn) {
+            meter(oldRoot, false); // no longer in ns, and its metrics would keep fns instrumented
+        }
+        return var;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> Var<T> var(String ns, String name) {
+        ConcurrentMap<String, Var<?>> nsvars = VARS.get(ns);
+        Var<T> var = null != nsvars ? (Var<T>) nsvars.get(name) : null;
+        if (null == var) {
+            throw new IllegalAccessError(str("NS(%s) does not define: %s", ns, name));
+        }
+        return var;
+    }
+
+    public static <T> Var<T> var(String name) {
+        return var(GLOBAL_NS, name);
+    }
+
+    // =======================
+    // =    M E T R I C S    =
+    // =======================
+
+    /**
+     * Enables {@linkplain FnMetrics} for the fns registered, and vars defined, in ns,
+     * now and from now on.
+     */
+    public static void enableMetrics(String ns) {
+        METERED.add(ns);
+        forEachFn(ns, fn -> meter(fn, true));
+    }
+
+    public static void disableMetrics(String ns) {
+        METERED.remove(ns);
+        forEachFn(ns, fn -> meter(fn, false));
+    }
+
+    /**
+     * @return snapshots of the metrics of the fns in ns that have them enabled, by fn uniqueId
+     */
+    public static Map<String, FnMetrics.Snapshot> metrics(String ns) {
+        Map<String, FnMetrics.Snapshot> snapshots = new HashMap<>();
+        forEachFn(ns, fn -> {
+            FnMetrics metrics = fn instanceof AFn<?> afn ? afn.metrics() : null;
+            if (metrics != null) {
+                snapshots.put(fn.uniqueId(), metrics.snapshot());
+            }
+        });
+        return snapshots;
+    }
+
+    private static void forEachFn(String ns, Consumer<IFn<?>> action) {
+        ConcurrentMap<String, IFn<?>> nsfns = NAMESPACES.get(ns);
+        if (nsfns != null) {
+            nsfns.values().forEach(fn -> action.accept(fn instanceof Var<?> var ? var.root() : fn));
+        }
+        ConcurrentMap<String, Var<?>> nsvars = VARS.get(ns);
+        if (nsvars != null) {
+            nsvars.values().forEach(var -> action.accept(var.root()));
+        }
+    }
+
+    private static void meter(IFn<?> fn, boolean enable) {
+        if (fn instanceof Var<?> var) {
+            fn = var.root();
+        }
+        if (fn instanceof AFn<?> afn) {
+            if (enable) {
+                afn.enableMetrics();
+            } else {
+                afn.disableMetrics();
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.fern.lang;
+
+import static com.fern.util.Util.str;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sampling profiler of logical fern call stacks. JVM profilers see the same
+ * AFn.invoke/FnBody.runFnBody frames for every fn, this one sees the fns.
+ * <p>
+ * While a profiler is running, each fn invocation pushes the fn to a call
+ * stack of the invoking thread, popping it on return. Every interval, a daemon
+ * thread samples the stacks of the threads that are RUNNABLE within some fn, and
+ * counts each distinct stack. The counts are written in collapsed stack format
+ * (frames root first, ';' separated, a space, the count), the input of flame
+ * graph tools.
+ * <p>
+ * Samples are taken without stopping the threads, a sampled stack may be off
+ * by the frames pushed or popped while it was being copied.
+ */
+public final class Profiler {
+    private static final Object LOCK = new Object();
+    private static final ThreadLocal<Frames> FRAMES = new ThreadLocal<>();
+    private static final Map<Frames, Boolean> ALL_FRAMES = new ConcurrentHashMap<>();
+    private static volatile Profiler running;
+
+    /**
+     * Starts sampling every interval, only one profiler can be running at the time.
+     *
+     * @throws IllegalStateException when a profiler is already running
+     */
+    public static Profiler start(long interval, TimeUnit unit) {
+        if (interval <= 0L) {
+            throw new IllegalArgumentException(str("interval must be > 0, got: %d", interval));
+        }
+        synchronized (LOCK) {
+            if (running != null) {
+                throw new IllegalStateException("a profiler is already running");
+            }
+            Profiler profiler = new Profiler(unit.toNanos(interval));
+            running = profiler;
+            Instrumentation.update();
+            profiler.sampler.start();
+            return profiler;
+        }
+    }
+
+    static boolean isRunning() {
+        return running != null;
+    }
+
+    /**
+     * @return true when fn was pushed, and must be popped
+     */
+    static boolean push(AFn<?> fn) {
+        if (running == null) {
+            return false;
+        }
+        Frames frames = FRAMES.get();
+        if (frames == null) {
+            FRAMES.set(frames = new Frames(Thread.currentThread()));
+            ALL_FRAMES.put(frames, Boolean.TRUE);
+        }
+        frames.push(fn);
+        return true;
+    }
+
+    /**
+     * Pops the fn pushed last, forgetting the thread's stack once empty, so
+     * that threads not within fns are not retained.
+     */
+    static void pop() {
+        Frames frames = FRAMES.get();
+        if (frames.pop() == 0) {
+            ALL_FRAMES.remove(frames);
+            FRAMES.remove();
+        }
+    }
+
+    /**
+     * @return number of threads whose call stacks are known to the profilers
+     */
+    static int threadCount() {
+        return ALL_FRAMES.size();
+    }
+
+    /**
+     * Call stack of a thread, written only by it, and read by the sampler.
+     */
+    private static final class Frames {
+        private final Thread thread;
+        private volatile AFn<?>[] fns;
+        private volatile int depth;
+
+        Frames(Thread thread) {
+            this.thread = thread;
+            fns = new AFn<?>[16];
+        }
+
+        void push(AFn<?> fn) {
+            AFn<?>[] current = fns;
+            int d = depth;
+            if (d == current.length) {
+                fns = current = Arrays.copyOf(current, d * 2);
+            }
+            current[d] = fn;
+            depth = d + 1;
+        }
+
+        int pop() {
+            int d = depth - 1;
+            fns[d] = null;
+            depth = d;
+            return d;
+        }
+
+        String sample(StringBuilder sb) {
+            int d = depth;
+            AFn<?>[] current = fns;
+            sb.setLength(0);
+            for (int i = 0, limit = Math.min(d, current.length); i < limit; i++) {
+                AFn<?> fn = current[i];
+                if (fn != null) {
+                    if (sb.length() > 0) {
+                        sb.append(';');
+                    }
+                    sb.append(frameName(fn));
+                }
+            }
+            return sb.isEmpty() ? null : sb.toString();
+        }
+    }
+
+    private static String frameName(AFn<?> fn) {
+        String name = AFn.ANONYMOUS_FN_NAME.equals(fn.name()) ? fn.uniqueId() : fn.name();
+        return name.replace(';', ':');
+    }
+
+    private final long intervalNanos;
+    private final Thread sampler;
+    private final HashMap<String, Long> counts;
+    private long samples;
+
+    private Profiler(long intervalNanos) {
+        this.intervalNanos = intervalNanos;
+        counts = new HashMap<>();
+        sampler = new Thread(this::sampleLoop, "fern-profiler");
+        sampler.setDaemon(true);
+    }
+
+    private void sampleLoop() {
+        StringBuilder sb = new StringBuilder();
+        ArrayList<String> stacks = new ArrayList<>();
+        while (running == this) {
+            LockSupport.parkNanos(intervalNanos);
+            stacks.clear();
+            for (Frames frames : ALL_FRAMES.keySet()) {
+                Thread.State state = frames.thread.getState();
+                if (state == Thread.State.TERMINATED) {
+                    ALL_FRAMES.remove(frames);
+                } else if (state == Thread.State.RUNNABLE && frames.depth > 0) {
+                    String stack = frames.sample(sb);
+                    if (stack != null) {
+                        stacks.add(stack);
+                    }
+                }
+            }
+            synchronized (counts) {
+                samples++;
+                for (String stack : stacks) {
+                    counts.merge(stack, 1L, Long::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops sampling, the counts collected so far are kept.
+     */
+    public void stop() throws InterruptedException {
+        synchronized (LOCK) {
+            if (running == this) {
+                running = null;
+                Instrumentation.update();
+            }
+        }
+        sampler.join();
+        ALL_FRAMES.keySet().removeIf(frames -> frames.thread.getState() == Thread.State.TERMINATED);
+    }
+
+    /**
+     * @return number of sampling rounds done
+     */
+    public long samples() {
+        synchronized (counts) {
+            return samples;
+        }
+    }
+
+    /**
+     * @return copy of the counts, by collapsed stack
+     */
+    public Map<String, Long> collapsed() {
+        synchronized (counts) {
+            return new HashMap<>(counts);
+        }
+    }
+
+    /**
+     * Writes the counts in collapsed stack format, one stack per line, the most
+     * sampled first.
+     */
+    public void writeCollapsed(Path file) throws IOException {
+        ArrayList<Map.Entry<String, Long>> entries = new ArrayList<>(collapsed().entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> entry : entries) {
+                writer.write(entry.getKey());
+                writer.write(' ');
+                writer.write(Long.toString(entry.getValue()));
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.fern.lang;
+
+import static com.fern.util.Util.str;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Coordinated, synchronous reference, changed only within a transaction
+ * ({@linkplain #dosync(IFn, Object...)}) together with other refs.
+ * <p>
+ * Transactions use multi-version concurrency control. Each commit is stamped
+ * with a point of a global clock, and each ref keeps a bounded history of
+ * (value, commit point) versions. A transaction reads the newest versions not
+ * newer than the point at which it started, so it sees a consistent snapshot
+ * without blocking writers. At commit, the refs written are locked in a global
+ * order, and if any of them was committed by someone else since the
+ * transaction started, the transaction retries (first committer wins).
+ * <p>
+ * Commuted refs never cause a retry: the commuting fns are re-applied to the
+ * latest value at commit time. When a read finds no version old enough, the
+ * ref's history grows (up to maxHistory) and the transaction retries.
+ * <p>
+ * Transaction bodies may run several times, and must not catch the internal
+ * exception used to signal a retry (do not catch Throwable/RuntimeException).
+ *
+ * @param <T> type of the value held
+ */
+public final class Ref<T> extends ARef<T> {
+    public static final int DEFAULT_MAX_HISTORY = 10;
+    public static final int RETRY_LIMIT = 10_000;
+
+    private static final AtomicLong CLOCK = new AtomicLong();
+    private static final AtomicLong REF_ID = new AtomicLong();
+    private static final LongAdder COMMITS = new LongAdder();
+    private static final LongAdder RETRIES = new LongAdder();
+    private static final ThreadLocal<Txn> RUNNING = new ThreadLocal<>();
+
+    public static <T> Ref<T> neu(T initVal) {
+        return new Ref<>(initVal, null, DEFAULT_MAX_HISTORY);
+    }
+
+    public static <T> Ref<T> neu(T initVal, IPredicate validator, int maxHistory) {
+        return new Ref<>(initVal, validator, maxHistory);
+    }
+
+    /**
+     * Runs body in a transaction, retrying it until it commits. A dosync within
+     * a running transaction joins it.
+     *
+     * @return the result of the body of the transaction that committed
+     * @throws IllegalStateException when RETRY_LIMIT is reached
+     */
+    public static <RT> RT dosync(IFn<RT> body, Object... args) {
+        if (RUNNING.get() != null) {
+            return body.invoke(args);
+        }
+        Txn txn = new Txn();
+        RUNNING.set(txn);
+        try {
+            for (int attempt = 0; attempt < RETRY_LIMIT; attempt++) {
+                txn.begin();
+                try {
+                    RT result = body.invoke(args);
+                    if (txn.commit()) {
+                        COMMITS.increment();
+                        txn.notifyWatches();
+                        return result;
+                    }
+                } catch (Retry retry) {
+                    // fall through to retry
+                }
+                RETRIES.increment();
+                Atom.backoff(attempt);
+            }
+        } finally {
+            RUNNING.remove();
+        }
+        throw new IllegalStateException(str("transaction did not commit after %d retries", RETRY_LIMIT));
+    }
+
+    /**
+     * @return number of transactions committed since the last resetStats
+     */
+    public static long commits() {
+        return COMMITS.sum();
+    }
+
+    /**
+     * @return number of transaction retries since the last resetStats
+     */
+    public static long retries() {
+        return RETRIES.sum();
+    }
+
+    public static void resetStats() {
+        COMMITS.reset();
+        RETRIES.reset();
+    }
+
+    private static final class Retry extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private static final Retry INSTANCE = new Retry();
+
+        private Retry() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class Version {
+        private final Object val;
+        private final long point;
+        private Version prior;
+
+        Version(Object val, long point, Version prior) {
+            this.val = val;
+            this.point = point;
+            this.prior = prior;
+        }
+    }
+
+    private record Commute(IFn<?> fn, Object[] args) {
+    }
+
+    private static Object apply(IFn<?> fn, Object val, Object[] args) {
+        int argsLen = args != null ? args.length : 0;
+        Object[] fnArgs = new Object[1 + argsLen];
+        fnArgs[0] = val;
+        if (argsLen > 0) {
+            System.arraycopy(args, 0, fnArgs, 1, argsLen);
+        }
+        return fn.invoke(fnArgs);
+    }
+
+    private static final class Txn {
+        private final HashMap<Ref<?>, Object> vals;
+        private final HashMap<Ref<?>, Object> oldVals;
+        private final HashMap<Ref<?>, ArrayList<Commute>> commutes;
+        private final ArrayList<Ref<?>> sets;
+        private long readPoint;
+
+        Txn() {
+            vals = new HashMap<>();
+            oldVals = new HashMap<>();
+            commutes = new HashMap<>();
+            sets = new ArrayList<>();
+        }
+
+        void begin() {
+            vals.clear();
+            oldVals.clear();
+            commutes.clear();
+            sets.clear();
+            readPoint = CLOCK.get();
+        }
+
+        void write(Ref<?> ref, Object val) {
+            if (commutes.containsKey(ref)) {
+                throw new IllegalStateException("cannot set after commute");
+            }
+            if (false == vals.containsKey(ref) || false == sets.contains(ref)) {
+                if (ref.head.point > readPoint) {
+                    throw Retry.INSTANCE; // committed by someone else, bound to fail
+                }
+                if (false == sets.contains(ref)) {
+                    sets.add(ref);
+                }
+            }
+            vals.put(ref, val);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        boolean commit() {
+            if (sets.isEmpty() && commutes.isEmpty()) {
+                return true; // read only
+            }
+            ArrayList<Ref<?>> locked = new ArrayList<>(sets);
+            for (Ref<?> ref : commutes.keySet()) {
+                if (false == sets.contains(ref)) {
+                    locked.add(ref);
+                }
+            }
+            locked.sort((r1, r2) -> Long.compare(r1.id, r2.id));
+            int lockedCount = 0;
+            try {
+                for (Ref<?> ref : locked) {
+                    ref.lock.writeLock().lock();
+                    lockedCount++;
+                }
+                for (Ref<?> ref : sets) {
+                    if (ref.head.point > readPoint) {
+                        return false;
+                    }
+                }
+                for (Map.Entry<Ref<?>, ArrayList<Commute>> entry : commutes.entrySet()) {
+                    if (sets.contains(entry.getKey())) {
+                        continue; // in-transaction value has the commutes applied, read point validated
+                    }
+                    Object val = entry.getKey().head.val;
+                    for (Commute commute : entry.getValue()) {
+                        val = apply(commute.fn(), val, commute.args());
+                    }
+                    vals.put(entry.getKey(), val);
+                }
+                for (Ref ref : locked) {
+                    ref.validate(vals.get(ref));
+                }
+                long commitPoint = CLOCK.incrementAndGet();
+                for (Ref<?> ref : locked) {
+                    oldVals.put(ref, ref.head.val);
+                    ref.install(vals.get(ref), commitPoint);
+                }
+                return true;
+            } finally {
+                for (int i = 0; i < lockedCount; i++) {
+                    locked.get(i).lock.writeLock().unlock();
+                }
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        void notifyWatches() {
+            for (Map.Entry<Ref<?>, Object> entry : oldVals.entrySet()) {
+                Ref ref = entry.getKey();
+                ref.notifyWatches(entry.getValue(), vals.get(ref));
+            }
+        }
+    }
+
+    private final long id;
+    private final int maxHistory;
+    private final AtomicInteger historyLimit;
+    private final AtomicInteger faults;
+    private final ReentrantReadWriteLock lock;
+    private volatile Version head;
+
+    private Ref(T initVal, IPredicate validator, int maxHistory) {
+        super(validator);
+        if (maxHistory < 0) {
+            throw new IllegalArgumentException(str("maxHistory must be >= 0, got: %d", maxHistory));
+        }
+        validate(initVal);
+        this.id = REF_ID.getAndIncrement();
+        this.maxHistory = maxHistory;
+        historyLimit = new AtomicInteger();
+        faults = new AtomicInteger();
+        lock = new ReentrantReadWriteLock();
+        head = new Version(initVal, 0L, null);
+    }
+
+    /**
+     * @return within a transaction, the in-transaction value, otherwise the latest committed
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T deref() {
+        Txn txn = RUNNING.get();
+        if (txn == null) {
+            return (T) head.val;
+        }
+        if (txn.vals.containsKey(this)) {
+            return (T) txn.vals.get(this);
+        }
+        lock.readLock().lock();
+        try {
+            for (Version v = head; v != null; v = v.prior) {
+                if (v.point <= txn.readPoint) {
+                    return (T) v.val;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        faults.incrementAndGet();
+        historyLimit.accumulateAndGet(1, (limit, one) -> Math.min(limit + one, maxHistory));
+        throw Retry.INSTANCE;
+    }
+
+    /**
+     * Sets the in-transaction value to fn(in-transaction value, args...).
+     *
+     * @return the new in-transaction value
+     */
+    @SuppressWarnings("unchecked")
+    public T alter(IFn<?> fn, Object... args) {
+        Txn txn = running();
+        T newVal = (T) apply(fn, deref(), args);
+        txn.write(this, newVal);
+        return newVal;
+    }
+
+    /**
+     * Sets the in-transaction value.
+     *
+     * @return newVal
+     */
+    public T set(T newVal) {
+        running().write(this, newVal);
+        return newVal;
+    }
+
+    /**
+     * Protects the ref from modification by other transactions, as if it was
+     * set to its own value, preventing write skew.
+     *
+     * @return the in-transaction value
+     */
+    public T ensure() {
+        Txn txn = running();
+        T val = deref();
+        txn.write(this, val);
+        return val;
+    }
+
+    /**
+     * Sets the in-transaction value to fn(in-transaction value, args...), and at
+     * commit time to fn(latest committed value, args...). The fn must be
+     * commutative, and in exchange, the transaction never retries because of it.
+     *
+     * @return the new in-transaction value
+     */
+    @SuppressWarnings("unchecked")
+    public T commute(IFn<?> fn, Object... args) {
+        Txn txn = running();
+        T newVal = (T) apply(fn, deref(), args);
+        txn.vals.put(this, newVal);
+        txn.commutes.computeIfAbsent(this, ref -> new ArrayList<>()).add(new Commute(fn, args));
+        return newVal;
+    }
+
+    /**
+     * @return number of versions currently held, the latest included
+     */
+    public int historyCount() {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (Version v = head; v != null; v = v.prior) {
+                count++;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of times a transaction found no version old enough to read
+     */
+    public int faults() {
+        return faults.get();
+    }
+
+    private static Txn running() {
+        Txn txn = RUNNING.get();
+        if (txn == null) {
+            throw new IllegalStateException("no transaction running, use dosync");
+        }
+        return txn;
+    }
+
+    // write lock is held
+    private void install(Object val, long commitPoint) {
+        head = new Version(val, commitPoint, head);
+        Version v = head;
+        for (int kept = 0; kept < historyLimit.get() && v.prior != null; kept++) {
+            v = v.prior;
+        }
+        v.prior = null;
+    }
+
+    @Override
+    public String toString() {
+        return "Ref: " + head.val;
+    }
+}
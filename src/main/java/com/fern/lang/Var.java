@@ -0,0 +1,158 @@
+package com.fern.lang;
+
+import static com.fern.util.Util.str;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.invoke.SwitchPoint;
+
+/**
+ * Stable, named handle to a fn defined in a namespace ({@linkplain NS#def(String, String, IFn)}).
+ * Redefinition atomically swaps the root fn, callers holding the var see the
+ * new definition on their next invocation.
+ * <p>
+ * Hot callers should bind through {@linkplain #invoker()}, kept in a static
+ * final field. The invoker is the dynamic invoker of a call site whose target
+ * is the current root, bound as a constant and guarded by a switch point. In
+ * steady state the JIT inlines the root through it, redefinition invalidates
+ * the switch point (deoptimising the dependent code once) and relinks the site.
+ *
+ * @param <RT> return type of the fn
+ */
+public final class Var<RT> implements IFn<RT> {
+    private static final MethodType INVOKE_TYPE = MethodType.methodType(Object.class, Object[].class);
+    private static final MethodHandle INVOKE;
+    private static final MethodHandle INVOKE_ROOT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            INVOKE = lookup.findVirtual(Invocable.class, "invoke", INVOKE_TYPE);
+            INVOKE_ROOT = lookup.findVirtual(Var.class, "invokeRoot", INVOKE_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String ns;
+    private final String name;
+    private final MutableCallSite site;
+    private final MethodHandle invoker;
+    private volatile IFn<RT> root;
+    private volatile int version;
+    private SwitchPoint switchPoint;
+
+    Var(String ns, String name, IFn<RT> root) {
+        if (root == null) {
+            throw new NullPointerException("root");
+        }
+        this.ns = ns;
+        this.name = name;
+        this.root = root;
+        site = new MutableCallSite(INVOKE_TYPE);
+        invoker = site.dynamicInvoker();
+        link();
+    }
+
+    // holds the monitor
+    private void link() {
+        switchPoint = new SwitchPoint();
+        MethodHandle target = MethodHandles.insertArguments(INVOKE, 0, root).asType(INVOKE_TYPE);
+        site.setTarget(switchPoint.guardWithTest(target, INVOKE_ROOT.bindTo(this)));
+        MutableCallSite.syncAll(new MutableCallSite[]{site});
+    }
+
+    private Object invokeRoot(Object[] args) {
+        return root.invoke(args);
+    }
+
+    /**
+     * Swaps the root, the previous one is returned.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized IFn<RT> bindRoot(IFn<?> newRoot) {
+        if (newRoot == null) {
+            throw new NullPointerException("root");
+        }
+        if (newRoot == this) {
+            throw new IllegalArgumentException(str("var %s/%s cannot be its own root", ns, name));
+        }
+        IFn<RT> oldRoot = root;
+        // invalidate before swapping, a caller that falls back to invokeRoot and
+        // reads the new root must not then find the site still linked to the old one
+        SwitchPoint.invalidateAll(new SwitchPoint[]{switchPoint});
+        root = (IFn<RT>) newRoot;
+        version++;
+        link();
+        return oldRoot;
+    }
+
+    public String ns() {
+        return ns;
+    }
+
+    public IFn<RT> root() {
+        return root;
+    }
+
+    /**
+     * @return number of redefinitions, starting at 0
+     */
+    public int version() {
+        return version;
+    }
+
+    /**
+     * @return (Object[])Object method handle invoking the current root
+     */
+    public MethodHandle invoker() {
+        return invoker;
+    }
+
+    @Override
+    public RT invoke(Object... args) {
+        return root.invoke(args);
+    }
+
+    @Override
+    public void run() {
+        root.run();
+    }
+
+    @Override
+    public RT call() throws Exception {
+        return root.call();
+    }
+
+    @Override
+    public String uniqueId() {
+        return root.uniqueId();
+    }
+
+    @Override
+    public Class<RT> returnType() {
+        return root.returnType();
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String doc() {
+        return root.doc();
+    }
+
+    @Override
+    public Args argDefs() {
+        return root.argDefs();
+    }
+
+    @Override
+    public String toString() {
+        return "#'" + ns + NS.SEP + name;
+    }
+}
@@ -4,6 +4,7 @@ import com.fern.util.Util;
 
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.Spliterator;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
@@ -12,6 +13,9 @@ abstract class ABaseHashed extends ABaseSeq implements IHashed {
     static final int NUM_BUCKETS = 17;
     static final int BUCKET_SIZE = 23;
     static final int BUCKET_GROWTH_FACTOR = 2;
+    static final int UNCHANGED = 0;
+    static final int REPLACED = 1;
+    static final int ADDED = 2;
 
     interface IHashedEntry extends ISeq, Comparable<IHashedEntry> {
         @Override
@@ -123,6 +127,14 @@ abstract class ABaseHashed extends ABaseSeq implements IHashed {
         return items().iterator();
     }
 
+    /**
+     * Splits over the items snapshot, which is array backed and immutable.
+     */
+    @Override
+    public Spliterator<Object> spliterator() {
+        return items().spliterator();
+    }
+
     @Override
     public ISeq sorted() {
         return sorted(DEFAULT_COMPARATOR);
@@ -142,27 +154,59 @@ abstract class ABaseHashed extends ABaseSeq implements IHashed {
         IHashedEntry[] bucket;
         bucketsTopLock.lock();
         try {
-            bucket = buckets[bucketIdx];
-            if (bucket == null) {
-                buckets[bucketIdx] = (bucket = new IHashedEntry[BUCKET_SIZE]);
-            } else if (bucket[bucket.length - 1] != null) {
-                IHashedEntry[] newBucket = new IHashedEntry[bucket.length * BUCKET_GROWTH_FACTOR];
-                System.arraycopy(bucket, 0, newBucket, 0, bucket.length);
-                buckets[bucketIdx] = (bucket = newBucket);
-            }
+            bucket = bucketWithRoom(bucketIdx);
             bucketLock[bucketIdx].lock();
         } finally {
             bucketsTopLock.unlock();
         }
 
         try {
-            storeInBucket(bucket, key, val);
+            int outcome = storeInBucket(bucket, key, val);
+            if (outcome == ADDED) {
+                size.incrementAndGet();
+            }
+            if (outcome != UNCHANGED) {
+                invalidateSnapshots(outcome == ADDED);
+            }
         } finally {
             bucketLock[bucketIdx].unlock();
         }
     }
 
-    abstract void storeInBucket(IHashedEntry[] bucket, Object key, Object val);
+    /**
+     * Single-thread-owned variant of store, used while the instance is not yet
+     * published (constructors and transients). No locks are taken, the size is
+     * updated with plain access and snapshots are not invalidated, as none can
+     * have been taken yet.
+     */
+    void storeUnpublished(Object key, Object val) {
+        IHashedEntry[] bucket = bucketWithRoom(bucketIdx(key));
+        if (storeInBucket(bucket, key, val) == ADDED) {
+            size.setPlain(size.getPlain() + 1);
+        }
+    }
+
+    private IHashedEntry[] bucketWithRoom(int bucketIdx) {
+        IHashedEntry[] bucket = buckets[bucketIdx];
+        if (bucket == null) {
+            buckets[bucketIdx] = (bucket = new IHashedEntry[BUCKET_SIZE]);
+        } else if (bucket[bucket.length - 1] != null) {
+            IHashedEntry[] newBucket = new IHashedEntry[bucket.length * BUCKET_GROWTH_FACTOR];
+            System.arraycopy(bucket, 0, newBucket, 0, bucket.length);
+            buckets[bucketIdx] = (bucket = newBucket);
+        }
+        return bucket;
+    }
+
+    void invalidateSnapshots(boolean added) {
+        snapshotEntries.set(null);
+        quickToArray.set(null);
+    }
+
+    /**
+     * @return one of ADDED, REPLACED, UNCHANGED
+     */
+    abstract int storeInBucket(IHashedEntry[] bucket, Object key, Object val);
 
     @Override
     public String toString() {
@@ -193,12 +237,16 @@ abstract class ABaseHashed extends ABaseSeq implements IHashed {
         return false;
     }
 
+    /**
+     * @return sum of the hash codes of the entries, independent of their order
+     * and equal to that of sorted maps/sets with the same entries, as they are equal
+     */
     @Override
     public int hashCode() {
-        int result = 1;
+        int result = 0;
         ISeq entries = items();
         for (int i = 0; i < entries.size(); i++) {
-            result = 31 * result + entries.nth(i).hashCode();
+            result += entries.nth(i).hashCode();
         }
         return result;
     }
@@ -235,8 +283,15 @@ abstract class ABaseHashed extends ABaseSeq implements IHashed {
     ISeq accessSnapshot(Collect target, AtomicReference<ISeq> current) {
         ISeq snapshot = current.get();
         if (snapshot == null) {
+            HashedSnapshotRebuildEvent event = HashedSnapshotRebuildEvent.enabled() ? new HashedSnapshotRebuildEvent() : null;
+            long lockWaitStart = 0L;
+            if (event != null) {
+                event.begin();
+                lockWaitStart = System.nanoTime();
+            }
             bucketsTopLock.lock();
             acquireAllBucketLocks();
+            long lockWait = event != null ? System.nanoTime() - lockWaitStart : 0L;
             try {
                 snapshot = target.asList(buckets, size.get());
             } finally {
@@ -244,6 +299,15 @@ abstract class ABaseHashed extends ABaseSeq implements IHashed {
                 bucketsTopLock.unlock();
             }
             current.set(snapshot);
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.target = target.name();
+                    event.size = snapshot.size();
+                    event.lockWait = lockWait;
+                    event.commit();
+                }
+            }
         }
         return snapshot;
     }
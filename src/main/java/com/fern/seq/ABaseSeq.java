@@ -2,9 +2,15 @@ package com.fern.seq;
 
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
 class ABaseSeq implements ISeq {
-    static final ISeq NIL = new ABaseSeq() { /* defaults */
+    static final ISeq NIL = new ABaseSeq() {
+        @Override
+        public Spliterator<Object> spliterator() {
+            return Spliterators.emptySpliterator();
+        }
     };
     static final String TO_STR_SEP = ", ";
     static final Comparator<Object> DEFAULT_COMPARATOR = (o1, o2) -> {
@@ -0,0 +1,445 @@
+package com.fern.seq;
+
+import static com.fern.util.Util.str;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Persistent left-leaning red-black tree. Nodes are immutable, updates copy the
+ * path from the root to the updated node (O(log n)) and share everything else.
+ * Each node knows the size of its subtree, so that rank, nth and the size of a
+ * subrange view are O(log n) as well.
+ * <p>
+ * An instance may be a view, bounded by [lo, hi), over a tree shared with the
+ * instance it was taken from.
+ */
+abstract class ABaseSorted extends ABaseSeq implements ISorted {
+    @SuppressWarnings("unchecked")
+    static final Comparator<Object> NATURAL_ORDER = (o1, o2) -> ((Comparable<Object>) o1).compareTo(o2);
+    private static final boolean RED = true;
+    private static final boolean BLACK = false;
+
+    static final class Node {
+        final Object key;
+        final Object val;
+        final Node left;
+        final Node right;
+        final boolean color;
+        final int size;
+
+        Node(Object key, Object val, Node left, Node right, boolean color) {
+            this.key = key;
+            this.val = val;
+            this.left = left;
+            this.right = right;
+            this.color = color;
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    final Comparator<Object> comparator;
+    final Node root;
+    private final Object lo;
+    private final Object hi;
+    private final int loRank;
+    private final int size;
+    private final AtomicReference<ISeq> snapshotEntries;
+    private final AtomicReference<ISeq> snapshotKeys;
+    private final AtomicReference<ISeq> snapshotVals;
+
+    ABaseSorted(Comparator<Object> comparator, Node root, Object lo, Object hi) {
+        this.comparator = comparator;
+        this.root = root;
+        this.lo = lo;
+        this.hi = hi;
+        this.loRank = lo == null ? 0 : rank(lo);
+        int hiRank = hi == null ? size(root) : rank(hi);
+        this.size = Math.max(0, hiRank - loRank);
+        snapshotEntries = new AtomicReference<>();
+        snapshotKeys = new AtomicReference<>();
+        snapshotVals = new AtomicReference<>();
+    }
+
+    /**
+     * @return a new instance of the same kind, over root and bounded by [lo, hi)
+     */
+    abstract ABaseSorted with(Node root, Object lo, Object hi);
+
+    /**
+     * @return the entry representation of the node, as seen by items()
+     */
+    abstract ISeq entry(Node node);
+
+    // =================
+    // =    T R E E    =
+    // =================
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static boolean isRed(Node node) {
+        return node != null && node.color == RED;
+    }
+
+    private static Node rotateLeft(Node h) {
+        Node x = h.right;
+        return new Node(x.key, x.val, new Node(h.key, h.val, h.left, x.left, RED), x.right, h.color);
+    }
+
+    private static Node rotateRight(Node h) {
+        Node x = h.left;
+        return new Node(x.key, x.val, x.left, new Node(h.key, h.val, x.right, h.right, RED), h.color);
+    }
+
+    private static Node blacken(Node h) {
+        return h.color == BLACK ? h : new Node(h.key, h.val, h.left, h.right, BLACK);
+    }
+
+    private static Node balance(Node h) {
+        if (isRed(h.right) && false == isRed(h.left)) {
+            h = rotateLeft(h);
+        }
+        if (isRed(h.left) && isRed(h.left.left)) {
+            h = rotateRight(h);
+        }
+        if (isRed(h.left) && isRed(h.right)) {
+            h = new Node(h.key, h.val, blacken(h.left), blacken(h.right), RED);
+        }
+        return h;
+    }
+
+    private Node put(Node h, Object key, Object val) {
+        if (h == null) {
+            return new Node(key, val, null, null, RED);
+        }
+        int cmp = comparator.compare(key, h.key);
+        if (cmp < 0) {
+            Node left = put(h.left, key, val);
+            return left == h.left ? h : balance(new Node(h.key, h.val, left, h.right, h.color));
+        }
+        if (cmp > 0) {
+            Node right = put(h.right, key, val);
+            return right == h.right ? h : balance(new Node(h.key, h.val, h.left, right, h.color));
+        }
+        return h.val == val ? h : new Node(h.key, val, h.left, h.right, h.color);
+    }
+
+    /**
+     * @return root of a new tree containing (key, val), sharing all untouched nodes
+     */
+    Node insert(Node root, Object key, Object val) {
+        if (key == null) {
+            throw new NullPointerException("sorted keys cannot be null");
+        }
+        return blacken(put(root, key, val));
+    }
+
+    private Node find(Object key) {
+        Node node = root;
+        while (node != null) {
+            int cmp = comparator.compare(key, node.key);
+            if (cmp == 0) {
+                return node;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * @return number of keys in the whole tree strictly less than key
+     */
+    private int rank(Object key) {
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = comparator.compare(key, node.key);
+            if (cmp <= 0) {
+                node = node.left;
+            } else {
+                rank += 1 + size(node.left);
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    private Node select(int rank) {
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (rank < leftSize) {
+                node = node.left;
+            } else if (rank > leftSize) {
+                rank -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    private boolean inRange(Object key) {
+        return (lo == null || comparator.compare(key, lo) >= 0) && (hi == null || comparator.compare(key, hi) < 0);
+    }
+
+    // =====================
+    // =    S O R T E D    =
+    // =====================
+    @Override
+    public Comparator<Object> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public Object floor(Object key) {
+        int upTo = rank(key) + (find(key) != null ? 1 : 0);
+        int count = Math.min(upTo, loRank + size) - loRank;
+        return count > 0 ? select(loRank + count - 1).key : null;
+    }
+
+    @Override
+    public Object ceiling(Object key) {
+        int idx = Math.max(rank(key), loRank);
+        return idx < loRank + size ? select(idx).key : null;
+    }
+
+    @Override
+    public ISorted subrange(Object from, Object to) {
+        Object newLo = lo;
+        if (from != null && (lo == null || comparator.compare(from, lo) > 0)) {
+            newLo = from;
+        }
+        Object newHi = hi;
+        if (to != null && (hi == null || comparator.compare(to, hi) < 0)) {
+            newHi = to;
+        }
+        return with(root, newLo, newHi);
+    }
+
+    ISorted assocNode(Object key, Object val) {
+        if (key != null && false == inRange(key)) {
+            throw new IllegalArgumentException(str("key out of the view's range: %s", key));
+        }
+        Node newRoot = insert(root, key, val);
+        return newRoot == root ? this : with(newRoot, lo, hi);
+    }
+
+    // =====================
+    // =    H A S H E D    =
+    // =====================
+    @Override
+    public Object invoke(Object... args) {
+        if (args == null || args.length == 0 || args.length > 1) {
+            throw new IllegalArgumentException("only one arg is allowed, a key, to return its associated value");
+        }
+        return get(args[0]);
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (key == null || false == inRange(key)) {
+            return null;
+        }
+        Node node = find(key);
+        return node != null ? node.val : null;
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        return key != null && inRange(key) && find(key) != null;
+    }
+
+    @Override
+    public ISeq keys() {
+        return snapshot(snapshotKeys, node -> node.key);
+    }
+
+    @Override
+    public ISeq values() {
+        return snapshot(snapshotVals, node -> node.val);
+    }
+
+    @Override
+    public ISeq items() {
+        return snapshot(snapshotEntries, this::entry);
+    }
+
+    private interface Take {
+        Object from(Node node);
+    }
+
+    private ISeq snapshot(AtomicReference<ISeq> current, Take take) {
+        ISeq snapshot = current.get();
+        if (snapshot == null) {
+            Object[] collected = new Object[size];
+            Iterator<Node> it = nodes();
+            for (int i = 0; i < collected.length; i++) {
+                collected[i] = take.from(it.next());
+            }
+            current.compareAndSet(null, new List(collected));
+            snapshot = current.get();
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return in-order iterator over the nodes within [lo, hi)
+     */
+    Iterator<Node> nodes() {
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        while (node != null) {
+            if (lo != null && comparator.compare(node.key, lo) < 0) {
+                node = node.right;
+            } else {
+                path.push(node);
+                node = node.left;
+            }
+        }
+        return new Iterator<>() {
+            private int remaining = size;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public Node next() {
+                if (false == hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Node next = path.pop();
+                for (Node n = next.right; n != null; n = n.left) {
+                    path.push(n);
+                }
+                remaining--;
+                return next;
+            }
+        };
+    }
+
+    // ===============
+    // =    S E Q    =
+    // ===============
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Object first() {
+        return size == 0 ? null : entry(select(loRank));
+    }
+
+    @Override
+    public Object last() {
+        return size == 0 ? null : entry(select(loRank + size - 1));
+    }
+
+    @Override
+    public Object nth(int n) {
+        if (n >= 0 && n < size) {
+            return entry(select(loRank + n));
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    @Override
+    public ISeq rest() {
+        return items().rest();
+    }
+
+    @Override
+    public ISeq cone(Object e) {
+        return cons(e);
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        Iterator<Node> nodes = nodes();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return nodes.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return entry(nodes.next());
+            }
+        };
+    }
+
+    /**
+     * Splits over the items snapshot, which is array backed and immutable.
+     */
+    @Override
+    public Spliterator<Object> spliterator() {
+        return items().spliterator();
+    }
+
+    @Override
+    public ISeq sorted() {
+        return sorted(DEFAULT_COMPARATOR);
+    }
+
+    @Override
+    public ISeq sorted(Comparator<Object> comparator) {
+        return items().sorted(comparator);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(); // entries' toString use THR_SB
+        sb.append("{");
+        for (Object entry : this) {
+            sb.append(entry).append(TO_STR_SEP);
+        }
+        if (size > 0) {
+            sb.setLength(sb.length() - TO_STR_SEP.length());
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof IHashed that) {
+            if (size != that.size()) {
+                return false;
+            }
+            return items().sorted().equals(that.items().sorted());
+        }
+        return false;
+    }
+
+    /**
+     * @return sum of the hash codes of the entries, equal to that of hashed
+     * maps/sets with the same entries, as they are equal
+     */
+    @Override
+    public int hashCode() {
+        int result = 0;
+        for (Object entry : this) {
+            result += entry.hashCode();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,46 @@
+package com.fern.seq;
+
+import static com.fern.util.Util.str;
+
+abstract class ATransient<T extends ISeq> implements ITransient<T> {
+    private final Thread owner;
+    private boolean isPersistent;
+
+    ATransient() {
+        this(true);
+    }
+
+    /**
+     * @param owned when false, any thread may use the transient, which is left to
+     *              callers that already provide happens-before between uses, such
+     *              as the stream framework does for collector containers
+     */
+    ATransient(boolean owned) {
+        owner = owned ? Thread.currentThread() : null;
+        isPersistent = false;
+    }
+
+    @Override
+    public ITransient<T> assoc(Object key, Object val) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public final T persistent() {
+        checkEditable();
+        isPersistent = true;
+        return freeze();
+    }
+
+    abstract T freeze();
+
+    final void checkEditable() {
+        if (isPersistent) {
+            throw new IllegalStateException("transient used after persistent");
+        }
+        if (owner != null && Thread.currentThread() != owner) {
+            throw new IllegalStateException(str(
+                    "transient owned by %s, accessed by %s", owner.getName(), Thread.currentThread().getName()));
+        }
+    }
+}
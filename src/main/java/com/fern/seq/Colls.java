@@ -1,6 +1,10 @@
 package com.fern.seq;
 
 import java.util.Comparator;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public final class Colls {
     // ===============================
@@ -29,6 +33,95 @@ public final class Colls {
         return Map.neu(keyValPairs);
     }
 
+    public static ISorted newsortedset(Object... entries) {
+        return SortedSet.neu(entries);
+    }
+
+    public static ISorted newsortedmap(Object... keyValPairs) {
+        return SortedMap.neu(keyValPairs);
+    }
+
+    // ===========================
+    // =    T R A N S I E N T    =
+    // ===========================
+    public static ITransient<ISeq> transientList() {
+        return new List.Transient();
+    }
+
+    public static ITransient<ISeq> transientList(int capacity) {
+        return new List.Transient(capacity);
+    }
+
+    public static ITransient<IHashed> transientSet() {
+        return new Set.Transient();
+    }
+
+    public static ITransient<IHashed> transientMap() {
+        return new Map.Transient();
+    }
+
+    public static ITransient<ISorted> transientSortedSet(Comparator<Object> comparator) {
+        return new SortedSet.Transient(comparator);
+    }
+
+    public static ITransient<ISorted> transientSortedMap(Comparator<Object> comparator) {
+        return new SortedMap.Transient(comparator);
+    }
+
+    public static <T extends ISeq> T persistent(ITransient<T> trans) {
+        return trans.persistent();
+    }
+
+    // =====================
+    // =    S T R E A M    =
+    // =====================
+    public static Stream<Object> stream(ISeq seq) {
+        return StreamSupport.stream(seq.spliterator(), false);
+    }
+
+    public static Stream<Object> parallelStream(ISeq seq) {
+        return StreamSupport.stream(seq.spliterator(), true);
+    }
+
+    /**
+     * @return collector accumulating into transient lists, concatenated by the combiner
+     */
+    public static Collector<Object, ?, ISeq> toList() {
+        return Collector.of(
+                () -> new List.Transient(0, false),
+                List.Transient::conj,
+                List.Transient::conjAll,
+                List.Transient::persistent);
+    }
+
+    public static Collector<Object, ?, IHashed> toSet() {
+        return Collector.of(
+                () -> new Set.Transient(false),
+                Set.Transient::conj,
+                Set.Transient::conjAll,
+                Set.Transient::persistent,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * @return collector of (key, val) entries, such as those of a map's items
+     */
+    public static Collector<Object, ?, IHashed> toMap() {
+        return Collector.of(
+                () -> new Map.Transient(false),
+                Map.Transient::conj,
+                Map.Transient::conjAll,
+                Map.Transient::persistent);
+    }
+
+    public static <T> Collector<T, ?, IHashed> toMap(Function<? super T, ?> keyFn, Function<? super T, ?> valFn) {
+        return Collector.of(
+                () -> new Map.Transient(false),
+                (map, e) -> map.assoc(keyFn.apply(e), valFn.apply(e)),
+                Map.Transient::conjAll,
+                Map.Transient::persistent);
+    }
+
     // ===============================================
     // =    S E Q    A C C E S S    M E T H O D S    =
     // ===============================================
@@ -98,4 +191,67 @@ public final class Colls {
     public static IHashed assoc(IHashed hash, Object key) {
         return hash.assoc(key);
     }
+
+    // ================================
+    // =    S E T    A L G E B R A    =
+    // ================================
+    private static Object[] elements(IHashed hash) {
+        return (hash instanceof Map || hash instanceof SortedMap) ? hash.keys().toArray() : hash.toArray();
+    }
+
+    /**
+     * @return set of the elements (keys, for maps) found in any of the hashes
+     */
+    public static IHashed union(IHashed... hashes) {
+        ITransient<IHashed> result = transientSet();
+        for (IHashed hash : hashes) {
+            for (Object e : elements(hash)) {
+                result.conj(e);
+            }
+        }
+        return result.persistent();
+    }
+
+    /**
+     * @return set of the elements (keys, for maps) found in both hashes, probing the larger
+     */
+    public static IHashed intersection(IHashed a, IHashed b) {
+        IHashed smaller = a.size() <= b.size() ? a : b;
+        IHashed larger = smaller == a ? b : a;
+        ITransient<IHashed> result = transientSet();
+        for (Object e : elements(smaller)) {
+            if (larger.contains(e)) {
+                result.conj(e);
+            }
+        }
+        return result.persistent();
+    }
+
+    /**
+     * @return set of the elements (keys, for maps) of a not found in b
+     */
+    public static IHashed difference(IHashed a, IHashed b) {
+        ITransient<IHashed> result = transientSet();
+        for (Object e : elements(a)) {
+            if (false == b.contains(e)) {
+                result.conj(e);
+            }
+        }
+        return result.persistent();
+    }
+
+    // =====================================================
+    // =    S O R T E D    A C C E S S    M E T H O D S    =
+    // =====================================================
+    public static Object floor(ISorted sorted, Object key) {
+        return sorted.floor(key);
+    }
+
+    public static Object ceiling(ISorted sorted, Object key) {
+        return sorted.ceiling(key);
+    }
+
+    public static ISorted subrange(ISorted sorted, Object from, Object to) {
+        return sorted.subrange(from, to);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.fern.seq;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for the rebuild of a snapshot (keys, values or entries) of a hashed
+ * seq, its duration including the time waiting for the bucket locks.
+ */
+@Name("com.fern.HashedSnapshotRebuild")
+@Label("Hashed Snapshot Rebuild")
+@Category({"Fern", "Seq"})
+@Description("Rebuild of the keys, values or entries snapshot of a hashed seq")
+@StackTrace(false)
+final class HashedSnapshotRebuildEvent extends jdk.jfr.Event {
+    private static final HashedSnapshotRebuildEvent PROBE = new HashedSnapshotRebuildEvent();
+
+    static boolean enabled() {
+        return PROBE.isEnabled();
+    }
+
+    @Label("Target")
+    String target;
+
+    @Label("Size")
+    int size;
+
+    @Label("Lock Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long lockWait;
+}
@@ -1,6 +1,8 @@
 package com.fern.seq;
 
 import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import com.fern.lang.Invocable;
 
 public interface ISeq extends Iterable<Object>, Invocable<Object> {
@@ -21,4 +23,9 @@ public interface ISeq extends Iterable<Object>, Invocable<Object> {
   ISeq sorted(Comparator<Object> comparator);
   
   Object [] toArray();
+
+  @Override
+  default Spliterator<Object> spliterator() {
+    return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED | Spliterator.IMMUTABLE);
+  }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.fern.seq;
+
+import java.util.Comparator;
+
+/**
+ * Persistent hashed seq kept in key order. Entries are visited in ascending
+ * key order, assoc returns a new instance sharing structure with this one,
+ * and subrange returns a view over the same structure, without copying.
+ */
+public interface ISorted extends IHashed {
+    Comparator<Object> comparator();
+
+    /**
+     * @return greatest key less than or equal to key, or null
+     */
+    Object floor(Object key);
+
+    /**
+     * @return least key greater than or equal to key, or null
+     */
+    Object ceiling(Object key);
+
+    /**
+     * @return view of the keys in [from, to), a null bound means unbounded
+     */
+    ISorted subrange(Object from, Object to);
+
+    @Override
+    ISorted assoc(Object key, Object val);
+
+    @Override
+    ISorted assoc(Object key);
+}
@@ -0,0 +1,19 @@
+package com.fern.seq;
+
+/**
+ * Batch-mutable builder for a persistent seq. A transient is owned by the thread
+ * that created it, it is filled in without locking, and it is frozen into its
+ * persistent counterpart in O(1) by {@linkplain #persistent()}, after which it
+ * can no longer be used.
+ *
+ * @param <T> type of the persistent seq built
+ */
+public interface ITransient<T extends ISeq> {
+    int size();
+
+    ITransient<T> conj(Object e);
+
+    ITransient<T> assoc(Object key, Object val);
+
+    T persistent();
+}
@@ -3,6 +3,8 @@ package com.fern.seq;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.fern.util.Util.*;
@@ -16,6 +18,7 @@ public class List extends ABaseSeq {
         }
     };
     private static final int RESIZE_EXTRA_SLOTS = 15;
+    private static final int HASH_SEED = 11;
 
     public static List neu(Object... elements) {
         if (elements == null) {
@@ -38,6 +41,24 @@ public class List extends ABaseSeq {
     }
 
     public List(int start, int end, Object... elements) {
+        this(start, end, elements, hashCode(start, end, checkRange(start, end, elements)));
+    }
+
+    /**
+     * Used by {@link Transient}, which computes the hash code as elements are added.
+     */
+    List(int start, int end, Object[] elements, int hashCode) {
+        this.hashCode = hashCode;
+        this.size = end - start;
+        this.start = start;
+        this.end = end;
+        this.elements = elements;
+        this.quickStr = new AtomicReference<>();
+        this.quickRest = new AtomicReference<>();
+        this.quickToArray = new AtomicReference<>();
+    }
+
+    private static Object[] checkRange(int start, int end, Object[] elements) {
         if (elements == null) {
             throw new NullPointerException();
         }
@@ -46,25 +67,116 @@ public class List extends ABaseSeq {
                     "bad range [%d, %d], elements.length is %d",
                     start, end, elements.length));
         }
-        this.hashCode = hashCode(start, end, elements);
-        this.size = end - start;
-        this.start = start;
-        this.end = end;
-        this.elements = elements;
-        this.quickStr = new AtomicReference<>();
-        this.quickRest = new AtomicReference<>();
-        this.quickToArray = new AtomicReference<>();
+        return elements;
     }
 
     private static int hashCode(int start, int end, Object[] array) {
-        int result = 11;
+        int result = HASH_SEED;
         for (int i = start; i < end; i++) {
-            Object el = array[i];
-            result = 31 * result + (el == null ? 0 : el.hashCode());
+            result = hashStep(result, array[i]);
         }
         return result;
     }
 
+    private static int hashStep(int result, Object el) {
+        return 31 * result + (el == null ? 0 : el.hashCode());
+    }
+
+    /**
+     * @return hash code of the list (first), for entries equal to it
+     */
+    static int hashCodeOf(Object first) {
+        return hashStep(HASH_SEED, first);
+    }
+
+    /**
+     * @return hash code of the list (first, second), for entries equal to it
+     */
+    static int hashCodeOf(Object first, Object second) {
+        return hashStep(hashStep(HASH_SEED, first), second);
+    }
+
+    /**
+     * Appends elements to an array owned by a single thread, which then becomes
+     * the backing array of the persistent list, without copying.
+     */
+    static final class Transient extends ATransient<ISeq> {
+        private static final int INIT_CAPACITY = 16;
+        private static final int GROWTH_FACTOR = 2;
+
+        private Object[] elements;
+        private int size;
+        private int hashCode;
+
+        Transient() {
+            this(INIT_CAPACITY);
+        }
+
+        Transient(int capacity) {
+            this(capacity, true);
+        }
+
+        Transient(int capacity, boolean owned) {
+            super(owned);
+            elements = new Object[Math.max(capacity, 1)];
+            size = 0;
+            hashCode = HASH_SEED;
+        }
+
+        @Override
+        public int size() {
+            checkEditable();
+            return size;
+        }
+
+        @Override
+        public ITransient<ISeq> conj(Object e) {
+            checkEditable();
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, elements.length * GROWTH_FACTOR);
+            }
+            elements[size++] = e;
+            hashCode = hashStep(hashCode, e);
+            return this;
+        }
+
+        /**
+         * Appends the contents of other, combining both hash codes arithmetically.
+         */
+        Transient conjAll(Transient other) {
+            checkEditable();
+            other.checkEditable();
+            if (size + other.size > elements.length) {
+                elements = Arrays.copyOf(elements, Math.max(size + other.size, elements.length * GROWTH_FACTOR));
+            }
+            System.arraycopy(other.elements, 0, elements, size, other.size);
+            int shift = pow31(other.size);
+            hashCode = hashCode * shift + other.hashCode - HASH_SEED * shift;
+            size += other.size;
+            return this;
+        }
+
+        private static int pow31(int exp) {
+            int result = 1;
+            int base = 31;
+            while (exp > 0) {
+                if ((exp & 1) == 1) {
+                    result *= base;
+                }
+                base *= base;
+                exp >>= 1;
+            }
+            return result;
+        }
+
+        @Override
+        ISeq freeze() {
+            ISeq list = new List(0, size, elements, hashCode);
+            elements = null;
+            return list;
+        }
+    }
+
     /**
      * Takes zero or one parameter.
      * <p>
@@ -259,6 +371,14 @@ public class List extends ABaseSeq {
         };
     }
 
+    /**
+     * Splits evenly over the backing array, without copying it.
+     */
+    @Override
+    public Spliterator<Object> spliterator() {
+        return Spliterators.spliterator(elements, start, end, Spliterator.ORDERED | Spliterator.IMMUTABLE);
+    }
+
     @Override
     public ISeq sorted() {
         return sorted(DEFAULT_COMPARATOR);
@@ -59,11 +59,7 @@ public class Map extends ABaseHashed {
 
         @Override
         public int hashCode() {
-            int seed = 31;
-            int result = 17;
-            result = result * seed + (null != key ? key.hashCode() : 0);
-            result = result * seed + (null != value ? value.hashCode() : 0);
-            return result;
+            return List.hashCodeOf(key, value);
         }
 
         @Override
@@ -92,6 +88,62 @@ public class Map extends ABaseHashed {
         }
     }
 
+    /**
+     * Fills in a map that has not been published yet, skipping locks and
+     * snapshot invalidation. Freezing hands out the map itself.
+     */
+    static final class Transient extends ATransient<IHashed> {
+        private Map map;
+
+        Transient() {
+            this(true);
+        }
+
+        Transient(boolean owned) {
+            super(owned);
+            map = new Map();
+        }
+
+        @Override
+        public int size() {
+            checkEditable();
+            return map.size.getPlain();
+        }
+
+        @Override
+        public ITransient<IHashed> assoc(Object key, Object val) {
+            checkEditable();
+            map.storeUnpublished(key, val);
+            return this;
+        }
+
+        @Override
+        public ITransient<IHashed> conj(Object e) {
+            if (e instanceof ISeq entry) {
+                if (entry.size() == 2) {
+                    return assoc(entry.first(), entry.last());
+                }
+            }
+            throw new IllegalArgumentException(str("expected |ISeq| == 2, got: %s", e));
+        }
+
+        Transient conjAll(Transient other) {
+            checkEditable();
+            other.checkEditable();
+            for (Object entry : other.map.items()) {
+                conj(entry);
+            }
+            return this;
+        }
+
+        @Override
+        IHashed freeze() {
+            IHashed frozen = map;
+            map = null;
+            return frozen;
+        }
+    }
+
     private final AtomicReference<ISeq> snapshotKeys;
     private final AtomicReference<ISeq> snapshotVals;
 
@@ -102,26 +154,29 @@ public class Map extends ABaseHashed {
         snapshotKeys = new AtomicReference<>();
         snapshotVals = new AtomicReference<>();
         for (int pairIdx = 0; pairIdx < keyValPairs.length; pairIdx += 2) {
-            store(keyValPairs[pairIdx], keyValPairs[pairIdx + 1]);
+            storeUnpublished(keyValPairs[pairIdx], keyValPairs[pairIdx + 1]);
         }
     }
 
     @Override
-    void storeInBucket(IHashedEntry[] bucket, Object key, Object val) {
+    int storeInBucket(IHashedEntry[] bucket, Object key, Object val) {
         for (int i = 0; i < bucket.length; i++) {
             boolean newEntry = (bucket[i] == null);
             if (newEntry || bucket[i].first().equals(key)) {
                 bucket[i] = new Entry(key, val);
-                if (newEntry) {
-                    size.incrementAndGet();
-                    snapshotKeys.set(null);
-                }
-                snapshotVals.set(null);
-                snapshotEntries.set(null);
-                quickToArray.set(null);
-                break;
+                return newEntry ? ADDED : REPLACED;
             }
         }
+        return UNCHANGED;
+    }
+
+    @Override
+    void invalidateSnapshots(boolean added) {
+        if (added) {
+            snapshotKeys.set(null);
+        }
+        snapshotVals.set(null);
+        super.invalidateSnapshots(added);
     }
 
     @Override
@@ -53,7 +53,7 @@ public class Set extends ABaseHashed {
 
         @Override
         public int hashCode() {
-            return null != key ? key.hashCode() : 0;
+            return List.hashCodeOf(key);
         }
 
         @Override
@@ -78,25 +78,69 @@ public class Set extends ABaseHashed {
         }
     }
 
+    /**
+     * Fills in a set that has not been published yet, skipping locks and
+     * snapshot invalidation. Freezing hands out the set itself.
+     */
+    static final class Transient extends ATransient<IHashed> {
+        private Set set;
+
+        Transient() {
+            this(true);
+        }
+
+        Transient(boolean owned) {
+            super(owned);
+            set = new Set();
+        }
+
+        @Override
+        public int size() {
+            checkEditable();
+            return set.size.getPlain();
+        }
+
+        @Override
+        public ITransient<IHashed> conj(Object e) {
+            checkEditable();
+            set.storeUnpublished(e, null);
+            return this;
+        }
+
+        Transient conjAll(Transient other) {
+            checkEditable();
+            other.checkEditable();
+            for (Object e : other.set.toArray()) {
+                conj(e);
+            }
+            return this;
+        }
+
+        @Override
+        IHashed freeze() {
+            IHashed frozen = set;
+            set = null;
+            return frozen;
+        }
+    }
+
     private Set(Object... entries) {
         for (int i = 0; i < entries.length; i++) {
-            store(entries[i], null);
+            storeUnpublished(entries[i], null);
         }
     }
 
     @Override
-    void storeInBucket(IHashedEntry[] bucket, Object key, Object val) {
+    int storeInBucket(IHashedEntry[] bucket, Object key, Object val) {
         for (int i = 0; i < bucket.length; i++) {
             if (bucket[i] == null) {
                 bucket[i] = new Entry(key);
-                size.incrementAndGet();
-                snapshotEntries.set(null);
-                quickToArray.set(null);
-                break;
+                return ADDED;
             } else if (bucket[i].first().equals(key)) {
                 break;
             }
         }
+        return UNCHANGED;
     }
 
     @Override
@@ -0,0 +1,117 @@
+package com.fern.seq;
+
+import static com.fern.util.Util.str;
+
+import java.util.Comparator;
+
+public class SortedMap extends ABaseSorted {
+
+    public static ISorted neu(Object... keyValPairs) {
+        return neu(NATURAL_ORDER, keyValPairs);
+    }
+
+    public static ISorted neu(Comparator<Object> comparator, Object... keyValPairs) {
+        if (comparator == null || keyValPairs == null) {
+            throw new NullPointerException();
+        }
+        if (keyValPairs.length % 2 != 0) {
+            throw new IllegalArgumentException("even number of args required: (key, val)*");
+        }
+        SortedMap empty = new SortedMap(comparator, null, null, null);
+        Node root = null;
+        for (int pairIdx = 0; pairIdx < keyValPairs.length; pairIdx += 2) {
+            root = empty.insert(root, keyValPairs[pairIdx], keyValPairs[pairIdx + 1]);
+        }
+        return root == null ? empty : new SortedMap(comparator, root, null, null);
+    }
+
+    private SortedMap(Comparator<Object> comparator, Node root, Object lo, Object hi) {
+        super(comparator, root, lo, hi);
+    }
+
+    /**
+     * Grows a tree that has not been published yet, skipping the intermediate
+     * instances. Freezing wraps the tree.
+     */
+    static final class Transient extends ATransient<ISorted> {
+        private final SortedMap empty;
+        private Node root;
+
+        Transient(Comparator<Object> comparator) {
+            if (comparator == null) {
+                throw new NullPointerException();
+            }
+            empty = new SortedMap(comparator, null, null, null);
+        }
+
+        @Override
+        public int size() {
+            checkEditable();
+            return root == null ? 0 : root.size;
+        }
+
+        @Override
+        public ITransient<ISorted> assoc(Object key, Object val) {
+            checkEditable();
+            root = empty.insert(root, key, val);
+            return this;
+        }
+
+        @Override
+        public ITransient<ISorted> conj(Object e) {
+            if (e instanceof ISeq entry) {
+                if (entry.size() == 2) {
+                    return assoc(entry.first(), entry.last());
+                }
+            }
+            throw new IllegalArgumentException(str("expected |ISeq| == 2, got: %s", e));
+        }
+
+        @Override
+        ISorted freeze() {
+            return root == null ? empty : new SortedMap(empty.comparator, root, null, null);
+        }
+    }
+
+    @Override
+    ABaseSorted with(Node root, Object lo, Object hi) {
+        return new SortedMap(comparator, root, lo, hi);
+    }
+
+    @Override
+    ISeq entry(Node node) {
+        return new List(node.key, node.val);
+    }
+
+    @Override
+    public ISorted assoc(Object key, Object val) {
+        return assocNode(key, val);
+    }
+
+    @Override
+    public ISorted assoc(Object key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ISeq cons(Object e) {
+        if (e instanceof ISeq entry) {
+            if (entry.size() == 2) {
+                return assoc(entry.first(), entry.last());
+            }
+        }
+        throw new IllegalArgumentException(str("expected |ISeq| == 2, got: %s", e));
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] array = new Object[size() * 2];
+        int i = 0;
+        for (Object e : this) {
+            ISeq entry = (ISeq) e;
+            array[i++] = entry.first();
+            array[i++] = entry.last();
+        }
+        return array;
+    }
+}
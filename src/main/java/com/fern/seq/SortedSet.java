@@ -0,0 +1,111 @@
+package com.fern.seq;
+
+import java.util.Comparator;
+import java.util.Iterator;
+
+public class SortedSet extends ABaseSorted {
+
+    public static ISorted neu(Object... entries) {
+        return neu(NATURAL_ORDER, entries);
+    }
+
+    public static ISorted neu(Comparator<Object> comparator, Object... entries) {
+        if (comparator == null || entries == null) {
+            throw new NullPointerException();
+        }
+        SortedSet empty = new SortedSet(comparator, null, null, null);
+        Node root = null;
+        for (int i = 0; i < entries.length; i++) {
+            root = empty.insert(root, entries[i], null);
+        }
+        return root == null ? empty : new SortedSet(comparator, root, null, null);
+    }
+
+    private SortedSet(Comparator<Object> comparator, Node root, Object lo, Object hi) {
+        super(comparator, root, lo, hi);
+    }
+
+    /**
+     * Grows a tree that has not been published yet, skipping the intermediate
+     * instances. Freezing wraps the tree.
+     */
+    static final class Transient extends ATransient<ISorted> {
+        private final SortedSet empty;
+        private Node root;
+
+        Transient(Comparator<Object> comparator) {
+            if (comparator == null) {
+                throw new NullPointerException();
+            }
+            empty = new SortedSet(comparator, null, null, null);
+        }
+
+        @Override
+        public int size() {
+            checkEditable();
+            return root == null ? 0 : root.size;
+        }
+
+        @Override
+        public ITransient<ISorted> conj(Object e) {
+            checkEditable();
+            root = empty.insert(root, e, null);
+            return this;
+        }
+
+        @Override
+        ISorted freeze() {
+            return root == null ? empty : new SortedSet(empty.comparator, root, null, null);
+        }
+    }
+
+    @Override
+    ABaseSorted with(Node root, Object lo, Object hi) {
+        return new SortedSet(comparator, root, lo, hi);
+    }
+
+    @Override
+    ISeq entry(Node node) {
+        return new List(node.key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        return contains(key) ? key : null;
+    }
+
+    @Override
+    public ISeq keys() {
+        return items();
+    }
+
+    @Override
+    public ISeq values() {
+        return items();
+    }
+
+    @Override
+    public ISorted assoc(Object key, Object val) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ISorted assoc(Object key) {
+        return assocNode(key, null);
+    }
+
+    @Override
+    public ISeq cons(Object e) {
+        return assoc(e);
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] array = new Object[size()];
+        Iterator<Node> nodes = nodes();
+        for (int i = 0; i < array.length; i++) {
+            array[i] = nodes.next().key;
+        }
+        return array;
+    }
+}
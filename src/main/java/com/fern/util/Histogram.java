@@ -0,0 +1,136 @@
+package com.fern.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket, log-linear histogram of non-negative longs. Values below
+ * SUB_BUCKETS have a bucket each, above, each power of two is split in
+ * SUB_BUCKETS linear buckets (relative error below 1/SUB_BUCKETS). Values of
+ * 2^(MAX_MAGNITUDE + 1) and over fall in the last bucket, negative in the first.
+ * <p>
+ * Buckets are striped by thread to spread contention, recording allocates
+ * nothing and takes no locks.
+ */
+public final class Histogram {
+    public static final int SUB_BUCKET_BITS = 3;
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    public static final int MAX_MAGNITUDE = 40; // 2^41 nanos is over 36 minutes
+    public static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    private static final int STRIPES = Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()));
+
+    public static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return value < 0L ? 0 : (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKETS - 1;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * @return smallest value that falls in bucket
+     */
+    public static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        return ((long) SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+    }
+
+    /**
+     * @return largest value that falls in bucket
+     */
+    public static long upperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(bucket + 1) - 1L;
+    }
+
+    private final AtomicLongArray[] stripes;
+    private final LongAdder sum;
+
+    public Histogram() {
+        stripes = new AtomicLongArray[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+        sum = new LongAdder();
+    }
+
+    public void record(long value) {
+        stripes[(int) (Thread.currentThread().threadId() & (STRIPES - 1))].getAndIncrement(bucket(value));
+        sum.add(value);
+    }
+
+    /**
+     * Not atomic with respect to concurrent records, each bucket is.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return new Snapshot(counts, sum.sum());
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+
+        private Snapshot(long[] counts, long sum) {
+            long count = 0L;
+            for (long c : counts) {
+                count += c;
+            }
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long count(int bucket) {
+            return counts[bucket];
+        }
+
+        public double mean() {
+            return count == 0L ? 0.0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile in [0.0, 100.0]
+         * @return upper bound of the bucket holding the value at percentile, 0 if empty
+         */
+        public long percentile(double percentile) {
+            if (percentile < 0.0 || percentile > 100.0) {
+                throw new IllegalArgumentException(Util.str("percentile out of range: %s", percentile));
+            }
+            if (count == 0L) {
+                return 0L;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0L;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(BUCKETS - 1);
+        }
+
+        @Override
+        public String toString() {
+            return Util.str("count: %d, mean: %d, p50: %d, p99: %d, p999: %d",
+                    count, (long) mean(), percentile(50.0), percentile(99.0), percentile(99.9));
+        }
+    }
+}
@@ -54,8 +54,8 @@ public class CLF implements WithUTCTimestamp {
     private int status;
     private long bytes;
 
-    private CLF() {
-        // use the builder
+    CLF() {
+        // use the builder, or extend within the package (e.g. a view of stored columns)
     }
 
     /**
@@ -104,6 +104,7 @@ public class CLF implements WithUTCTimestamp {
      * @return what's before the second '/' in the resource section,  e.g. "/pages/create" -&gt; "/pages"
      */
     public String getSection() {
+        String resource = getResource();
         int i = resource.indexOf("/");
         if (i != -1) {
             int j = resource.indexOf("/", i + 1);
@@ -145,29 +146,29 @@ public class CLF implements WithUTCTimestamp {
             return false;
         }
         CLF other = (CLF) o;
-        return bytes == other.bytes &&
-                status == other.status &&
-                method == other.method &&
-                timestamp == other.timestamp &&
-                host.equals(other.host) &&
-                ident.equals(other.ident) &&
-                authUser.equals(other.authUser) &&
-                resource.equals(other.resource) &&
-                version.equals(other.version);
+        return getBytes() == other.getBytes() &&
+                getStatus() == other.getStatus() &&
+                getMethod() == other.getMethod() &&
+                getUTCTimestamp() == other.getUTCTimestamp() &&
+                getHost().equals(other.getHost()) &&
+                getIdent().equals(other.getIdent()) &&
+                getAuthUser().equals(other.getAuthUser()) &&
+                getResource().equals(other.getResource()) &&
+                getVersion().equals(other.getVersion());
     }
 
     @Override
     public int hashCode() {
         int result = 17;
-        result += result * 31 + bytes;
-        result += result * 31 + status;
-        result += result * 31 + method.name().hashCode();
-        result += result * 31 + Long.hashCode(timestamp);
-        result += result * 31 + host.hashCode();
-        result += result * 31 + ident.hashCode();
-        result += result * 31 + authUser.hashCode();
-        result += result * 31 + resource.hashCode();
-        result += result * 31 + version.hashCode();
+        result += result * 31 + getBytes();
+        result += result * 31 + getStatus();
+        result += result * 31 + getMethod().name().hashCode();
+        result += result * 31 + Long.hashCode(getUTCTimestamp());
+        result += result * 31 + getHost().hashCode();
+        result += result * 31 + getIdent().hashCode();
+        result += result * 31 + getAuthUser().hashCode();
+        result += result * 31 + getResource().hashCode();
+        result += result * 31 + getVersion().hashCode();
         return result;
     }
 
@@ -181,11 +182,11 @@ public class CLF implements WithUTCTimestamp {
     public String toString() {
         return String.format(
                 "%s %s %s [%s] \"%s %s HTTP/%s\" %d %d",
-                host, ident, authUser,
-                UTCTimestamp.format(timestamp),
-                method, resource, version,
-                status,
-                bytes);
+                getHost(), getIdent(), getAuthUser(),
+                UTCTimestamp.format(getUTCTimestamp()),
+                getMethod(), getResource(), getVersion(),
+                getStatus(),
+                getBytes());
     }
 
     /**
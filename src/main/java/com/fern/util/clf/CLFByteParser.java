@@ -0,0 +1,193 @@
+package com.fern.util.clf;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Byte level CLF parser, accepting the same format as {@linkplain CLFParser},
+ * straight from the (UTF-8 encoded) bytes of a buffer, typically the memory
+ * mapped file being readout. Lines are parsed into a reusable {@linkplain MutableCLF}
+ * without allocating: tokens are recorded as offsets, status and bytes are parsed
+ * as ASCII digits, HTTP methods are matched byte by byte, and so is the timestamp.
+ * <p>
+ * Stateless, and thus thread safe.
+ */
+public final class CLFByteParser {
+
+    private static final byte SPACE = ' ';
+    private static final byte QUOTE = '"';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte[] HTTP_PREFIX = "HTTP/".getBytes();
+    private static final CLF.HTTPMethod[] METHODS = CLF.HTTPMethod.values();
+    private static final byte[][] METHOD_NAMES = new byte[METHODS.length][];
+
+    static {
+        for (int i = 0; i < METHODS.length; i++) {
+            METHOD_NAMES[i] = METHODS[i].name().getBytes();
+        }
+    }
+
+    private CLFByteParser() {
+        throw new IllegalAccessError("this class comprises static utilities only");
+    }
+
+    /**
+     * Parses the line in buffer[offset, offset + length), a trailing '\r' is ignored.
+     * The buffer's position and limit are not changed.
+     *
+     * @param buffer source
+     * @param offset line start
+     * @param length line length, excluding the line separator
+     * @param clf    record the line is parsed into, its contents are undefined
+     *               when the line is malformed
+     * @return false when the line is malformed
+     */
+    public static boolean parse(ByteBuffer buffer, int offset, int length, MutableCLF clf) {
+        int end = offset + length;
+        if (end > offset && buffer.get(end - 1) == CARRIAGE_RETURN) {
+            end--;
+        }
+        clf.buffer = buffer;
+        int p = offset;
+
+        // host ident authuser
+        int next = indexOf(buffer, SPACE, p, end);
+        if (next < 0) {
+            return false;
+        }
+        clf.hostOffset = p;
+        clf.hostLength = next - p;
+        p = next + 1;
+        if ((next = indexOf(buffer, SPACE, p, end)) < 0) {
+            return false;
+        }
+        clf.identOffset = p;
+        clf.identLength = next - p;
+        p = next + 1;
+        if ((next = indexOf(buffer, SPACE, p, end)) < 0) {
+            return false;
+        }
+        clf.authUserOffset = p;
+        clf.authUserLength = next - p;
+        p = next + 1;
+
+        // [date]
+        if (p >= end || buffer.get(p) != '[' || (next = indexOf(buffer, (byte) ']', p + 1, end)) < 0) {
+            return false;
+        }
+        clf.timestamp = UTCTimestamp.parse(buffer, p + 1, next);
+        if (clf.timestamp == UTCTimestamp.NO_TIMESTAMP) {
+            return false;
+        }
+        p = next + 1;
+        if (p >= end || buffer.get(p++) != SPACE) {
+            return false;
+        }
+
+        // "method resource HTTP/version"
+        if (p >= end || buffer.get(p++) != QUOTE || (next = indexOf(buffer, QUOTE, p, end)) < 0) {
+            return false;
+        }
+        int requestEnd = next;
+        clf.method = method(buffer, p, requestEnd);
+        if (clf.method == null) {
+            return false;
+        }
+        p += METHOD_NAMES[clf.method.ordinal()].length + 1;
+        if ((next = indexOf(buffer, SPACE, p, requestEnd)) <= p) {
+            return false;
+        }
+        clf.resourceOffset = p;
+        clf.resourceLength = next - p;
+        p = next + 1;
+        if (false == startsWith(buffer, p, requestEnd, HTTP_PREFIX)) {
+            return false;
+        }
+        p += HTTP_PREFIX.length;
+        if (requestEnd - p != 3 || false == isDigit(buffer.get(p)) || false == isDigit(buffer.get(p + 2))) {
+            return false;
+        }
+        clf.versionOffset = p;
+        clf.versionLength = 3;
+        p = requestEnd + 1;
+        if (p >= end || buffer.get(p++) != SPACE) {
+            return false;
+        }
+
+        // status bytes
+        if ((next = indexOf(buffer, SPACE, p, end)) < 0) {
+            return false;
+        }
+        long status = parseLong(buffer, p, next, 10);
+        if (status == Long.MIN_VALUE || status < Integer.MIN_VALUE || status > Integer.MAX_VALUE) {
+            return false;
+        }
+        clf.status = (int) status;
+        clf.bytes = parseLong(buffer, next + 1, end, 18);
+        return clf.bytes != Long.MIN_VALUE;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte target, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int offset, int end, byte[] prefix) {
+        if (end - offset < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(offset + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the method whose name, followed by a space, starts at offset, or null
+     */
+    private static CLF.HTTPMethod method(ByteBuffer buffer, int offset, int end) {
+        for (int m = 0; m < METHODS.length; m++) {
+            byte[] name = METHOD_NAMES[m];
+            if (offset + name.length < end
+                    && startsWith(buffer, offset, end, name)
+                    && buffer.get(offset + name.length) == SPACE) {
+                return METHODS[m];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the optionally signed decimal in buffer[offset, end), of at most
+     * maxDigits digits, or Long.MIN_VALUE
+     */
+    private static long parseLong(ByteBuffer buffer, int offset, int end, int maxDigits) {
+        int p = offset;
+        boolean negative = false;
+        if (p < end && (buffer.get(p) == '-' || buffer.get(p) == '+')) {
+            negative = buffer.get(p) == '-';
+            p++;
+        }
+        if (p == end || end - p > maxDigits) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0L;
+        for (; p < end; p++) {
+            byte b = buffer.get(p);
+            if (false == isDigit(b)) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10L + (b - '0');
+        }
+        return negative ? -value : value;
+    }
+}
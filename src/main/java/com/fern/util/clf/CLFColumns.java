@@ -0,0 +1,261 @@
+package com.fern.util.clf;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Columnar storage of one second's worth of CLF entries, off-heap, in a direct
+ * {@link ByteBuffer} holding a column per field:
+ * <ul>
+ * <li>bytes: long</li>
+ * <li>host, ident, authUser, resource, version: int, ids in a {@link Dictionary}
+ * of the second's distinct strings, dropped with the columns when evicted</li>
+ * <li>timestamp: short, millis since the start of the second</li>
+ * <li>status: short</li>
+ * <li>method: byte, the ordinal, or -1 when there is none</li>
+ * </ul>
+ * That is 33 bytes per entry, and no heap objects other than the distinct strings.
+ * Entries are read through views, flyweight {@link CLF} instances reading the
+ * columns, which are shared once fetched and not changed in place.
+ */
+final class CLFColumns extends Rows<CLF> {
+
+    private static final CLF.HTTPMethod[] METHODS = CLF.HTTPMethod.values();
+    private static final int ROW_SIZE = Long.BYTES + 5 * Integer.BYTES + 2 * Short.BYTES + Byte.BYTES;
+    private static final int[] COLUMN_WIDTHS = {
+            Long.BYTES, // bytes
+            Integer.BYTES, Integer.BYTES, Integer.BYTES, Integer.BYTES, Integer.BYTES, // host .. version
+            Short.BYTES, Short.BYTES, // timestamp, status
+            Byte.BYTES // method
+    };
+
+    private final Dictionary dictionary;
+    private final long baseTimestamp;
+    private final int capacity;
+    private final ByteBuffer columns;
+    private final int hostAt;
+    private final int identAt;
+    private final int authUserAt;
+    private final int resourceAt;
+    private final int versionAt;
+    private final int timestampAt;
+    private final int statusAt;
+    private final int methodAt;
+
+    /**
+     * Constructor.
+     *
+     * @param second   UTC Epoch, in seconds, of the entries to be stored
+     * @param capacity number of rows
+     */
+    CLFColumns(long second, int capacity) {
+        this(new Dictionary(), second, capacity);
+    }
+
+    private CLFColumns(Dictionary dictionary, long second, int capacity) {
+        this.dictionary = dictionary;
+        this.capacity = capacity;
+        baseTimestamp = second * 1000L;
+        columns = ByteBuffer.allocateDirect(capacity * ROW_SIZE).order(ByteOrder.nativeOrder());
+        hostAt = capacity * Long.BYTES;
+        identAt = hostAt + capacity * Integer.BYTES;
+        authUserAt = identAt + capacity * Integer.BYTES;
+        resourceAt = authUserAt + capacity * Integer.BYTES;
+        versionAt = resourceAt + capacity * Integer.BYTES;
+        timestampAt = versionAt + capacity * Integer.BYTES;
+        statusAt = timestampAt + capacity * Short.BYTES;
+        methodAt = statusAt + capacity * Short.BYTES;
+    }
+
+    @Override
+    int capacity() {
+        return capacity;
+    }
+
+    @Override
+    CLF get(int idx) {
+        return new View(this, idx);
+    }
+
+    @Override
+    long timestamp(int idx) {
+        return baseTimestamp + columns.getShort(timestampAt + idx * Short.BYTES);
+    }
+
+    @Override
+    void check(CLF entry) {
+        long delta = entry.getUTCTimestamp() - baseTimestamp;
+        if (delta < 0L || delta >= 1000L) {
+            throw new IllegalArgumentException("timestamp not within the second: " + entry.getUTCTimestamp());
+        }
+        int status = entry.getStatus();
+        if (status < Short.MIN_VALUE || status > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("status out of range: " + status);
+        }
+    }
+
+    @Override
+    void set(int idx, CLF entry) {
+        long delta = entry.getUTCTimestamp() - baseTimestamp;
+        CLF.HTTPMethod method = entry.getMethod();
+        columns.putLong(idx * Long.BYTES, entry.getBytes());
+        columns.putInt(hostAt + idx * Integer.BYTES, dictionary.id(entry.getHost()));
+        columns.putInt(identAt + idx * Integer.BYTES, dictionary.id(entry.getIdent()));
+        columns.putInt(authUserAt + idx * Integer.BYTES, dictionary.id(entry.getAuthUser()));
+        columns.putInt(resourceAt + idx * Integer.BYTES, dictionary.id(entry.getResource()));
+        columns.putInt(versionAt + idx * Integer.BYTES, dictionary.id(entry.getVersion()));
+        columns.putShort(timestampAt + idx * Short.BYTES, (short) delta);
+        columns.putShort(statusAt + idx * Short.BYTES, (short) entry.getStatus());
+        columns.put(methodAt + idx, method == null ? -1 : (byte) method.ordinal());
+    }
+
+    @Override
+    boolean hasViews() {
+        return true;
+    }
+
+    @Override
+    void move(int from, int to, int count) {
+        // the ranges overlap, the absolute bulk put copies as if through an intermediate location
+        ByteBuffer source = columns.duplicate();
+        int columnAt = 0;
+        for (int width : COLUMN_WIDTHS) {
+            columns.put(columnAt + to * width, source, columnAt + from * width, count * width);
+            columnAt += capacity * width;
+        }
+    }
+
+    @Override
+    Rows<CLF> copy(int from, int newCapacity) {
+        CLFColumns copy = new CLFColumns(dictionary, baseTimestamp / 1000L, newCapacity);
+        int count = Math.min(capacity - from, newCapacity);
+        int columnAt = 0;
+        int copyColumnAt = 0;
+        for (int width : COLUMN_WIDTHS) {
+            copy.columns.put(copyColumnAt, columns, columnAt + from * width, count * width);
+            columnAt += capacity * width;
+            copyColumnAt += newCapacity * width;
+        }
+        return copy;
+    }
+
+    /**
+     * @return number of distinct strings held, to be called by the writer
+     */
+    int dictionarySize() {
+        return dictionary.size();
+    }
+
+    private String text(int columnAt, int idx) {
+        return dictionary.text(columns.getInt(columnAt + idx * Integer.BYTES));
+    }
+
+    /**
+     * Read only view of a row, valid for as long as the columns are reachable.
+     */
+    private static final class View extends CLF {
+        private final CLFColumns columns;
+        private final int idx;
+
+        private View(CLFColumns columns, int idx) {
+            this.columns = columns;
+            this.idx = idx;
+        }
+
+        @Override
+        public String getHost() {
+            return columns.text(columns.hostAt, idx);
+        }
+
+        @Override
+        public String getIdent() {
+            return columns.text(columns.identAt, idx);
+        }
+
+        @Override
+        public String getAuthUser() {
+            return columns.text(columns.authUserAt, idx);
+        }
+
+        @Override
+        public long getUTCTimestamp() {
+            return columns.timestamp(idx);
+        }
+
+        @Override
+        public HTTPMethod getMethod() {
+            byte ordinal = columns.columns.get(columns.methodAt + idx);
+            return ordinal < 0 ? null : METHODS[ordinal];
+        }
+
+        @Override
+        public String getResource() {
+            return columns.text(columns.resourceAt, idx);
+        }
+
+        @Override
+        public String getVersion() {
+            return columns.text(columns.versionAt, idx);
+        }
+
+        @Override
+        public int getStatus() {
+            return columns.columns.getShort(columns.statusAt + idx * Short.BYTES);
+        }
+
+        @Override
+        public long getBytes() {
+            return columns.columns.getLong(idx * Long.BYTES);
+        }
+    }
+
+    /**
+     * Assigns ids to distinct strings. Ids are only assigned by the writer of
+     * the cache, and are read by readers after the rows holding them have been
+     * published, so the strings are visible to them. Copies of the columns, all
+     * of the same second, share the dictionary.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private volatile String[] texts = new String[16];
+
+        /**
+         * @param text a string
+         * @return its id, assigning it one if it does not have one yet
+         */
+        int id(String text) {
+            Integer id = ids.get(text);
+            if (id == null) {
+                id = ids.size();
+                String[] current = texts;
+                if (id == current.length) {
+                    current = Arrays.copyOf(current, current.length * 2);
+                    current[id] = text;
+                    texts = current;
+                } else {
+                    current[id] = text;
+                }
+                ids.put(text, id);
+            }
+            return id;
+        }
+
+        /**
+         * @param id an id
+         * @return its string
+         */
+        String text(int id) {
+            return texts[id];
+        }
+
+        /**
+         * @return number of distinct strings
+         */
+        int size() {
+            return ids.size();
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package com.fern.util.clf;
 
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 
 /**
- * Instances of this class provide parsing for CLF.
+ * Instances of this class provide parsing for CLF, straight from the bytes
+ * of the file with {@linkplain CLFByteParser}.
  *
  * @see FileReadoutHandler
  * @see CLF
  * @see CLFParser
+ * @see CLFByteParser
  */
 public class CLFReadoutHandler extends FileReadoutHandler<CLF> {
 
+    private final ThreadLocal<MutableCLF> clf = ThreadLocal.withInitial(MutableCLF::new);
+
     /**
      * Constructor
      * @param file file to be readout
@@ -23,4 +28,13 @@ public class CLFReadoutHandler extends FileReadoutHandler<CLF> {
     public CLF parseLine(String line) {
         return CLFParser.parseLogLine(line);
     }
+
+    @Override
+    public CLF parseLine(ByteBuffer buffer, int offset, int length) {
+        MutableCLF line = clf.get();
+        if (false == CLFByteParser.parse(buffer, offset, length, line)) {
+            throw new IllegalArgumentException("incorrect format");
+        }
+        return line.toCLF();
+    }
 }
@@ -0,0 +1,29 @@
+package com.fern.util.clf;
+
+/**
+ * Readout cache of CLF entries stored off-heap, in columns (see {@link CLFColumns}),
+ * rather than as CLF instances. Entries added are copied into the columns, and
+ * the entries fetched are flyweight views of the columns, so that the heap only
+ * holds the distinct strings (hosts, users, resources, etc.) of each second cached.
+ * <p>
+ * Off-heap memory is released when the evicted columns are collected, and it is
+ * bounded by -XX:MaxDirectMemorySize.
+ */
+public class ColumnarCLFReadoutCache extends ReadoutCache<CLF> {
+
+    /**
+     * Constructor, readers and writers share a lock.
+     */
+    public ColumnarCLFReadoutCache() {
+        this(false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param singleWriter see {@linkplain ReadoutCache#ReadoutCache(boolean)}
+     */
+    public ColumnarCLFReadoutCache(boolean singleWriter) {
+        super(singleWriter, CLFColumns::new);
+    }
+}
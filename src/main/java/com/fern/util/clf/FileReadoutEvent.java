@@ -0,0 +1,37 @@
+package com.fern.util.clf;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for {@linkplain FileReadoutHandler#fetchAvailableLines(ReadoutCache)}.
+ */
+@Name("com.fern.FileReadout")
+@Label("File Readout")
+@Category({"Fern", "CLF"})
+@Description("Readout of the lines available in a file")
+@StackTrace(false)
+final class FileReadoutEvent extends jdk.jfr.Event {
+    private static final FileReadoutEvent PROBE = new FileReadoutEvent();
+
+    static boolean enabled() {
+        return PROBE.isEnabled();
+    }
+
+    @Label("File")
+    String file;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Lines")
+    int lines;
+
+    @Label("Malformed Lines")
+    int malformed;
+}
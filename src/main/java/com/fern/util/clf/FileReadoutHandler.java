@@ -6,11 +6,22 @@ import com.fern.util.Logger;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.nio.channels.FileChannel.MapMode;
 
@@ -27,9 +38,14 @@ import static java.nio.channels.FileChannel.MapMode;
  * Two methods are provided to change the offset the file is read from
  * {@linkplain #moveToStart()} and {@linkplain #moveToEnd()}.
  * <p>
- * Access to the file's contents is done through OS memory mapping, loading
- * to heap a line's worth of data to enable the parse through method
- * {@linkplain #parseLine(String)}.
+ * Access to the file's contents is done through OS memory mapping. Lines are
+ * handed to {@linkplain #parseLine(ByteBuffer, int, int)} straight from the
+ * mapping, which by default loads to heap a line's worth of data to enable the
+ * parse through method {@linkplain #parseLine(String)}.
+ * <p>
+ * Large backlogs can be read out in parallel with
+ * {@linkplain #fetchAvailableLines(ReadoutCache, ForkJoinPool)}, in which case
+ * the parse methods are called concurrently and must be thread safe.
  */
 public abstract class FileReadoutHandler<LINE_TYPE extends WithUTCTimestamp> {
 
@@ -38,11 +54,19 @@ public abstract class FileReadoutHandler<LINE_TYPE extends WithUTCTimestamp> {
     private static final byte CARRIAGE_RETURN = '\r';
     private static final byte LINE_BREAK = '\n';
     private static final int LINE_BUFFER_SIZE = 512; // tune to average log size
+    private static final int PROBE_SIZE = 4096;
+    private static final int BATCH_SIZE = 4096;
+
+    /**
+     * Default size of the chunks of a parallel readout (32 MB).
+     */
+    public static final long PARALLEL_CHUNK_SIZE = 32L * 1024 * 1024;
 
     private final Path parentFolder;
     private final Path file;
+    private final ThreadLocal<byte[]> lineBuffer;
     private long fileReadOffset;
-    private byte[] lineBuffer;
+    private long lastTimestamp;
 
     /**
      * Constructor.
@@ -52,7 +76,8 @@ public abstract class FileReadoutHandler<LINE_TYPE extends WithUTCTimestamp> {
     public FileReadoutHandler(Path file) {
         parentFolder = Objects.requireNonNull(file).getParent();
         this.file = file;
-        lineBuffer = new byte[LINE_BUFFER_SIZE];
+        lineBuffer = ThreadLocal.withInitial(() -> new byte[LINE_BUFFER_SIZE]);
+        lastTimestamp = ReadoutCache.NO_VALUE;
     }
 
     /**
@@ -88,6 +113,43 @@ public abstract class FileReadoutHandler<LINE_TYPE extends WithUTCTimestamp> {
         return fileReadOffset;
     }
 
+    /**
+     * @return latest UTC Epoch of the lines added to readout caches, or
+     * ReadoutCache.NO_VALUE (-1L)
+     */
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * @return the file's key (the inode on Unix), or null when the file does
+     * not exist or the file system does not provide keys
+     * @throws IOException when the file's attributes cannot be read
+     */
+    Object fileKey() throws IOException {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Moves the file's last read offset to offset, which must be the start of
+     * a line, as when resuming from a checkpoint.
+     *
+     * @param offset        next line's offset
+     * @param lastTimestamp latest UTC Epoch read before offset
+     */
+    void moveTo(long offset, long lastTimestamp) {
+        if (offset < 0L) {
+            throw new IllegalArgumentException("offset must be >= 0");
+        }
+        fileReadOffset = offset;
+        this.lastTimestamp = lastTimestamp;
+        LOGGER.debug("Moved to offset: {}", fileReadOffset);
+    }
+
     /**
      * Moves the file's last read offset to the beginning (0L).
      */
@@ -129,12 +191,42 @@ public abstract class FileReadoutHandler<LINE_TYPE extends WithUTCTimestamp> {
      */
     public abstract LINE_TYPE parseLine(String line);
 
+    /**
+     * Byte level parsing method, called by {@linkplain #fetchAvailableLines(ReadoutCache)}
+     * with each line straight from the mapped file. Its contract is that of
+     * {@linkplain #parseLine(String)}, which it calls once the line is UTF-8 decoded.
+     * Implementations able to parse the bytes should override it to save the decoding.
+     *
+     * @param buffer the mapped file region, its position and limit must not be changed
+     * @param offset line start within buffer
+     * @param length line length (without line separator chars)
+     * @return an instance of type LINE_TYPE, or null (which means, 'return the line to the file')
+     * @throws IllegalArgumentException when parsing fails
+     */
+    public LINE_TYPE parseLine(ByteBuffer buffer, int offset, int length) {
+        return parseLine(decodeLine(buffer, offset, length));
+    }
+
+    private String decodeLine(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = lineBuffer.get();
+        if (length > bytes.length) {
+            int newLineBufferSize = (int) Math.ceil(length * 1.5f);
+            LOGGER.debug("Resizing buffer from {} to {}",
+                    bytes.length,
+                    newLineBufferSize);
+            bytes = new byte[newLineBufferSize];
+            lineBuffer.set(bytes);
+        }
+        buffer.get(offset, bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
     /**
      * This method maps the memory region corresponding to all unread bytes
      * (from the last read offset until the end of the file). This mapping is
      * split it into '\n' delimited blocks, which are UTF-8 decoded and fed
      * to a line parser one at the time. The result of this process is collected
-     * into the readout cache.
+     * into the readout cache, in batches of up to BATCH_SIZE lines.
      * <p>
      * Lines that fail to parse are ignored (a message is logged).
      * <p>
@@ -149,60 +241,310 @@ public abstract class FileReadoutHandler<LINE_TYPE extends WithUTCTimestamp> {
      * @throws IOException when the file cannot be read/mapped
      */
     public int fetchAvailableLines(ReadoutCache<LINE_TYPE> readoutCache) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), FILE_ACCESS_MODE);
+             FileChannel channel = raf.getChannel()) {
+            return fetchAvailableLines(readoutCache, channel);
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException("cannot access file: " + file, e);
+        }
+    }
+
+    /**
+     * Same as {@linkplain #fetchAvailableLines(ReadoutCache)}, reading from a
+     * channel opened on the file by the caller, which is left open.
+     *
+     * @param readoutCache readout cache where successfully parsed lines are added to
+     * @param channel      a readable channel on the file
+     * @return the number of lines added to the readout cache
+     * @throws IOException when the file cannot be read/mapped
+     */
+    int fetchAvailableLines(ReadoutCache<LINE_TYPE> readoutCache, FileChannel channel) throws IOException {
+        FileReadoutEvent event = FileReadoutEvent.enabled() ? new FileReadoutEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long startOffset = fileReadOffset;
         int addedLinesCount = 0;
+        int malformedLinesCount = 0;
+        long fileSize = channel.size();
+        if (fileSize <= fileReadOffset) {
+            fileReadOffset = fileSize;
+            commit(event, 0L, addedLinesCount, malformedLinesCount);
+            return addedLinesCount;
+        }
+        long bufferSize = fileSize - fileReadOffset;
+        MappedByteBuffer mappedBuffer = channel.map(MapMode.READ_ONLY, fileReadOffset, bufferSize);
+        List<LINE_TYPE> batch = new ArrayList<>();
+        int lineStartOffset = 0;
+        LOGGER.debug("Reading {} additional bytes from offset {}",
+                bufferSize, fileReadOffset);
+        for (int i = 0; i < mappedBuffer.limit(); i++) {
+            if (mappedBuffer.get(i) == LINE_BREAK) {
+                if (lineStartOffset != i) {
+                    int lineLength = i - lineStartOffset;
+                    if (mappedBuffer.get(i - 1) == CARRIAGE_RETURN) {
+                        lineLength--;
+                    }
+                    try {
+                        LINE_TYPE parsed = parseLine(mappedBuffer, lineStartOffset, lineLength);
+                        if (parsed == null) {
+                            LOGGER.debug("Interrupting readout, read null");
+                            break;
+                        } else {
+                            batch.add(parsed);
+                            lastTimestamp = Math.max(lastTimestamp, parsed.getUTCTimestamp());
+                            addedLinesCount++;
+                            if (batch.size() == BATCH_SIZE) {
+                                readoutCache.addAll(batch);
+                                batch.clear();
+                            }
+                        }
+                    } catch (Exception e) {
+                        malformedLinesCount++;
+                        LOGGER.warn("Ignoring malformed line found at offset {}: {}",
+                                fileReadOffset + lineStartOffset, decodeLine(mappedBuffer, lineStartOffset, lineLength));
+                    }
+                }
+                lineStartOffset = i + 1;
+            }
+        }
+        readoutCache.addAll(batch);
+        fileReadOffset += lineStartOffset;
+        commit(event, fileReadOffset - startOffset, addedLinesCount, malformedLinesCount);
+        if (addedLinesCount > 0) {
+            LOGGER.debug("Loaded count: {}", addedLinesCount);
+        }
+        return addedLinesCount;
+    }
+
+    /**
+     * Parallel version of {@linkplain #fetchAvailableLines(ReadoutCache)}, with
+     * chunks of PARALLEL_CHUNK_SIZE.
+     *
+     * @param readoutCache readout cache where successfully parsed lines are added to
+     * @param pool         where the chunks are parsed
+     * @return the number of lines added to the readout cache
+     * @throws IOException when the file cannot be read/mapped
+     */
+    public int fetchAvailableLines(ReadoutCache<LINE_TYPE> readoutCache, ForkJoinPool pool) throws IOException {
+        return fetchAvailableLines(readoutCache, pool, PARALLEL_CHUNK_SIZE);
+    }
+
+    /**
+     * The unread region is split into chunks of about chunkSize bytes, aligned
+     * on line breaks, each mapped and parsed on the pool into a run of lines
+     * sorted by timestamp. The runs are then merged into the readout cache.
+     * <p>
+     * Malformed lines and the null-return throttle behave as in the sequential
+     * readout: when the parser returns null, the lines parsed after it (by its
+     * chunk and any later chunk) are discarded, and the next readout resumes
+     * from the 'failed' line.
+     *
+     * @param readoutCache readout cache where successfully parsed lines are added to
+     * @param pool         where the chunks are parsed
+     * @param chunkSize    approximate chunk size in bytes
+     * @return the number of lines added to the readout cache
+     * @throws IOException when the file cannot be read/mapped
+     */
+    int fetchAvailableLines(ReadoutCache<LINE_TYPE> readoutCache, ForkJoinPool pool, long chunkSize) throws IOException {
+        Objects.requireNonNull(pool);
+        if (chunkSize <= 0L || chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunkSize must be in (0, Integer.MAX_VALUE]");
+        }
+        FileReadoutEvent event = FileReadoutEvent.enabled() ? new FileReadoutEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long startOffset = fileReadOffset;
+        int addedLinesCount = 0;
+        int malformedLinesCount = 0;
         try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), FILE_ACCESS_MODE);
              FileChannel channel = raf.getChannel()) {
             long fileSize = raf.length();
             if (fileSize <= fileReadOffset) {
                 fileReadOffset = fileSize;
+                commit(event, 0L, addedLinesCount, malformedLinesCount);
                 return addedLinesCount;
             }
-            long bufferSize = fileSize - fileReadOffset;
-            MappedByteBuffer mappedBuffer = channel.map(MapMode.READ_ONLY, fileReadOffset, bufferSize);
+            long[] bounds = chunkBounds(channel, fileReadOffset, fileSize, chunkSize);
+            LOGGER.debug("Reading {} additional bytes from offset {} in {} chunks",
+                    bounds[bounds.length - 1] - fileReadOffset, fileReadOffset, bounds.length - 1);
+            AtomicInteger stoppedChunk = new AtomicInteger(Integer.MAX_VALUE);
+            List<ReadoutChunk> chunks = new ArrayList<>(bounds.length - 1);
+            for (int i = 0; i < bounds.length - 1; i++) {
+                ReadoutChunk chunk = new ReadoutChunk(i, channel, bounds[i], bounds[i + 1], stoppedChunk);
+                chunks.add(chunk);
+                pool.execute(chunk);
+            }
+            List<List<LINE_TYPE>> runs = new ArrayList<>(chunks.size());
+            long readOffset = bounds[bounds.length - 1];
+            for (ReadoutChunk chunk : chunks) {
+                try {
+                    chunk.join();
+                } catch (UncheckedIOException e) {
+                    chunks.forEach(c -> c.cancel(false));
+                    throw e.getCause();
+                }
+            }
+            for (ReadoutChunk chunk : chunks) {
+                if (chunk.index > stoppedChunk.get()) {
+                    break;
+                }
+                runs.add(chunk.run);
+                addedLinesCount += chunk.run.size();
+                malformedLinesCount += chunk.malformedLinesCount;
+                if (chunk.index == stoppedChunk.get()) {
+                    LOGGER.debug("Interrupting readout, read null");
+                    readOffset = chunk.stopOffset;
+                }
+            }
+            List<LINE_TYPE> merged = ReadoutCache.merge(runs);
+            readoutCache.addAll(merged);
+            if (false == merged.isEmpty()) {
+                lastTimestamp = Math.max(lastTimestamp, merged.get(merged.size() - 1).getUTCTimestamp());
+            }
+            fileReadOffset = readOffset;
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException("cannot access file: " + file, e);
+        }
+        commit(event, fileReadOffset - startOffset, addedLinesCount, malformedLinesCount);
+        if (addedLinesCount > 0) {
+            LOGGER.debug("Loaded count: {}", addedLinesCount);
+        }
+        return addedLinesCount;
+    }
+
+    /**
+     * @return the offsets, starting with from, of the starts of the chunks
+     * followed by the end of the last complete line
+     */
+    private static long[] chunkBounds(FileChannel channel, long from, long to, long chunkSize) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        long end = lastLineEnd(channel, from, to, probe);
+        long[] bounds = new long[8];
+        int count = 0;
+        bounds[count++] = from;
+        for (long next = from; next < end; ) {
+            next = nextLineEnd(channel, Math.min(next + chunkSize, end) - 1, end, probe);
+            if (count == bounds.length) {
+                bounds = Arrays.copyOf(bounds, count * 2);
+            }
+            bounds[count++] = next;
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * @return the offset following the first line break at, or after, offset,
+     * up to 'to', which must follow a line break
+     */
+    private static long nextLineEnd(FileChannel channel, long offset, long to, ByteBuffer probe) throws IOException {
+        for (long p = offset; p < to; ) {
+            probe.clear();
+            int read = channel.read(probe, p);
+            for (int i = 0; i < read && p + i < to; i++) {
+                if (probe.get(i) == LINE_BREAK) {
+                    return p + i + 1;
+                }
+            }
+            p += Math.max(read, 1);
+        }
+        return to;
+    }
+
+    /**
+     * @return the offset following the last line break in [from, to), or from
+     */
+    private static long lastLineEnd(FileChannel channel, long from, long to, ByteBuffer probe) throws IOException {
+        for (long p = to; p > from; ) {
+            long start = Math.max(from, p - probe.capacity());
+            probe.clear().limit((int) (p - start));
+            int read = channel.read(probe, start);
+            for (int i = read - 1; i >= 0; i--) {
+                if (probe.get(i) == LINE_BREAK) {
+                    return start + i + 1;
+                }
+            }
+            p = start;
+        }
+        return from;
+    }
+
+    /**
+     * Parses the lines in [start, end) of the file into a run sorted by timestamp.
+     */
+    private final class ReadoutChunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int index;
+        private final transient FileChannel channel;
+        private final long start;
+        private final long end;
+        private final AtomicInteger stoppedChunk;
+        private final transient List<LINE_TYPE> run;
+        private long stopOffset;
+        private int malformedLinesCount;
+
+        private ReadoutChunk(int index, FileChannel channel, long start, long end, AtomicInteger stoppedChunk) {
+            this.index = index;
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.stoppedChunk = stoppedChunk;
+            run = new ArrayList<>();
+            stopOffset = end;
+        }
+
+        @Override
+        protected void compute() {
+            MappedByteBuffer mappedBuffer;
+            try {
+                mappedBuffer = channel.map(MapMode.READ_ONLY, start, end - start);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
             int lineStartOffset = 0;
-            LOGGER.debug("Reading {} additional bytes from offset {}",
-                    bufferSize, fileReadOffset);
             for (int i = 0; i < mappedBuffer.limit(); i++) {
                 if (mappedBuffer.get(i) == LINE_BREAK) {
                     if (lineStartOffset != i) {
-                        int lineLength = i - lineStartOffset;
-                        if (lineLength > lineBuffer.length) {
-                            int newLineBufferSize = (int) Math.ceil(lineLength * 1.5f);
-                            LOGGER.debug("Resizing buffer from {} to {}",
-                                    lineBuffer.length,
-                                    newLineBufferSize);
-                            lineBuffer = new byte[newLineBufferSize];
+                        if (index > stoppedChunk.get()) {
+                            return; // an earlier chunk throttled, this one is read again next time
                         }
-                        mappedBuffer.position(lineStartOffset);
-                        mappedBuffer.get(lineBuffer, 0, lineLength);
-                        if (lineBuffer[lineLength - 1] == CARRIAGE_RETURN) {
+                        int lineLength = i - lineStartOffset;
+                        if (mappedBuffer.get(i - 1) == CARRIAGE_RETURN) {
                             lineLength--;
                         }
-                        String line = new String(lineBuffer, 0, lineLength, StandardCharsets.UTF_8);
                         try {
-                            LINE_TYPE parsed = parseLine(line);
+                            LINE_TYPE parsed = parseLine(mappedBuffer, lineStartOffset, lineLength);
                             if (parsed == null) {
-                                LOGGER.debug("Interrupting readout, read null");
+                                stopOffset = start + lineStartOffset;
+                                stoppedChunk.accumulateAndGet(index, Math::min);
                                 break;
-                            } else {
-                                readoutCache.add(parsed);
-                                addedLinesCount++;
                             }
+                            run.add(parsed);
                         } catch (Exception e) {
+                            malformedLinesCount++;
                             LOGGER.warn("Ignoring malformed line found at offset {}: {}",
-                                    fileReadOffset + lineStartOffset, line);
+                                    start + lineStartOffset, decodeLine(mappedBuffer, lineStartOffset, lineLength));
                         }
                     }
                     lineStartOffset = i + 1;
                 }
             }
-            fileReadOffset += lineStartOffset;
-        } catch (FileNotFoundException e) {
-            throw new IllegalStateException("cannot access file: " + file, e);
+            run.sort(WithUTCTimestamp.COMPARING);
         }
-        if (addedLinesCount > 0) {
-            LOGGER.debug("Loaded count: {}", addedLinesCount);
+    }
+
+    private void commit(FileReadoutEvent event, long bytes, int lines, int malformed) {
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.file = file.toString();
+                event.bytes = bytes;
+                event.lines = lines;
+                event.malformed = malformed;
+                event.commit();
+            }
         }
-        return addedLinesCount;
     }
 }
@@ -0,0 +1,256 @@
+package com.fern.util.clf;
+
+import com.fern.util.ILogger;
+import com.fern.util.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Tails files with a {@link WatchService}. A single daemon thread waits for
+ * events on the parent folders of the registered files and, when a file is
+ * modified, reads out its new lines into its readout cache with
+ * {@linkplain FileReadoutHandler#fetchAvailableLines(ReadoutCache)}.
+ * <p>
+ * The channel on each file is kept open between readouts. When the file is
+ * rotated, that is, its path now names a different file (per the file key,
+ * the inode on Unix), the lines left in the old file are read out before the
+ * new file is read from the start. When the file is truncated, its size
+ * dropping below the read offset, it is read again from the start.
+ * <p>
+ * Events may overflow, or not be delivered at all by some file systems, so
+ * all the files are also checked every RESCAN_MILLIS.
+ * <p>
+ * Registered handlers are used by the tailer thread and should not be used
+ * by other threads until unregistered.
+ */
+public class LogTailer implements Closeable {
+
+    private static final ILogger LOGGER = Logger.loggerFor(LogTailer.class);
+    private static final long RESCAN_MILLIS = 1000L;
+    private static final AtomicInteger TAILER_ID = new AtomicInteger();
+
+    private final WatchService watchService;
+    private final Map<Path, WatchKey> keys;
+    private final Map<Path, List<TailedFile<?>>> files;
+    private final Thread thread;
+    private volatile boolean isClosed;
+
+    /**
+     * Constructor, starts the tailer thread.
+     *
+     * @throws IOException when the watch service cannot be created
+     */
+    public LogTailer() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        keys = new HashMap<>();
+        files = new HashMap<>();
+        thread = new Thread(this::run, "fern-log-tailer-" + TAILER_ID.getAndIncrement());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts tailing the handler's file, from the handler's read offset. The
+     * lines available are read out before returning. The file does not need to
+     * exist, its parent folder does.
+     *
+     * @param handler      readout handler of the file
+     * @param readoutCache readout cache where the lines are added to
+     * @param <T>          a class implementing {@link WithUTCTimestamp}
+     * @throws IOException              when the parent folder cannot be watched
+     * @throws IllegalArgumentException when the handler is already registered
+     * @throws IllegalStateException    when the tailer is closed
+     */
+    public synchronized <T extends WithUTCTimestamp> void register(FileReadoutHandler<T> handler,
+                                                                   ReadoutCache<T> readoutCache) throws IOException {
+        Objects.requireNonNull(handler);
+        Objects.requireNonNull(readoutCache);
+        if (isClosed) {
+            throw new IllegalStateException("tailer is closed");
+        }
+        Path folder = handler.getParentFolder();
+        List<TailedFile<?>> folderFiles = files.get(folder);
+        if (folderFiles == null) {
+            keys.put(folder, folder.register(watchService, ENTRY_CREATE, ENTRY_MODIFY));
+            folderFiles = new ArrayList<>();
+            files.put(folder, folderFiles);
+        }
+        for (TailedFile<?> tailed : folderFiles) {
+            if (tailed.handler == handler) {
+                throw new IllegalArgumentException("already registered: " + handler.getFile());
+            }
+        }
+        TailedFile<T> tailed = new TailedFile<>(handler, readoutCache);
+        folderFiles.add(tailed);
+        tailed.readout();
+        LOGGER.debug("Tailing {}", handler.getFile());
+    }
+
+    /**
+     * Stops tailing the handler's file.
+     *
+     * @param handler readout handler of the file
+     * @return true if the handler was registered
+     */
+    public synchronized boolean unregister(FileReadoutHandler<?> handler) {
+        Path folder = handler.getParentFolder();
+        List<TailedFile<?>> folderFiles = files.get(folder);
+        if (folderFiles != null) {
+            for (int i = 0; i < folderFiles.size(); i++) {
+                TailedFile<?> tailed = folderFiles.get(i);
+                if (tailed.handler == handler) {
+                    folderFiles.remove(i);
+                    tailed.close();
+                    if (folderFiles.isEmpty()) {
+                        files.remove(folder);
+                        keys.remove(folder).cancel();
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of files being tailed
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (List<TailedFile<?>> folderFiles : files.values()) {
+            size += folderFiles.size();
+        }
+        return size;
+    }
+
+    /**
+     * Stops the tailer thread and closes the files.
+     */
+    @Override
+    public void close() {
+        isClosed = true;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close watch service: {}", e.getMessage());
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            files.values().forEach(folderFiles -> folderFiles.forEach(TailedFile::close));
+            files.clear();
+            keys.clear();
+        }
+    }
+
+    private void run() {
+        long lastRescan = System.currentTimeMillis();
+        while (false == isClosed) {
+            WatchKey key;
+            try {
+                key = watchService.poll(RESCAN_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+            synchronized (this) {
+                if (isClosed) {
+                    break;
+                }
+                if (key != null) {
+                    List<TailedFile<?>> folderFiles = files.getOrDefault((Path) key.watchable(), List.of());
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        for (TailedFile<?> tailed : folderFiles) {
+                            if (event.kind() == OVERFLOW || tailed.handler.fileMatches((Path) event.context())) {
+                                tailed.readout();
+                            }
+                        }
+                    }
+                    key.reset();
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastRescan >= RESCAN_MILLIS) {
+                    files.values().forEach(folderFiles -> folderFiles.forEach(TailedFile::readout));
+                    lastRescan = now;
+                }
+            }
+        }
+        LOGGER.debug("Tailer stopped");
+    }
+
+    private static final class TailedFile<T extends WithUTCTimestamp> {
+        private final FileReadoutHandler<T> handler;
+        private final ReadoutCache<T> readoutCache;
+        private FileChannel channel;
+        private Object fileKey;
+
+        private TailedFile(FileReadoutHandler<T> handler, ReadoutCache<T> readoutCache) {
+            this.handler = handler;
+            this.readoutCache = readoutCache;
+        }
+
+        private void readout() {
+            Path file = handler.getFile();
+            try {
+                Object currentKey = handler.fileKey();
+                if (channel != null && false == Objects.equals(currentKey, fileKey)) {
+                    handler.fetchAvailableLines(readoutCache, channel);
+                    close();
+                    handler.moveToStart();
+                    LOGGER.info("File rotated: {}", file);
+                }
+                if (channel == null) {
+                    if (currentKey == null) {
+                        return; // not created yet
+                    }
+                    channel = FileChannel.open(file, StandardOpenOption.READ);
+                    fileKey = currentKey;
+                }
+                if (channel.size() < handler.getFileReadOffset()) {
+                    handler.moveToStart();
+                    LOGGER.info("File truncated: {}", file);
+                }
+                handler.fetchAvailableLines(readoutCache, channel);
+            } catch (NoSuchFileException e) {
+                LOGGER.debug("File is gone: {}", file);
+            } catch (IOException e) {
+                LOGGER.warn("Could not read out {}: {}", file, e.getMessage());
+            }
+        }
+
+        private void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Could not close {}: {}", handler.getFile(), e.getMessage());
+                }
+                channel = null;
+                fileKey = null;
+            }
+        }
+    }
+}
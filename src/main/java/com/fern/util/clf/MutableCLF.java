@@ -0,0 +1,121 @@
+package com.fern.util.clf;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable, mutable CLF record written by {@linkplain CLFByteParser}. Text
+ * fields are kept as (offset, length) within the parsed buffer, and decoded
+ * only when accessed, so the record is valid for as long as the buffer's
+ * contents do not change.
+ *
+ * @see CLF
+ */
+public final class MutableCLF implements WithUTCTimestamp {
+
+    ByteBuffer buffer;
+    int hostOffset;
+    int hostLength;
+    int identOffset;
+    int identLength;
+    int authUserOffset;
+    int authUserLength;
+    int resourceOffset;
+    int resourceLength;
+    int versionOffset;
+    int versionLength;
+    long timestamp;
+    CLF.HTTPMethod method;
+    int status;
+    long bytes;
+
+    /**
+     * @return IP address, or host name, of the client (remote host)
+     * that made the request to the server
+     */
+    public String getHost() {
+        return decode(hostOffset, hostLength);
+    }
+
+    /**
+     * @return RFC 1413 identity of the client. Usually "-".
+     */
+    public String getIdent() {
+        return decode(identOffset, identLength);
+    }
+
+    /**
+     * @return userid of the user requesting the resource
+     */
+    public String getAuthUser() {
+        return decode(authUserOffset, authUserLength);
+    }
+
+    @Override
+    public long getUTCTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return HTTP method part of the request
+     */
+    public CLF.HTTPMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the resource part of the request
+     */
+    public String getResource() {
+        return decode(resourceOffset, resourceLength);
+    }
+
+    /**
+     * @return the HTTP version part of the request
+     */
+    public String getVersion() {
+        return decode(versionOffset, versionLength);
+    }
+
+    /**
+     * @return HTTP status part of the request
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return size of the object returned to the client
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return a new, immutable, instance with the same contents
+     */
+    public CLF toCLF() {
+        return CLF.builder()
+                .host(getHost())
+                .ident(getIdent())
+                .authUser(getAuthUser())
+                .timestamp(timestamp)
+                .method(method)
+                .resource(getResource())
+                .version(getVersion())
+                .status(status)
+                .bytes(bytes)
+                .build();
+    }
+
+    private String decode(int offset, int length) {
+        byte[] text = new byte[length];
+        buffer.get(offset, text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return toCLF().toString();
+    }
+}
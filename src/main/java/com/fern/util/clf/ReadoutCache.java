@@ -4,20 +4,41 @@ import com.fern.util.ILogger;
 import com.fern.util.Logger;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * Holds a list of ordered UTC Epoch timestamped entries allowing to
- * fetch them by interval (both ends included), as well as to evict
- * them (oldest entries first).
+ * Holds ordered UTC Epoch timestamped entries allowing to fetch them
+ * by interval (both ends included), as well as to evict them (oldest
+ * entries first).
  * <p>
- * The cache method {@linkplain #addAll(List)} expects the list of
- * entries to be already sorted, as internal searches are done
- * using a binary partition method on the timestamp space.
+ * The application's resolution is 1 second, and entries are kept in
+ * segments, one per second with entries, each sorted. The segments are
+ * held in ascending order in a circular array, so that entries arriving
+ * in order, the common case, are appended to the last segment, and evicted
+ * entries are dropped from the first segments. As logs tend to have entries
+ * every second, a second's segment is located by its distance to the first
+ * second, falling back to a binary partition search when there are gaps.
+ * <p>
+ * By default readers and writers share a read/write lock. In single writer
+ * mode, where add, addAll and the evictions are only ever called by one
+ * thread at the time (e.g. the thread of a {@link LogTailer}), the writer
+ * does not lock and, after each call, publishes an immutable view of the
+ * segments through a volatile reference. Readers then never block, nor write
+ * to memory shared with other threads. Segments are frozen when published,
+ * the writer copying a frozen segment's entries before changing them other
+ * than by appending. When entries were only appended since the previous view,
+ * the new view shares its array of frozen segments, setting the slots of the
+ * segments appended to, each view keeping its own last segment. Otherwise
+ * (evictions, late entries, etc.) the array is copied, a reference per
+ * segment, so in this mode entries should be added in batches with
+ * {@linkplain #addAll(List)}.
  *
  * @param <T> a class implementing {@link WithUTCTimestamp}
  */
@@ -28,32 +49,73 @@ public class ReadoutCache<T extends WithUTCTimestamp> {
      */
     public static final long NO_VALUE = -1L;
 
-    private static final long INIT_VALUE = Long.MAX_VALUE;
     private static final ILogger LOGGER = Logger.loggerFor(ReadoutCache.class);
+    private static final int INITIAL_SEGMENTS = 64;
 
+    private final boolean singleWriter;
     private final Lock readLock;
     private final Lock writeLock;
-    private List<T> entries;
-    private long startTs;
+    private final Rows.Factory<T> rowsFactory;
+    private Segment<T>[] segments;
+    private int head;
+    private int segmentCount;
+    private int size;
+    private boolean ringChanged; // since published, the head moved or the ring grew
+    private int firstDirty; // since published, index of the first segment changed
+    private volatile View<T> published;
 
     /**
-     * Constructor.
+     * Constructor, readers and writers share a lock.
      */
     public ReadoutCache() {
-        entries = new ArrayList<>();
+        this(false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param singleWriter when true, the cache is only ever changed by one thread
+     *                     at the time, and readers access published views without
+     *                     locking
+     */
+    public ReadoutCache(boolean singleWriter) {
+        this(singleWriter, Rows.OfObjects::new);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param singleWriter see {@linkplain #ReadoutCache(boolean)}
+     * @param rowsFactory  creates the storage of the segments
+     */
+    ReadoutCache(boolean singleWriter, Rows.Factory<T> rowsFactory) {
+        this.singleWriter = singleWriter;
+        this.rowsFactory = Objects.requireNonNull(rowsFactory);
         ReadWriteLock entriesLock = new ReentrantReadWriteLock();
         readLock = entriesLock.readLock();
         writeLock = entriesLock.writeLock();
-        startTs = INIT_VALUE;
+        segments = newSegments(INITIAL_SEGMENTS);
+        firstDirty = Integer.MAX_VALUE;
+        published = new View<>(newSegments(INITIAL_SEGMENTS), head, segmentCount, size, null);
+    }
+
+    /**
+     * @return true if the cache is in single writer mode
+     */
+    public boolean isSingleWriter() {
+        return singleWriter;
     }
 
     /**
      * @return first UTC Epoch seen across the contents of the cache, or NO_VALUE (-1L)
      */
     public long firstTimestamp() {
+        if (singleWriter) {
+            return published.firstTimestamp();
+        }
         readLock.lock();
         try {
-            return startTs == INIT_VALUE ? NO_VALUE : startTs;
+            return live().firstTimestamp();
         } finally {
             readLock.unlock();
         }
@@ -64,13 +126,12 @@ public class ReadoutCache<T extends WithUTCTimestamp> {
      * @return first UTC Epoch after lastTimestamp, or NO_VALUE (-1L)
      */
     public long firstTimestampSince(long lastTimestamp) {
+        if (singleWriter) {
+            return published.firstTimestampSince(lastTimestamp);
+        }
         readLock.lock();
         try {
-            if (startTs == INIT_VALUE) {
-                return NO_VALUE;
-            }
-            int idx = slideForward(entries, findNearest(entries, lastTimestamp)) + 1;
-            return idx >= entries.size() ? NO_VALUE : timestampAt(entries, idx);
+            return live().firstTimestampSince(lastTimestamp);
         } finally {
             readLock.unlock();
         }
@@ -80,113 +141,131 @@ public class ReadoutCache<T extends WithUTCTimestamp> {
      * @return true if the cache is empty
      */
     public boolean isEmpty() {
-        readLock.lock();
-        try {
-            return entries.isEmpty();
-        } finally {
-            readLock.unlock();
-        }
+        return size() == 0;
     }
 
     /**
      * @return size of the cache
      */
     public int size() {
+        if (singleWriter) {
+            return published.size();
+        }
         readLock.lock();
         try {
-            return entries.size();
+            return size;
         } finally {
             readLock.unlock();
         }
     }
 
     /**
-     * Adds the entry to the cache.
-     * The cache's order is not guaranteed, as the entry
-     * is simply appended. Use several calls to this method
+     * Adds the entry to the cache. Entries not older than the newest entry in
+     * the cache are appended, others are inserted in their second's segment
+     * after the entries with the same timestamp. Publishing lines one at the
+     * time costs a lock per line, use {@linkplain #addAll(List)} for batches.
      *
      * @param entry to be added to the cache
      */
     public void add(T entry) {
         if (entry != null) {
-            writeLock.lock();
+            beginWrite();
             try {
-                entries.add(entry);
-                entries.sort(WithUTCTimestamp.COMPARING);
-                startTs = Math.min(startTs, entry.getUTCTimestamp());
+                insert(entry);
             } finally {
-                writeLock.unlock();
+                endWrite();
             }
         }
     }
 
     /**
-     * Adds the entries to the cache.
+     * Adds the entries to the cache, sorting them first unless they
+     * already are.
      *
      * @param newEntries to be added to the cache
      */
     public void addAll(List<T> newEntries) {
         if (newEntries != null && !newEntries.isEmpty()) {
-            newEntries.sort(WithUTCTimestamp.COMPARING);
-            writeLock.lock();
+            if (false == isSorted(newEntries)) {
+                newEntries.sort(WithUTCTimestamp.COMPARING);
+            }
+            beginWrite();
             try {
-                entries.addAll(newEntries);
-                startTs = Math.min(startTs, timestampAt(newEntries, 0));
+                for (int i = 0; i < newEntries.size(); i++) {
+                    insert(newEntries.get(i));
+                }
             } finally {
-                writeLock.unlock();
+                endWrite();
                 LOGGER.debug("Added {} entries", newEntries.size());
             }
         }
     }
 
+    private static <T extends WithUTCTimestamp> boolean isSorted(List<T> entries) {
+        for (int i = 1; i < entries.size(); i++) {
+            if (timestampAt(entries, i - 1) > timestampAt(entries, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * @param periodStart a UTC Epoch representing the period's start time
      * @param periodEnd   a UTC Epoch representing the period's end time (inclusive)
      * @return cache line containing the available entries for the period,
-     * both ends inclusive
+     * both ends inclusive, extended to whole seconds. Periods not overlapping
+     * the cache's contents are moved to the nearest second with entries
      */
     public List<T> fetch(long periodStart, long periodEnd) {
+        ReadoutCacheFetchEvent event = ReadoutCacheFetchEvent.enabled() ? new ReadoutCacheFetchEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
         List<T> cacheLine;
-        int startIdx;
-        int endIdx;
-        readLock.lock();
-        try {
-            if (entries.isEmpty()) {
-                return Collections.emptyList();
+        if (singleWriter) {
+            cacheLine = published.fetch(periodStart, periodEnd, false);
+        } else {
+            readLock.lock();
+            try {
+                cacheLine = live().fetch(periodStart, periodEnd, true);
+            } finally {
+                readLock.unlock();
             }
-            startIdx = slideBack(entries, findNearest(entries, periodStart));
-            endIdx = slideForward(entries, findNearest(entries, periodEnd));
-            cacheLine = startIdx == endIdx ?
-                    Collections.singletonList(entries.get(startIdx))
-                    :
-                    new ArrayList<>(entries.subList(startIdx, endIdx + 1));
-        } finally {
-            readLock.unlock();
         }
-        LOGGER.debug("Fetch count: {}, from: {} to: {}, startIdx: {}, endIdx (inclusive): {}",
+        commit(event, periodStart, periodEnd, cacheLine.size());
+        LOGGER.debug("Fetch count: {}, from: {} to: {}",
                 cacheLine.size(),
                 UTCTimestamp.formatForDisplay(periodStart),
-                UTCTimestamp.formatForDisplay(periodEnd),
-                startIdx,
-                endIdx);
+                UTCTimestamp.formatForDisplay(periodEnd));
         return cacheLine;
+    }
 
+    private static void commit(ReadoutCacheFetchEvent event, long periodStart, long periodEnd, int count) {
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.periodStart = periodStart;
+                event.periodEnd = periodEnd;
+                event.count = count;
+                event.commit();
+            }
+        }
     }
 
     /**
      * Clears the contents of the cache.
      */
     public void fullyEvict() {
-        int size;
-        writeLock.lock();
+        int evicted;
+        beginWrite();
         try {
-            size = entries.size();
-            entries.clear();
-            startTs = INIT_VALUE;
+            evicted = size;
+            clear();
         } finally {
-            writeLock.unlock();
+            endWrite();
         }
-        if (size > 0) {
+        if (evicted > 0) {
             LOGGER.debug("Fully evicted");
         } else {
             LOGGER.debug("Cache is ready");
@@ -194,34 +273,186 @@ public class ReadoutCache<T extends WithUTCTimestamp> {
     }
 
     /**
-     * Removes count entries from the start of the cache.
+     * Removes count entries from the start of the cache, dropping whole
+     * segments while possible.
      *
      * @param count number of entries to evict from the start
      */
     public void evict(int count) {
-        int size = 0;
-        writeLock.lock();
+        int remaining;
+        beginWrite();
         try {
-            size = entries.size();
             if (count > 0 && count < size) {
-                entries = new ArrayList<>(entries.subList(count, size));
-                startTs = timestampAt(entries, 0);
+                int left = count;
+                while (left > 0) {
+                    Segment<T> first = segments[head];
+                    if (first.size() <= left) {
+                        left -= first.size();
+                        segments[head] = null;
+                        head = (head + 1) & (segments.length - 1);
+                        segmentCount--;
+                    } else {
+                        first.dropFirst(left);
+                        left = 0;
+                    }
+                }
+                size -= count;
+                ringChanged = true;
             } else {
-                entries.clear();
-                startTs = INIT_VALUE;
+                clear();
             }
-            size = entries.size();
+            remaining = size;
         } finally {
+            endWrite();
+        }
+        if (remaining > 0) {
+            LOGGER.debug("Evicted count: {}, prev. size: {}, current size: {}",
+                    count,
+                    remaining + count,
+                    remaining);
+        } else {
+            LOGGER.debug("Fully evicted");
+        }
+    }
+
+    private void beginWrite() {
+        if (false == singleWriter) {
+            writeLock.lock();
+        }
+    }
+
+    private void endWrite() {
+        if (singleWriter) {
+            publish();
+        } else {
             writeLock.unlock();
-            if (size > 0) {
-                LOGGER.debug("Evicted count: {}, prev. size: {}, current size: {}",
-                        count,
-                        size + count,
-                        size);
-            } else {
-                LOGGER.debug("Fully evicted");
+        }
+    }
+
+    private void publish() {
+        View<T> previous = published;
+        Segment<T>[] frozen;
+        int from;
+        if (ringChanged || firstDirty < previous.count - 1) {
+            frozen = newSegments(segments.length);
+            from = 0;
+        } else {
+            // previous views do not read the slots past their second to last segment
+            frozen = previous.segments;
+            from = firstDirty;
+        }
+        int mask = segments.length - 1;
+        for (int i = from; i < segmentCount; i++) {
+            int slot = (head + i) & mask;
+            frozen[slot] = segments[slot].freeze();
+        }
+        Segment<T> last = segmentCount == 0 ? null : frozen[(head + segmentCount - 1) & mask];
+        published = new View<>(frozen, head, segmentCount, size, last);
+        ringChanged = false;
+        firstDirty = Integer.MAX_VALUE;
+    }
+
+    private View<T> live() {
+        Segment<T> last = segmentCount == 0 ? null : segments[(head + segmentCount - 1) & (segments.length - 1)];
+        return new View<>(segments, head, segmentCount, size, last);
+    }
+
+    private void clear() {
+        Arrays.fill(segments, null);
+        head = 0;
+        segmentCount = 0;
+        size = 0;
+        ringChanged = true;
+    }
+
+    private void changed(int idx) {
+        firstDirty = Math.min(firstDirty, idx);
+    }
+
+    private void insert(T entry) {
+        long ts = entry.getUTCTimestamp();
+        long second = Math.floorDiv(ts, 1000L);
+        int mask = segments.length - 1;
+        if (segmentCount > 0) {
+            Segment<T> last = segments[(head + segmentCount - 1) & mask];
+            if (last.second == second) {
+                last.add(entry);
+                changed(segmentCount - 1);
+                size++;
+                return;
             }
         }
+        int idx = live().locate(second);
+        if (idx >= 0) {
+            segments[(head + idx) & mask].add(entry);
+            changed(idx);
+        } else {
+            Segment<T> segment = new Segment<>(second, rowsFactory);
+            segment.add(entry);
+            insertSegment(-idx - 1, segment);
+        }
+        size++;
+    }
+
+    private void insertSegment(int idx, Segment<T> segment) {
+        if (segmentCount == segments.length) {
+            Segment<T>[] grown = newSegments(segments.length * 2);
+            for (int i = 0; i < segmentCount; i++) {
+                grown[i] = segments[(head + i) & (segments.length - 1)];
+            }
+            segments = grown;
+            head = 0;
+            ringChanged = true;
+        }
+        int mask = segments.length - 1;
+        if (idx == 0) {
+            head = (head - 1) & mask;
+            ringChanged = true;
+        } else {
+            for (int i = segmentCount; i > idx; i--) {
+                segments[(head + i) & mask] = segments[(head + i - 1) & mask];
+            }
+            changed(idx);
+        }
+        segments[(head + idx) & mask] = segment;
+        segmentCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends WithUTCTimestamp> Segment<T>[] newSegments(int length) {
+        return (Segment<T>[]) new Segment<?>[length];
+    }
+
+    /**
+     * K-way merge of runs sorted by timestamp. Entries with the same
+     * timestamp keep the order of their runs.
+     *
+     * @param runs lists of entries, each sorted
+     * @param <T>  a class implementing {@link WithUTCTimestamp}
+     * @return a new list with all the entries, sorted
+     */
+    static <T extends WithUTCTimestamp> List<T> merge(List<List<T>> runs) {
+        int total = 0;
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) -> {
+            int cmp = Long.compare(timestampAt(runs.get(a[0]), a[1]), timestampAt(runs.get(b[0]), b[1]));
+            return cmp != 0 ? cmp : Integer.compare(a[0], b[0]);
+        });
+        for (int r = 0; r < runs.size(); r++) {
+            total += runs.get(r).size();
+            if (false == runs.get(r).isEmpty()) {
+                heads.add(new int[]{r, 0}); // run, idx
+            }
+        }
+        List<T> merged = new ArrayList<>(total);
+        while (false == heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<T> run = runs.get(head[0]);
+            merged.add(run.get(head[1]++));
+            if (head[1] < run.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
     }
 
     /**
@@ -309,4 +540,228 @@ public class ReadoutCache<T extends WithUTCTimestamp> {
         }
         return NO_VALUE;
     }
+
+    /**
+     * Segments in ascending order, in a circular array of power of two length.
+     * The last segment is held by the view, as the array's slot may be set by
+     * later views sharing the array.
+     */
+    private record View<T extends WithUTCTimestamp>(Segment<T>[] segments, int head, int count, int size,
+                                                    Segment<T> last) {
+
+        private Segment<T> segment(int idx) {
+            return idx == count - 1 ? last : segments[(head + idx) & (segments.length - 1)];
+        }
+
+        private long firstTimestamp() {
+            return size == 0 ? NO_VALUE : segment(0).firstTimestamp();
+        }
+
+        private long firstTimestampSince(long lastTimestamp) {
+            if (size == 0) {
+                return NO_VALUE;
+            }
+            int idx = nearestSegment(lastTimestamp) + 1;
+            return idx >= count ? NO_VALUE : segment(idx).firstTimestamp();
+        }
+
+        /**
+         * @param share whether to mark the rows read shared, when the view is not
+         *              of frozen segments, to be called holding the read lock
+         */
+        private List<T> fetch(long periodStart, long periodEnd, boolean share) {
+            if (size == 0) {
+                return Collections.emptyList();
+            }
+            int startIdx = nearestSegment(periodStart);
+            int endIdx = nearestSegment(periodEnd);
+            int total = 0;
+            for (int i = startIdx; i <= endIdx; i++) {
+                Segment<T> segment = segment(i);
+                total += segment.size();
+                if (share) {
+                    segment.shareIfViewed();
+                }
+            }
+            if (total == 1) {
+                return Collections.singletonList(segment(startIdx).get(0));
+            }
+            List<T> cacheLine = new ArrayList<>(total);
+            for (int i = startIdx; i <= endIdx; i++) {
+                segment(i).copyTo(cacheLine);
+            }
+            return cacheLine;
+        }
+
+        /**
+         * @return the index of the second's segment, or -(insertion point) - 1
+         */
+        private int locate(long second) {
+            if (count == 0) {
+                return -1;
+            }
+            long guess = second - segment(0).second;
+            if (guess >= 0 && guess < count && segment((int) guess).second == second) {
+                return (int) guess;
+            }
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midSecond = segment(mid).second;
+                if (midSecond < second) {
+                    low = mid + 1;
+                } else if (midSecond > second) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * Equivalent of {@linkplain ReadoutCache#findNearest(List, long)} followed by sliding to
+         * the whole second, for non-empty views.
+         *
+         * @return the index of the segment holding the entry nearest in time to timestamp
+         */
+        private int nearestSegment(long timestamp) {
+            if (timestamp <= segment(0).firstTimestamp()) {
+                return 0;
+            }
+            if (timestamp >= segment(count - 1).lastTimestamp()) {
+                return count - 1;
+            }
+            int idx = locate(Math.floorDiv(timestamp, 1000L));
+            int below;
+            int above;
+            if (idx >= 0) {
+                Segment<T> segment = segment(idx);
+                if (timestamp < segment.firstTimestamp()) {
+                    below = idx - 1;
+                    above = idx;
+                } else if (timestamp > segment.lastTimestamp()) {
+                    below = idx;
+                    above = idx + 1;
+                } else {
+                    return idx;
+                }
+            } else {
+                above = -idx - 1;
+                below = above - 1;
+            }
+            long belowDistance = timestamp - segment(below).lastTimestamp();
+            long aboveDistance = segment(above).firstTimestamp() - timestamp;
+            return belowDistance <= aboveDistance ? below : above;
+        }
+    }
+
+    /**
+     * Entries of one second, sorted, in rows [start, end). Once frozen, or once
+     * views of the rows have been fetched, the rows are shared, and they are
+     * copied before changing them other than by appending.
+     */
+    private static final class Segment<T extends WithUTCTimestamp> {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final long second;
+        private Rows<T> rows;
+        private int start;
+        private int end;
+        private Segment<T> frozen;
+
+        private Segment(long second, Rows.Factory<T> rowsFactory) {
+            this(second, rowsFactory.newRows(second, INITIAL_CAPACITY), 0, 0);
+        }
+
+        private Segment(long second, Rows<T> rows, int start, int end) {
+            this.second = second;
+            this.rows = rows;
+            this.start = start;
+            this.end = end;
+        }
+
+        private int size() {
+            return end - start;
+        }
+
+        private T get(int idx) {
+            return rows.get(start + idx);
+        }
+
+        private long firstTimestamp() {
+            return rows.timestamp(start);
+        }
+
+        private long lastTimestamp() {
+            return rows.timestamp(end - 1);
+        }
+
+        private Segment<T> freeze() {
+            if (frozen == null) {
+                frozen = new Segment<>(second, rows, start, end);
+                rows.share();
+            }
+            return frozen;
+        }
+
+        private void shareIfViewed() {
+            if (rows.hasViews()) {
+                rows.share();
+            }
+        }
+
+        private void add(T entry) {
+            rows.check(entry);
+            frozen = null;
+            int capacity = rows.capacity();
+            if (end == capacity) {
+                if (start > capacity >>> 1 && false == rows.isShared()) {
+                    rows.move(start, 0, end - start);
+                    rows.clear(end - start, end);
+                } else {
+                    rows = rows.copy(start, start > capacity >>> 1 ? capacity : capacity * 2);
+                }
+                end -= start;
+                start = 0;
+            }
+            long ts = entry.getUTCTimestamp();
+            if (end == start || rows.timestamp(end - 1) <= ts) {
+                rows.set(end, entry);
+                end++;
+                return;
+            }
+            if (rows.isShared()) {
+                rows = rows.copy(0, rows.capacity());
+            }
+            int low = start;
+            int high = end;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (rows.timestamp(mid) <= ts) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            rows.move(low, low + 1, end - low);
+            rows.set(low, entry);
+            end++;
+        }
+
+        private void dropFirst(int count) {
+            frozen = null;
+            if (false == rows.isShared()) {
+                rows.clear(start, start + count);
+            }
+            start += count;
+        }
+
+        private void copyTo(List<T> target) {
+            for (int i = start; i < end; i++) {
+                target.add(rows.get(i));
+            }
+        }
+    }
 }
@@ -0,0 +1,35 @@
+package com.fern.util.clf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timestamp;
+
+/**
+ * JFR event for {@linkplain ReadoutCache#fetch(long, long)}.
+ */
+@Name("com.fern.ReadoutCacheFetch")
+@Label("Readout Cache Fetch")
+@Category({"Fern", "CLF"})
+@Description("Fetch of the entries of a period from a readout cache")
+@StackTrace(false)
+final class ReadoutCacheFetchEvent extends jdk.jfr.Event {
+    private static final ReadoutCacheFetchEvent PROBE = new ReadoutCacheFetchEvent();
+
+    static boolean enabled() {
+        return PROBE.isEnabled();
+    }
+
+    @Label("Period Start")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long periodStart;
+
+    @Label("Period End")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long periodEnd;
+
+    @Label("Count")
+    int count;
+}
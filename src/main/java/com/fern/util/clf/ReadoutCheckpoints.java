@@ -0,0 +1,315 @@
+package com.fern.util.clf;
+
+import com.fern.util.ILogger;
+import com.fern.util.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Durable record of where each {@link FileReadoutHandler} got to, so that after
+ * a restart the readout resumes from the last checkpoint rather than from the
+ * start or the end of the file.
+ * <p>
+ * A checkpoint is (file identity, read offset, last timestamp), the identity
+ * being the file key (the inode on Unix) so that a file rotated, or truncated,
+ * since the checkpoint is read from the start.
+ * <p>
+ * Checkpoints are kept in memory by {@linkplain #update(FileReadoutHandler, int)},
+ * and written to the journal file, followed by a single fsync, once every
+ * 'everyLines' lines read, or 'everyMillis' elapsed, across all handlers. There
+ * is no timer, so callers that go idle should call {@linkplain #flush()}.
+ * <p>
+ * The journal is append only, each record being [length, payload, CRC32], and
+ * on open it is replayed up to the first torn or corrupt record. It is compacted,
+ * written to a temporary file, fsynced, atomically moved over, and the directory
+ * fsynced, once it holds many more records than handlers.
+ */
+public class ReadoutCheckpoints implements Closeable {
+
+    /**
+     * Position of a file's readout.
+     *
+     * @param fileIdentity  the file key, or "" when the file system does not provide keys
+     * @param offset        offset of the next line to be read
+     * @param lastTimestamp latest UTC Epoch read, or ReadoutCache.NO_VALUE (-1L)
+     */
+    public record Checkpoint(String fileIdentity, long offset, long lastTimestamp) {
+    }
+
+    private static final ILogger LOGGER = Logger.loggerFor(ReadoutCheckpoints.class);
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+    private static final long COMPACTION_MIN_SIZE = 64 * 1024;
+    private static final int COMPACTION_RATIO = 8;
+
+    private final Path journalFile;
+    private final int everyLines;
+    private final long everyMillis;
+    private final Map<String, Checkpoint> checkpoints;
+    private final Map<String, Checkpoint> dirty;
+    private FileChannel journal;
+    private long journalRecords;
+    private int pendingLines;
+    private long lastFlushMillis;
+    private long flushCount;
+
+    /**
+     * Constructor, opens the journal file (creating it when it does not exist)
+     * and restores the checkpoints in it.
+     *
+     * @param journalFile file where checkpoints are recorded
+     * @param everyLines  lines read before a checkpoint is written
+     * @param everyMillis millis elapsed before a checkpoint is written
+     * @throws IOException when the journal cannot be read, or written
+     */
+    public ReadoutCheckpoints(Path journalFile, int everyLines, long everyMillis) throws IOException {
+        if (everyLines < 1 || everyMillis < 0L) {
+            throw new IllegalArgumentException("everyLines must be > 0, everyMillis >= 0");
+        }
+        this.journalFile = Objects.requireNonNull(journalFile);
+        this.everyLines = everyLines;
+        this.everyMillis = everyMillis;
+        checkpoints = new HashMap<>();
+        dirty = new LinkedHashMap<>();
+        journal = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long validSize = replay();
+        if (validSize < journal.size()) {
+            LOGGER.warn("Discarding {} bytes of torn checkpoints at the end of {}",
+                    journal.size() - validSize, journalFile);
+            journal.truncate(validSize);
+            journal.force(false);
+        }
+        journal.position(validSize);
+        lastFlushMillis = System.currentTimeMillis();
+        LOGGER.debug("Restored {} checkpoints from {}", checkpoints.size(), journalFile);
+    }
+
+    /**
+     * @param file a file being readout
+     * @return its last checkpoint, or null
+     */
+    public synchronized Checkpoint get(Path file) {
+        return checkpoints.get(keyOf(file));
+    }
+
+    /**
+     * Moves the handler to its checkpoint, when the file is the same file and
+     * it is not shorter than the checkpoint's offset. Otherwise, when there is
+     * a checkpoint, the handler is moved to the start.
+     *
+     * @param handler readout handler
+     * @return true if the handler resumes from its checkpoint
+     * @throws IOException when the file's attributes cannot be read
+     */
+    public synchronized boolean restore(FileReadoutHandler<?> handler) throws IOException {
+        Checkpoint checkpoint = checkpoints.get(keyOf(handler.getFile()));
+        if (checkpoint == null) {
+            return false;
+        }
+        Path file = handler.getFile();
+        if (Files.exists(file)
+                && identityOf(handler.fileKey()).equals(checkpoint.fileIdentity())
+                && Files.size(file) >= checkpoint.offset()) {
+            handler.moveTo(checkpoint.offset(), checkpoint.lastTimestamp());
+            return true;
+        }
+        LOGGER.info("File changed since its checkpoint, reading from the start: {}", handler.getFile());
+        handler.moveTo(0L, checkpoint.lastTimestamp());
+        return false;
+    }
+
+    /**
+     * Records the handler's position after a readout, writing the pending
+     * checkpoints when 'everyLines' lines have been read, or 'everyMillis'
+     * elapsed, since the last write.
+     *
+     * @param handler   readout handler
+     * @param linesRead lines read since the last update
+     * @throws IOException when the journal cannot be written
+     */
+    public synchronized void update(FileReadoutHandler<?> handler, int linesRead) throws IOException {
+        String key = keyOf(handler.getFile());
+        Checkpoint checkpoint = new Checkpoint(
+                identityOf(handler.fileKey()),
+                handler.getFileReadOffset(),
+                handler.getLastTimestamp());
+        if (false == checkpoint.equals(checkpoints.put(key, checkpoint))) {
+            dirty.put(key, checkpoint);
+        }
+        pendingLines += linesRead;
+        if (pendingLines >= everyLines || System.currentTimeMillis() - lastFlushMillis >= everyMillis) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the pending checkpoints, followed by a single fsync.
+     *
+     * @throws IOException when the journal cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        if (false == dirty.isEmpty()) {
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            for (Map.Entry<String, Checkpoint> entry : dirty.entrySet()) {
+                writeRecord(records, entry.getKey(), entry.getValue());
+            }
+            writeFully(journal, ByteBuffer.wrap(records.toByteArray()));
+            journal.force(false);
+            journalRecords += dirty.size();
+            dirty.clear();
+            flushCount++;
+            if (journal.size() > COMPACTION_MIN_SIZE && journalRecords > (long) COMPACTION_RATIO * checkpoints.size()) {
+                compact();
+            }
+        }
+        pendingLines = 0;
+        lastFlushMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * @return number of times the journal has been written (and fsynced)
+     */
+    public synchronized long flushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Flushes the pending checkpoints and closes the journal.
+     *
+     * @throws IOException when the journal cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal.isOpen()) {
+            try {
+                flush();
+            } finally {
+                journal.close();
+            }
+        }
+    }
+
+    private void compact() throws IOException {
+        Path tmpFile = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try (FileChannel tmp = FileChannel.open(tmpFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            for (Map.Entry<String, Checkpoint> entry : checkpoints.entrySet()) {
+                writeRecord(records, entry.getKey(), entry.getValue());
+            }
+            writeFully(tmp, ByteBuffer.wrap(records.toByteArray()));
+            tmp.force(false);
+        }
+        journal.close(); // some platforms do not move files over open ones
+        try {
+            Files.move(tmpFile, journalFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            journalRecords = checkpoints.size();
+            syncDirectory(journalFile.toAbsolutePath().getParent());
+        } finally {
+            // the compacted journal, or the original one when the move failed
+            journal = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            journal.position(journal.size());
+        }
+        LOGGER.debug("Compacted {} to {} checkpoints", journalFile, journalRecords);
+    }
+
+    /**
+     * Makes the move of the compacted journal durable, on the platforms where
+     * directories can be opened and fsynced.
+     */
+    private static void syncDirectory(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.debug("Cannot fsync directory {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * @return size of the valid prefix of the journal
+     */
+    private long replay() throws IOException {
+        long size = journal.size();
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        long position = 0L;
+        while (position + Integer.BYTES <= size) {
+            header.clear();
+            readFully(journal, header, position);
+            int length = header.getInt(0);
+            if (length <= 0 || length > MAX_RECORD_SIZE || position + Integer.BYTES + length + Integer.BYTES > size) {
+                break;
+            }
+            ByteBuffer record = ByteBuffer.allocate(length + Integer.BYTES);
+            readFully(journal, record, position + Integer.BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, length);
+            if ((int) crc.getValue() != record.getInt(length)) {
+                break;
+            }
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.array(), 0, length))) {
+                String key = in.readUTF();
+                checkpoints.put(key, new Checkpoint(in.readUTF(), in.readLong(), in.readLong()));
+            }
+            journalRecords++;
+            position += Integer.BYTES + length + Integer.BYTES;
+        }
+        return position;
+    }
+
+    private static void writeRecord(ByteArrayOutputStream records, String key, Checkpoint checkpoint) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            out.writeUTF(key);
+            out.writeUTF(checkpoint.fileIdentity());
+            out.writeLong(checkpoint.offset());
+            out.writeLong(checkpoint.lastTimestamp());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload.toByteArray());
+        DataOutputStream out = new DataOutputStream(records);
+        out.writeInt(payload.size());
+        payload.writeTo(out);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of journal");
+            }
+        }
+    }
+
+    private static String keyOf(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    private static String identityOf(Object fileKey) {
+        return fileKey == null ? "" : fileKey.toString();
+    }
+}
@@ -0,0 +1,196 @@
+package com.fern.util.clf;
+
+import com.fern.util.ILogger;
+import com.fern.util.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Readout cache tolerant of entries arriving slightly out of order, as logs
+ * written by multi-threaded servers do.
+ * <p>
+ * Entries added are held in a min-heap, the reorder buffer, until the watermark,
+ * the newest timestamp seen minus the lateness window, passes them. They are
+ * then added to the cache in timestamp order, so that the cache is appended to.
+ * Entries older than the watermark when they arrive, or than an entry already
+ * added to the cache, are late, they are counted and merged into the cache.
+ * When the buffer holds more than maxPending entries, the oldest are added to
+ * the cache regardless of the watermark.
+ * <p>
+ * Buffered entries are not visible to readers (size, fetch, etc.) until added
+ * to the cache, which {@linkplain #flush()} forces.
+ *
+ * @param <T> a class implementing {@link WithUTCTimestamp}
+ */
+public class ReorderingReadoutCache<T extends WithUTCTimestamp> extends ReadoutCache<T> {
+
+    private static final ILogger LOGGER = Logger.loggerFor(ReorderingReadoutCache.class);
+
+    private record Pending<T>(T entry, long timestamp, long seq) {
+    }
+
+    private final long latenessMillis;
+    private final int maxPending;
+    private final PriorityQueue<Pending<T>> pending;
+    private long maxTimestamp;
+    private long releasedTimestamp;
+    private long seq;
+    private long lateCount;
+
+    /**
+     * Constructor, readers and writers share a lock.
+     *
+     * @param latenessMillis lateness window, entries this much older than the newest
+     *                       entry seen are still added in order
+     * @param maxPending     maximum number of entries in the reorder buffer
+     */
+    public ReorderingReadoutCache(long latenessMillis, int maxPending) {
+        this(latenessMillis, maxPending, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param latenessMillis lateness window, entries this much older than the newest
+     *                       entry seen are still added in order
+     * @param maxPending     maximum number of entries in the reorder buffer
+     * @param singleWriter   see {@linkplain ReadoutCache#ReadoutCache(boolean)}
+     */
+    public ReorderingReadoutCache(long latenessMillis, int maxPending, boolean singleWriter) {
+        super(singleWriter);
+        if (latenessMillis < 0L || maxPending < 1) {
+            throw new IllegalArgumentException("latenessMillis must be >= 0, maxPending > 0");
+        }
+        this.latenessMillis = latenessMillis;
+        this.maxPending = maxPending;
+        pending = new PriorityQueue<>(Comparator
+                .comparingLong((Pending<T> p) -> p.timestamp)
+                .thenComparingLong(p -> p.seq));
+        maxTimestamp = NO_VALUE;
+        releasedTimestamp = NO_VALUE;
+    }
+
+    /**
+     * @return UTC Epoch of the watermark, entries older than it are late, or
+     * NO_VALUE (-1L) before the first entry
+     */
+    public synchronized long watermark() {
+        return maxTimestamp == NO_VALUE ? NO_VALUE : maxTimestamp - latenessMillis;
+    }
+
+    /**
+     * @return number of entries in the reorder buffer
+     */
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return number of entries that arrived late, and were merged into the cache
+     */
+    public synchronized long lateCount() {
+        return lateCount;
+    }
+
+    /**
+     * Buffers the entry, adding to the cache the entries passed by the watermark.
+     *
+     * @param entry to be added to the cache
+     */
+    @Override
+    public synchronized void add(T entry) {
+        if (entry != null) {
+            if (buffer(entry)) {
+                lateCount++;
+                LOGGER.debug("Merging late entry");
+                super.add(entry);
+            }
+            release(maxTimestamp - latenessMillis);
+        }
+    }
+
+    /**
+     * Buffers the entries, adding to the cache the entries passed by the watermark.
+     *
+     * @param newEntries to be added to the cache
+     */
+    @Override
+    public synchronized void addAll(List<T> newEntries) {
+        if (newEntries != null && !newEntries.isEmpty()) {
+            List<T> late = null;
+            for (int i = 0; i < newEntries.size(); i++) {
+                T entry = newEntries.get(i);
+                if (buffer(entry)) {
+                    if (late == null) {
+                        late = new ArrayList<>();
+                    }
+                    late.add(entry);
+                }
+            }
+            if (late != null) {
+                lateCount += late.size();
+                LOGGER.debug("Merging {} late entries", late.size());
+                super.addAll(late);
+            }
+            release(maxTimestamp - latenessMillis);
+        }
+    }
+
+    /**
+     * Adds all the entries in the reorder buffer to the cache.
+     */
+    public synchronized void flush() {
+        release(Long.MAX_VALUE);
+    }
+
+    /**
+     * Clears the contents of the cache, and of the reorder buffer.
+     */
+    @Override
+    public synchronized void fullyEvict() {
+        pending.clear();
+        maxTimestamp = NO_VALUE;
+        releasedTimestamp = NO_VALUE;
+        super.fullyEvict();
+    }
+
+    /**
+     * @return true when the entry is late, and was not buffered
+     */
+    private boolean buffer(T entry) {
+        long ts = entry.getUTCTimestamp();
+        if (maxTimestamp != NO_VALUE && ts < Math.max(maxTimestamp - latenessMillis, releasedTimestamp)) {
+            return true;
+        }
+        pending.add(new Pending<>(entry, ts, seq++));
+        maxTimestamp = Math.max(maxTimestamp, ts);
+        return false;
+    }
+
+    private void release(long watermark) {
+        T first = null;
+        List<T> released = null;
+        while (false == pending.isEmpty()
+                && (pending.peek().timestamp <= watermark || pending.size() > maxPending)) {
+            Pending<T> next = pending.poll();
+            if (first == null) {
+                first = next.entry;
+            } else {
+                if (released == null) {
+                    released = new ArrayList<>();
+                    released.add(first);
+                }
+                released.add(next.entry);
+            }
+            releasedTimestamp = next.timestamp;
+        }
+        if (released != null) {
+            super.addAll(released);
+        } else if (first != null) {
+            super.add(first);
+        }
+    }
+}
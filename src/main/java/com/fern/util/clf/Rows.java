@@ -0,0 +1,166 @@
+package com.fern.util.clf;
+
+import java.util.Arrays;
+
+/**
+ * Fixed capacity storage of the entries of a {@link ReadoutCache} segment,
+ * one second's worth of entries. The segment keeps track of which rows are
+ * in use, and of their order.
+ * <p>
+ * Rows are shared once published to readers, or once views of them have been
+ * handed out, and must then not be changed other than by setting rows past the
+ * ones in use. The segment copies shared rows before changing them otherwise.
+ *
+ * @param <T> a class implementing {@link WithUTCTimestamp}
+ */
+abstract class Rows<T extends WithUTCTimestamp> {
+
+    /**
+     * Creates the rows of a segment.
+     *
+     * @param <T> a class implementing {@link WithUTCTimestamp}
+     */
+    @FunctionalInterface
+    interface Factory<T extends WithUTCTimestamp> {
+
+        /**
+         * @param second   UTC Epoch, in seconds, of the entries to be stored
+         * @param capacity number of rows
+         * @return empty rows
+         */
+        Rows<T> newRows(long second, int capacity);
+    }
+
+    private boolean isShared;
+
+    /**
+     * @return number of rows
+     */
+    abstract int capacity();
+
+    /**
+     * @param idx row index
+     * @return the entry in the row
+     */
+    abstract T get(int idx);
+
+    /**
+     * @param idx row index
+     * @return UTC Epoch of the entry in the row
+     */
+    abstract long timestamp(int idx);
+
+    /**
+     * Checks that the entry can be stored in the rows, before the segment
+     * changes anything. All entries can be stored by default.
+     *
+     * @param entry to be stored
+     * @throws IllegalArgumentException when it cannot be stored
+     */
+    void check(T entry) {
+        // all entries can be stored by default
+    }
+
+    /**
+     * @param idx   row index
+     * @param entry to be stored in the row, checked
+     */
+    abstract void set(int idx, T entry);
+
+    /**
+     * Moves rows within, as {@linkplain System#arraycopy(Object, int, Object, int, int)}.
+     *
+     * @param from  index of the first row moved
+     * @param to    index where it is moved to
+     * @param count number of rows moved
+     */
+    abstract void move(int from, int to, int count);
+
+    /**
+     * @param from     index of the first row copied
+     * @param capacity number of rows of the copy
+     * @return new rows, with the rows from 'from' onwards at the start
+     */
+    abstract Rows<T> copy(int from, int capacity);
+
+    /**
+     * Releases the references held by the rows in [from, to).
+     *
+     * @param from index of the first row
+     * @param to   index after the last row
+     */
+    void clear(int from, int to) {
+        // nothing to release by default
+    }
+
+    /**
+     * @return true when {@linkplain #get(int)} returns views of the rows, rather
+     * than the entries stored, in which case rows read are shared
+     */
+    boolean hasViews() {
+        return false;
+    }
+
+    final boolean isShared() {
+        return isShared;
+    }
+
+    final void share() {
+        if (false == isShared) {
+            isShared = true;
+        }
+    }
+
+    /**
+     * Rows holding references to the entries.
+     *
+     * @param <T> a class implementing {@link WithUTCTimestamp}
+     */
+    static final class OfObjects<T extends WithUTCTimestamp> extends Rows<T> {
+        private final Object[] items;
+
+        OfObjects(long second, int capacity) {
+            this(new Object[capacity]);
+        }
+
+        private OfObjects(Object[] items) {
+            this.items = items;
+        }
+
+        @Override
+        int capacity() {
+            return items.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        T get(int idx) {
+            return (T) items[idx];
+        }
+
+        @Override
+        long timestamp(int idx) {
+            return ((WithUTCTimestamp) items[idx]).getUTCTimestamp();
+        }
+
+        @Override
+        void set(int idx, T entry) {
+            items[idx] = entry;
+        }
+
+        @Override
+        void move(int from, int to, int count) {
+            System.arraycopy(items, from, items, to, count);
+        }
+
+        @Override
+        Rows<T> copy(int from, int capacity) {
+            return new OfObjects<>(Arrays.copyOfRange(items, from, from + capacity));
+        }
+
+        @Override
+        void clear(int from, int to) {
+            Arrays.fill(items, from, to, null);
+        }
+    }
+}
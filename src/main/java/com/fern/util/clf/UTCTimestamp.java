@@ -1,20 +1,22 @@
 package com.fern.util.clf;
 
+import java.nio.ByteBuffer;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Arrays;
-import java.util.Locale;
 import java.util.TimeZone;
 
 /**
  * Utilities type class containing methods to handle timestamps, which
  * internally are converted to a UTC Epoch (a long).
  * <p>
- * The timestamps format is assumed to be:
- * <a href="https://docs.oracle.com/en/java/javase/17/docs/api/java.base/java/text/SimpleDateFormat.html">dd/MMMM/yyyy:HH:mm:ss Z</a>
+ * The timestamps format is assumed to be "dd/MMM/yyyy:HH:mm:ss Z", the month
+ * being numeric or a name (full, or its first three letters, any case), and
+ * the zone [+-]HHMM.
  * <p>
- * <b>NOTE</b>: SimpleDateFormat is not thread safe, so we use two
- * instances (parse and format are called by different threads).
+ * Parsing and formatting are arithmetic and safe on any thread. Log lines come
+ * in bursts sharing the same second, so each thread keeps the last text it parsed
+ * and the last second it formatted, and repeats skip the work. Keeping them per
+ * thread means workers reading different files, or different parts of a file,
+ * do not evict each other's entries.
  */
 public final class UTCTimestamp {
 
@@ -23,40 +25,240 @@ public final class UTCTimestamp {
      */
     public static final TimeZone UTC = TimeZone.getTimeZone("UTC");
 
-    private static final SimpleDateFormat [] DATETIME_IN = {
-            new SimpleDateFormat("dd/MM/yyyy:HH:mm:ss Z", Locale.ENGLISH),
-            new SimpleDateFormat("dd/MMMM/yyyy:HH:mm:ss Z", Locale.ENGLISH)
+    /**
+     * Returned by {@linkplain #parse(ByteBuffer, int, int)} when the format is not followed.
+     */
+    static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final byte[][] MONTHS = {
+            "january".getBytes(), "february".getBytes(), "march".getBytes(), "april".getBytes(),
+            "may".getBytes(), "june".getBytes(), "july".getBytes(), "august".getBytes(),
+            "september".getBytes(), "october".getBytes(), "november".getBytes(), "december".getBytes()
     };
-    private static final SimpleDateFormat DATETIME_OUT =
-            new SimpleDateFormat("dd/MM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
-    static {
-        DATETIME_OUT.setTimeZone(UTC);
-        Arrays.stream(DATETIME_IN).forEach(dt -> dt.setTimeZone(UTC));
+
+    /**
+     * Last parsed text and last formatted second, of one thread.
+     */
+    private static final class Cache {
+        private byte[] parsedText = new byte[32];
+        private int parsedLength;
+        private long parsedEpoch = NO_TIMESTAMP;
+        private long formattedSecond = NO_TIMESTAMP;
+        private String formattedText;
     }
 
+    private static final ThreadLocal<Cache> CACHE = ThreadLocal.withInitial(Cache::new);
+
     /**
      * Parses the timestamp and returns the equivalent UTC Epoch
-     * @param dateTimeZ in the format "dd/MMMM/yyyy:HH:mm:ss Z"
+     * @param dateTimeZ in the format "dd/MMM/yyyy:HH:mm:ss Z"
      * @return the UTC Epoch equivalent to dateTime
      * @throws ParseException when the format is not followed
      */
     public static long parse(String dateTimeZ) throws ParseException {
-        for (int i = 0; i < DATETIME_IN.length; i++) {
-            try {
-                return DATETIME_IN[i].parse(dateTimeZ).getTime();
-            } catch (ParseException ignore) {
-                // try next
+        long epoch = parse(dateTimeZ, 0, dateTimeZ.length());
+        if (epoch == NO_TIMESTAMP) {
+            throw new ParseException(dateTimeZ, 0);
+        }
+        return epoch;
+    }
+
+    /**
+     * Parses the ASCII timestamp in buffer[offset, end), without allocating
+     * unless the second differs from the last one parsed.
+     *
+     * @return the UTC Epoch, or NO_TIMESTAMP when the format is not followed
+     */
+    static long parse(ByteBuffer buffer, int offset, int end) {
+        return parse((Object) buffer, offset, end);
+    }
+
+    /**
+     * @param source a ByteBuffer, or a CharSequence
+     */
+    private static long parse(Object source, int offset, int end) {
+        Cache cache = CACHE.get();
+        if (sameText(source, offset, end, cache.parsedText, cache.parsedLength)) {
+            return cache.parsedEpoch;
+        }
+        long epoch = parseText(source, offset, end);
+        if (epoch != NO_TIMESTAMP) {
+            int length = end - offset;
+            if (length > cache.parsedText.length) {
+                cache.parsedText = new byte[length];
+            }
+            for (int i = 0; i < length; i++) {
+                cache.parsedText[i] = (byte) at(source, offset + i);
+            }
+            cache.parsedLength = length;
+            cache.parsedEpoch = epoch;
+        }
+        return epoch;
+    }
+
+    private static boolean sameText(Object source, int offset, int end, byte[] text, int length) {
+        if (end - offset != length || length == 0) {
+            return false;
+        }
+        for (int i = length - 1; i >= 0; i--) { // seconds differ first
+            if (at(source, offset + i) != text[i]) {
+                return false;
             }
         }
-        throw new ParseException(dateTimeZ, 0);
+        return true;
+    }
+
+    private static int at(Object source, int i) {
+        return source instanceof ByteBuffer buffer ? buffer.get(i) : ((CharSequence) source).charAt(i);
+    }
+
+    private static long parseText(Object source, int offset, int end) {
+        int p = offset;
+        int day = 0;
+        for (int digits = 0; p < end && isDigit(at(source, p)) && digits < 2; p++, digits++) {
+            day = day * 10 + at(source, p) - '0';
+        }
+        if (p == offset || p >= end || at(source, p++) != '/') {
+            return NO_TIMESTAMP;
+        }
+        int month = 0;
+        int monthStart = p;
+        if (p < end && isDigit(at(source, p))) {
+            for (; p < end && isDigit(at(source, p)) && p - monthStart < 2; p++) {
+                month = month * 10 + at(source, p) - '0';
+            }
+        } else {
+            while (p < end && at(source, p) != '/') {
+                p++;
+            }
+            month = monthOf(source, monthStart, p);
+        }
+        if (p >= end || at(source, p++) != '/') {
+            return NO_TIMESTAMP;
+        }
+        int year = digits(source, p, 4, end);
+        p += 4;
+        if (year < 0 || p >= end || at(source, p++) != ':') {
+            return NO_TIMESTAMP;
+        }
+        int hours = digits(source, p, 2, end);
+        int minutes = p + 2 < end && at(source, p + 2) == ':' ? digits(source, p + 3, 2, end) : -1;
+        int seconds = p + 5 < end && at(source, p + 5) == ':' ? digits(source, p + 6, 2, end) : -1;
+        p += 8;
+        if (p >= end || at(source, p++) != ' ' || p >= end) {
+            return NO_TIMESTAMP;
+        }
+        int sign = at(source, p++);
+        int zone = digits(source, p, 4, end);
+        if ((sign != '+' && sign != '-') || zone < 0 || p + 4 != end
+                || day < 1 || day > 31 || month < 1 || month > 12
+                || hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+            return NO_TIMESTAMP;
+        }
+        long zoneMillis = ((zone / 100) * 60L + zone % 100) * 60_000L;
+        long epochSeconds = ((daysFromCivil(year, month, day) * 24L + hours) * 60L + minutes) * 60L + seconds;
+        return epochSeconds * 1000L - (sign == '+' ? zoneMillis : -zoneMillis);
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return the value of count ASCII digits at offset, or -1
+     */
+    private static int digits(Object source, int offset, int count, int end) {
+        if (offset + count > end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int c = at(source, i);
+            if (false == isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private static int monthOf(Object source, int offset, int end) {
+        int len = end - offset;
+        for (int m = 0; m < MONTHS.length; m++) {
+            byte[] name = MONTHS[m];
+            if (len == 3 || len == name.length) {
+                int i = 0;
+                while (i < len && (at(source, offset + i) | 0x20) == name[i]) {
+                    i++;
+                }
+                if (i == len) {
+                    return m + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return days since 1970-01-01 of the proleptic Gregorian date
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468L;
     }
 
     /**
      * @param ts a UTC Epoch
-     * @return formatted with "dd/MMMM/yyyy:HH:mm:ss Z"
+     * @return formatted with "dd/MM/yyyy:HH:mm:ss Z", in UTC
      */
     public static String format(long ts) {
-        return DATETIME_OUT.format(ts);
+        long second = Math.floorDiv(ts, 1000L);
+        Cache cache = CACHE.get();
+        if (cache.formattedSecond != second) {
+            cache.formattedText = formatSecond(second);
+            cache.formattedSecond = second;
+        }
+        return cache.formattedText;
+    }
+
+    private static String formatSecond(long epochSecond) {
+        long days = Math.floorDiv(epochSecond, 86_400L);
+        int secondOfDay = (int) Math.floorMod(epochSecond, 86_400L);
+        // inverse of daysFromCivil
+        long z = days + 719_468L;
+        long era = (z >= 0 ? z : z - 146_096L) / 146_097L;
+        long dayOfEra = z - era * 146_097L;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        StringBuilder sb = new StringBuilder(25);
+        pad(sb, day, 2).append('/');
+        pad(sb, month, 2).append('/');
+        pad(sb, year, 4).append(':');
+        pad(sb, secondOfDay / 3600, 2).append(':');
+        pad(sb, secondOfDay / 60 % 60, 2).append(':');
+        pad(sb, secondOfDay % 60, 2).append(" +0000");
+        return sb.toString();
+    }
+
+    private static StringBuilder pad(StringBuilder sb, long value, int width) {
+        if (value < 0) {
+            sb.append('-');
+            value = -value;
+        }
+        for (long limit = 10; --width > 0; limit *= 10) {
+            if (value < limit) {
+                sb.append('0');
+            }
+        }
+        return sb.append(value);
     }
 
     /**
@@ -0,0 +1,86 @@
+package com.fern;
+
+import org.junit.Test;
+import com.fern.lang.IFn;
+import com.fern.lang.FnBody;
+import com.fern.seq.Map;
+import com.fern.util.clf.CLF;
+import com.fern.util.clf.CLFReadoutHandler;
+import com.fern.util.clf.ReadoutCache;
+
+import static com.fern.lang.Fn.defargs;
+import static com.fern.lang.Fn.defn;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class JfrEventsTest extends BaseTest {
+    private static final String[] EVENTS = {
+            "com.fern.FnInvoke",
+            "com.fern.ReadoutCacheFetch",
+            "com.fern.FileReadout",
+            "com.fern.HashedSnapshotRebuild"
+    };
+
+    @Test
+    public void testEvents() throws IOException {
+        IFn<Integer> inc = defn("inc", defargs(Integer.class), new FnBody<Integer>() {
+            @Override
+            public Integer fnBody() {
+                return (int) arg("$1") + 1;
+            }
+        });
+        Path logFile = Files.createTempFile("fern-jfr", ".log");
+        Path recordingFile = Files.createTempFile("fern-jfr", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String event : EVENTS) {
+                recording.enable(event).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            inc.invoke(1);
+            Map.neu(1, "one", 2, "two").keys();
+            Files.writeString(logFile, String.join("\n",
+                    "127.0.0.1 - admin [10/11/2020:16:00:00 +0000] \"GET /index.php HTTP/2.0\" 200 2020",
+                    "this is not clf",
+                    "127.0.0.1 - admin [10/11/2020:16:00:01 +0000] \"GET /index.php HTTP/2.0\" 200 2020",
+                    ""), StandardCharsets.UTF_8);
+            ReadoutCache<CLF> cache = new ReadoutCache<>();
+            assertEquals(new CLFReadoutHandler(logFile).fetchAvailableLines(cache), 2);
+            cache.fetch(cache.firstTimestamp(), cache.firstTimestamp() + 1_000L);
+            recording.stop();
+            recording.dump(recordingFile);
+
+            HashMap<String, RecordedEvent> found = new HashMap<>();
+            List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+            for (RecordedEvent event : events) {
+                found.putIfAbsent(event.getEventType().getName(), event);
+            }
+            for (String event : EVENTS) {
+                assertTrue(event, found.containsKey(event));
+            }
+            RecordedEvent fnInvoke = found.get("com.fern.FnInvoke");
+            assertEquals(fnInvoke.getString("name"), "inc");
+            assertEquals(fnInvoke.getInt("arity"), 1);
+            RecordedEvent fileReadout = found.get("com.fern.FileReadout");
+            assertEquals(fileReadout.getLong("bytes"), Files.size(logFile));
+            assertEquals(fileReadout.getInt("lines"), 2);
+            assertEquals(fileReadout.getInt("malformed"), 1);
+            assertEquals(found.get("com.fern.ReadoutCacheFetch").getInt("count"), 2);
+            assertEquals(found.get("com.fern.HashedSnapshotRebuild").getInt("size"), 2);
+        } finally {
+            Files.deleteIfExists(logFile);
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.fern.lang;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+import com.fern.seq.ISeq;
+import com.fern.seq.List;
+
+import static com.fern.lang.Fn.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+public class AgentTest extends BaseTest {
+    static final IFn<Integer> inc = defn(defargs(Integer.class), new FnBody<Integer>() {
+        @Override
+        public Integer fnBody() {
+            return (int) arg("$1") + 1;
+        }
+    });
+
+    static final IFn<ISeq> append = defn(defargs(ISeq.class, Object.class), new FnBody<ISeq>() {
+        @Override
+        public ISeq fnBody() {
+            return ((ISeq) arg("$1")).cone(arg("$2"));
+        }
+    });
+
+    static final IFn<Integer> slowInc = defn(defargs(Integer.class, Long.class), new FnBody<Integer>() {
+        @Override
+        public Integer fnBody() {
+            try {
+                TimeUnit.MILLISECONDS.sleep(arg("$2"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return (int) arg("$1") + 1;
+        }
+    });
+
+    @Test
+    public void testActionsAreAppliedInOrder() throws InterruptedException {
+        Agent<ISeq> agent = Agent.neu(List.neu());
+        for (int i = 0; i < 1000; i++) {
+            agent.send(append, i);
+        }
+        assertTrue(agent.await(5L, TimeUnit.SECONDS));
+        assertEquals(agent.deref(), range(0, 999));
+    }
+
+    @Test
+    public void testThousandsOfAgents() throws InterruptedException {
+        Agent<?>[] agents = new Agent<?>[5000];
+        for (int i = 0; i < agents.length; i++) {
+            agents[i] = Agent.neu(0);
+        }
+        for (int round = 0; round < 100; round++) {
+            for (Agent<?> agent : agents) {
+                agent.send(inc);
+            }
+        }
+        for (Agent<?> agent : agents) {
+            assertTrue(agent.await(5L, TimeUnit.SECONDS));
+            assertEquals(agent.deref(), 100);
+        }
+    }
+
+    @Test
+    public void testSendOffMixedWithSend() throws InterruptedException {
+        Agent<Integer> agent = Agent.neu(0);
+        for (int i = 0; i < 10; i++) {
+            agent.sendOff(slowInc, 5L);
+            agent.send(inc);
+        }
+        assertTrue(agent.await(5L, TimeUnit.SECONDS));
+        assertEquals(agent.deref(), Integer.valueOf(20));
+    }
+
+    @Test
+    public void testFailureAndRestart() throws InterruptedException {
+        Agent<Integer> agent = Agent.neu(0, args -> (int) args[0] < 2);
+        agent.send(inc).send(inc);
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (agent.error() == null && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(1L);
+        }
+        assertEquals(agent.error().getClass(), IllegalStateException.class);
+        assertEquals(agent.deref(), Integer.valueOf(1));
+        expectFail(IllegalStateException.class, () -> agent.send(inc));
+        agent.restart(0);
+        assertNull(agent.error());
+        agent.send(inc);
+        assertTrue(agent.await(5L, TimeUnit.SECONDS));
+        assertEquals(agent.deref(), Integer.valueOf(1));
+    }
+}
@@ -0,0 +1,81 @@
+package com.fern.lang;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+import com.fern.seq.IHashed;
+import com.fern.seq.ISeq;
+import com.fern.seq.List;
+import com.fern.seq.Map;
+
+import static com.fern.lang.Fn.*;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+public class AggregationTest extends BaseTest {
+    static final IFn<Integer> mod10 = defn(defargs(Integer.class), new FnBody<Integer>() {
+        @Override
+        public Integer fnBody() {
+            return (int) arg("$1") % 10;
+        }
+    });
+
+    static final IFn<Boolean> isEven = defn(defargs(Integer.class), new FnBody<Boolean>() {
+        @Override
+        public Boolean fnBody() {
+            return (int) arg("$1") % 2 == 0;
+        }
+    });
+
+    @Test
+    public void testGroupBy() {
+        IHashed groups = groupBy(mod10, range(0, 29));
+        assertEquals(groups.size(), 10);
+        assertEquals(groups.get(3), List.neu(3, 13, 23));
+        assertEquals(groupBy(mod10, List.neu()), Map.neu());
+    }
+
+    @Test
+    public void testGroupByInParallelKeepsOrder() {
+        IHashed groups = groupBy(mod10, range(0, 99_999));
+        assertEquals(groups.size(), 10);
+        ISeq sevens = (ISeq) groups.get(7);
+        assertEquals(sevens.size(), 10_000);
+        for (int i = 0; i < sevens.size(); i++) {
+            assertEquals(sevens.nth(i), i * 10 + 7);
+        }
+    }
+
+    @Test
+    public void testFrequencies() {
+        assertEquals(frequencies(List.neu("a", "b", "a", "c", "a")), Map.neu("a", 3L, "b", 1L, "c", 1L));
+        IHashed counts = frequencies(map(mod10, range(0, 99_999)));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(counts.get(i), 10_000L);
+        }
+    }
+
+    @Test
+    public void testIndexBy() {
+        IHashed index = indexBy(mod10, range(0, 99_999));
+        assertEquals(index.size(), 10);
+        assertEquals(index.get(4), 99_994);
+    }
+
+    @Test
+    public void testPartitionBy() {
+        assertEquals(partitionBy(isEven, List.neu(2, 4, 1, 3, 5, 6)),
+                List.neu(List.neu(2, 4), List.neu(1, 3, 5), List.neu(6)));
+        assertEquals(partitionBy(isEven, List.neu()), List.neu());
+        assertEquals(partitionBy(isEven, range(0, 99_999)).size(), 100_000);
+    }
+
+    public static void main(String[] args) {
+        ISeq seq = map(mod10, range(0, 9_999_999));
+        Avg avg = new Avg();
+        for (int i = 0; i < 10; i++) {
+            avg.addPoint(timed(() -> frequencies(seq), TimeUnit.MILLISECONDS));
+        }
+        System.out.printf("frequencies of 10^7 items, avg millis: %.2f\n", avg.getAvg());
+    }
+}
@@ -0,0 +1,206 @@
+package com.fern.lang;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+import com.fern.seq.ISeq;
+import com.fern.seq.List;
+
+import static com.fern.lang.Fn.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncTest extends BaseTest {
+    static final IFn<Integer> add = AtomTest.add;
+
+    static final IFn<Integer> inc = defn(defargs(Integer.class), new FnBody<Integer>() {
+        @Override
+        public Integer fnBody() {
+            return (int) arg("$1") + 1;
+        }
+    });
+
+    static final IFn<Integer> sleepyInc = defn(defargs(Integer.class), new FnBody<Integer>() {
+        @Override
+        public Integer fnBody() {
+            int x = arg("$1");
+            sleep(10);
+            return x + 1;
+        }
+    });
+
+    static final IFn<Long> fib = defn(defargs(Long.class), new FnBody<Long>() {
+        @Override
+        public Long fnBody() {
+            long n = arg("$1");
+            return n < 2L ? n : selfInvoke(n - 1L) + selfInvoke(n - 2L);
+        }
+    });
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted");
+        }
+    }
+
+    private static IFn<Integer> blocking(AtomicInteger interrupted) {
+        return defn(defargs(Integer.class), new FnBody<Integer>() {
+            @Override
+            public Integer fnBody() {
+                try {
+                    Thread.sleep(60_000L);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                }
+                return arg("$1");
+            }
+        });
+    }
+
+    @Test
+    public void testInvokeAsync() throws Exception {
+        assertEquals(add.invokeAsync(1, 2).get(), Integer.valueOf(3));
+        Object[] args = {5, 6};
+        CompletableFuture<Integer> future = sleepyInc.invokeAsync(args[0]);
+        CompletableFuture<Integer> sum = add.invokeAsync(args);
+        args[0] = 100; // args are copied on submission
+        assertEquals(future.get(), Integer.valueOf(6));
+        assertEquals(sum.get(), Integer.valueOf(11));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals(Fn.invokeAsync(executor, inc, 41).get(), Integer.valueOf(42));
+        } finally {
+            executor.shutdown();
+        }
+        try {
+            add.invokeAsync(1, null).get();
+            throw new AssertionError("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof NullPointerException);
+        }
+    }
+
+    @Test
+    public void testArgumentFrames() throws Exception {
+        ISeq ns = List.neu(20L, 15L, 10L, 5L, 1L, 0L, 20L, 15L, 10L, 5L, 1L, 0L);
+        assertEquals(mapAsync(fib, ns).get(), List.neu(
+                6765L, 610L, 55L, 5L, 1L, 0L, 6765L, 610L, 55L, 5L, 1L, 0L));
+    }
+
+    @Test
+    public void testMapAsyncFanOut() throws Exception {
+        Object[] xs = new Object[10_000];
+        Object[] expected = new Object[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = i;
+            expected[i] = i + 1;
+        }
+        long millis = timed(() -> {
+            try {
+                assertEquals(mapAsync(sleepyInc, new List(xs)).get(), new List(expected));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, TimeUnit.MILLISECONDS);
+        assertTrue(millis < 10_000L); // sequentially it would take at least 100 secs
+        assertEquals(mapAsync(inc, List.neu()).get(), List.neu());
+    }
+
+    @Test
+    public void testAllOfFailsFast() throws Exception {
+        AtomicInteger interrupted = new AtomicInteger();
+        IFn<Integer> blocking = blocking(interrupted);
+        CompletableFuture<Integer> slow = blocking.invokeAsync(1);
+        CompletableFuture<ISeq> all = allOf(slow, add.invokeAsync(1, null));
+        try {
+            all.get(10, TimeUnit.SECONDS);
+            throw new AssertionError("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof NullPointerException);
+        }
+        assertTrue(slow.isCancelled());
+        awaitCount(interrupted, 1);
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        AtomicInteger interrupted = new AtomicInteger();
+        CompletableFuture<ISeq> all = mapAsync(blocking(interrupted), List.neu(1, 2, 3))
+                .orTimeout(50L, TimeUnit.MILLISECONDS);
+        try {
+            all.get(10, TimeUnit.SECONDS);
+            throw new AssertionError("expected timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        awaitCount(interrupted, 3);
+    }
+
+    @Test
+    public void testComposeAsync() throws Exception {
+        Invocable<CompletableFuture<Integer>> chain = composeAsync(add, inc, sleepyInc, inc);
+        assertEquals(chain.invoke(1, 2).get(), Integer.valueOf(6));
+        expectFail(IllegalArgumentException.class, () -> composeAsync());
+        expectFail(IllegalArgumentException.class, () -> composeAsync(inc, add));
+
+        AtomicInteger interrupted = new AtomicInteger();
+        CompletableFuture<Integer> cancelled = Fn.<Integer>composeAsync(inc, blocking(interrupted), inc).invoke(1);
+        Thread.sleep(50L);
+        assertTrue(cancelled.cancel(true));
+        awaitCount(interrupted, 1);
+        try {
+            cancelled.get();
+            throw new AssertionError("expected cancellation");
+        } catch (CancellationException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCancelBeforeStart() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicInteger invoked = new AtomicInteger();
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            CompletableFuture<Integer> queued = Fn.invokeAsync(executor, defn(new FnBody<Integer>() {
+                @Override
+                public Integer fnBody() {
+                    return invoked.incrementAndGet();
+                }
+            }));
+            queued.cancel(true);
+            release.countDown();
+            assertEquals(Fn.invokeAsync(executor, inc, 1).get(), Integer.valueOf(2));
+            assertEquals(invoked.get(), 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitCount(AtomicInteger count, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (count.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5L);
+        }
+        assertEquals(count.get(), expected);
+    }
+}
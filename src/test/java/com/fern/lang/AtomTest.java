@@ -0,0 +1,131 @@
+package com.fern.lang;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+import com.fern.seq.ISorted;
+import com.fern.seq.SortedMap;
+
+import static com.fern.lang.Fn.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AtomTest extends BaseTest {
+    static final IFn<Integer> add = defn(defargs(Integer.class, Integer.class), new FnBody<Integer>() {
+        @Override
+        public Integer fnBody() {
+            return (int) arg("$1") + (int) arg("$2");
+        }
+    });
+
+    static final IFn<ISorted> incKey = defn(defargs(ISorted.class, Object.class), new FnBody<ISorted>() {
+        @Override
+        public ISorted fnBody() {
+            ISorted counters = arg("$1");
+            Object key = arg("$2");
+            Long count = (Long) counters.get(key);
+            return counters.assoc(key, count == null ? 1L : count + 1L);
+        }
+    });
+
+    @Test
+    public void testSwap() {
+        Atom<Integer> atom = Atom.neu(0);
+        assertEquals(atom.swap(add, 5), Integer.valueOf(5));
+        assertEquals(atom.deref(), Integer.valueOf(5));
+        assertTrue(atom.compareAndSet(5, 7));
+        assertFalse(atom.compareAndSet(5, 9));
+        assertEquals(atom.reset(1), Integer.valueOf(1));
+    }
+
+    @Test
+    public void testValidator() {
+        IPredicate nonNegative = args -> (int) args[0] >= 0;
+        Atom<Integer> atom = Atom.neu(1, nonNegative);
+        expectFail(IllegalStateException.class, () -> atom.swap(add, -2));
+        assertEquals(atom.deref(), Integer.valueOf(1));
+        expectFail(IllegalStateException.class, () -> Atom.neu(-1, nonNegative));
+        expectFail(IllegalStateException.class, () -> Atom.neu(-1).setValidator(nonNegative));
+    }
+
+    @Test
+    public void testWatches() {
+        AtomicInteger calls = new AtomicInteger();
+        Atom<Integer> atom = Atom.neu(0);
+        atom.addWatch(":w", defn(defargs(Object.class, Atom.class, Integer.class, Integer.class), new FnBody<Void>() {
+            @Override
+            public Void fnBody() {
+                assertEquals(arg("$1"), ":w");
+                assertTrue(arg("$2") == atom);
+                assertEquals((int) arg("$3") + 1, (int) arg("$4"));
+                calls.incrementAndGet();
+                return null;
+            }
+        }));
+        atom.swap(add, 1);
+        atom.swap(add, 1);
+        atom.removeWatch(":w");
+        atom.swap(add, 1);
+        assertEquals(calls.get(), 2);
+        expectFail(IllegalArgumentException.class, () -> atom.addWatch(":bad", add));
+    }
+
+    @Test
+    public void testContention() throws InterruptedException {
+        assertEquals(contention(16, 2_000, 8), 16L * 2_000L);
+    }
+
+    /**
+     * @return total of all counters once all threads are done
+     */
+    static long contention(int threads, int updatesPerThread, int keys) throws InterruptedException {
+        Atom<ISorted> counters = Atom.neu(SortedMap.neu());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < updatesPerThread; i++) {
+                        counters.swap(incKey, i % keys);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        done.await();
+        executor.shutdown();
+        long total = 0L;
+        for (Object count : counters.deref().values()) {
+            total += (Long) count;
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = 64;
+        int updatesPerThread = 20_000;
+        for (int round = 0; round < 5; round++) {
+            long millis = timed(() -> {
+                try {
+                    contention(threads, updatesPerThread, 16);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, TimeUnit.MILLISECONDS);
+            System.out.printf("%d threads x %d swaps on one counter map: %d millis (%.0f swaps/sec)\n",
+                    threads, updatesPerThread, millis, threads * updatesPerThread * 1000.0 / millis);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.fern.lang;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+import com.fern.seq.ISeq;
+
+import static com.fern.lang.Fn.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ChanTest extends BaseTest {
+    static final IFn<Long> sum = defn(defargs(Chan.class), new FnBody<Long>() {
+        @Override
+        public Long fnBody() {
+            Chan<Integer> in = arg("$1");
+            long total = 0L;
+            try {
+                for (Integer value = in.take(); value != null; value = in.take()) {
+                    total += value;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return total;
+        }
+    });
+
+    @Test
+    public void testFixedBuffer() throws InterruptedException {
+        Chan<Integer> chan = Chan.neu(2);
+        assertTrue(chan.offer(1));
+        assertTrue(chan.put(2));
+        assertFalse(chan.offer(3));
+        assertEquals(chan.take(), Integer.valueOf(1));
+        assertEquals(chan.poll(), Integer.valueOf(2));
+        assertNull(chan.poll());
+        assertNull(chan.take(10L, TimeUnit.MILLISECONDS));
+        expectFail(NullPointerException.class, () -> chan.offer(null));
+    }
+
+    @Test
+    public void testDroppingAndSlidingBuffers() throws InterruptedException {
+        Chan<Integer> dropping = Chan.neu(2, Chan.Buffer.DROPPING);
+        Chan<Integer> sliding = Chan.neu(2, Chan.Buffer.SLIDING);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(dropping.put(i));
+            assertTrue(sliding.put(i));
+        }
+        assertEquals(dropping.take(), Integer.valueOf(0));
+        assertEquals(dropping.take(), Integer.valueOf(1));
+        assertEquals(sliding.take(), Integer.valueOf(3));
+        assertEquals(sliding.take(), Integer.valueOf(4));
+    }
+
+    @Test
+    public void testClose() throws InterruptedException {
+        Chan<Integer> chan = Chan.neu(4);
+        chan.put(1);
+        chan.close();
+        assertFalse(chan.put(2));
+        assertEquals(chan.take(), Integer.valueOf(1));
+        assertNull(chan.take());
+        assertTrue(chan.isClosed());
+    }
+
+    @Test
+    public void testGo() throws InterruptedException {
+        Chan<Integer> numbers = Chan.neu(8);
+        Chan<Object> result = Chan.go(sum, numbers);
+        for (int i = 1; i <= 1000; i++) {
+            numbers.put(i);
+        }
+        numbers.close();
+        assertEquals(result.take(), 500_500L);
+        assertNull(result.take());
+    }
+
+    @Test
+    public void testAlts() throws InterruptedException {
+        Chan<String> a = Chan.neu(1);
+        Chan<String> b = Chan.neu(1);
+        Chan<Object> timeout = Chan.timeout(20L, TimeUnit.MILLISECONDS);
+        ISeq alt = Chan.alts(a, b, timeout);
+        assertNull(alt.first());
+        assertTrue(alt.last() == timeout);
+        Thread.ofVirtual().start(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(10L);
+                b.put("b");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        alt = Chan.alts(a, b, Chan.timeout(5L, TimeUnit.SECONDS));
+        assertEquals(alt.first(), "b");
+        assertTrue(alt.last() == b);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int producers = 4;
+        int consumers = 4;
+        int messages = 1_000_000;
+        for (int round = 0; round < 5; round++) {
+            Chan<Integer> chan = Chan.neu(1024);
+            long chanMillis = timed(() -> transfer(producers, consumers, messages, chan::put, chan::take), TimeUnit.MILLISECONDS);
+            BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(1024);
+            long queueMillis = timed(() -> transfer(producers, consumers, messages, queue::put, queue::take), TimeUnit.MILLISECONDS);
+            System.out.printf("%d msgs, %d producers, %d consumers (virtual threads): Chan %d millis, ArrayBlockingQueue %d millis\n",
+                    messages, producers, consumers, chanMillis, queueMillis);
+        }
+    }
+
+    interface Put {
+        void put(Integer value) throws InterruptedException;
+    }
+
+    interface Take {
+        Integer take() throws InterruptedException;
+    }
+
+    private static void transfer(int producers, int consumers, int messages, Put put, Take take) {
+        CountDownLatch done = new CountDownLatch(producers + consumers);
+        int perProducer = messages / producers;
+        int perConsumer = messages / consumers;
+        for (int p = 0; p < producers; p++) {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) {
+                        put.put(i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    for (int i = 0; i < perConsumer; i++) {
+                        take.take();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.fern.lang;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+
+import static com.fern.lang.Fn.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+public class DefnTest extends BaseTest {
+    private static IFn<Integer> adder(String name) {
+        return defn(name, defargs(Integer.class, Integer.class), new FnBody<Integer>() {
+            @Override
+            public Integer fnBody() {
+                return (int) arg("$1") + (int) arg("$2");
+            }
+        });
+    }
+
+    @Test
+    public void testMetadata() {
+        IFn<Integer> first = adder("add");
+        IFn<Integer> second = adder(null);
+        IFn<Integer> curried = curry(second, 1);
+        // ids are taken in definition order, the uniqueId string is built when first asked for
+        int secondId = Integer.parseInt(curried.uniqueId().substring(3, curried.uniqueId().indexOf(' '))) - 1;
+        assertEquals(second.uniqueId(), "fn-" + secondId + " ANONYMOUS [Integer, Integer] => Integer");
+        assertEquals(first.uniqueId(), "fn-" + (secondId - 1) + " add [Integer, Integer] => Integer");
+        assertTrue(first.uniqueId() == first.uniqueId());
+        assertEquals(curried.uniqueId(), "fn-" + (secondId + 1) + " ANONYMOUS [Integer] => Integer");
+        assertEquals(first.returnType(), Integer.class);
+        assertEquals(curried.returnType(), Integer.class);
+        assertEquals(defn(defvarargs(Object.class), new FnBody<String>() {
+            @Override
+            public String fnBody() {
+                return "";
+            }
+        }).uniqueId().endsWith(" ANONYMOUS [Object*] => String"), true);
+        assertEquals(first.toString(), "fn/2 add ($1 class java.lang.Integer, $2 class java.lang.Integer) -> java.lang.Integer\n"
+                + "No documentation available");
+        assertEquals(curried.invoke(2), Integer.valueOf(3));
+    }
+
+    public static void main(String[] args) {
+        int count = 100_000;
+        for (int round = 0; round < 10; round++) {
+            long defnMillis = timed(() -> {
+                for (int i = 0; i < count; i++) {
+                    adder("add");
+                }
+            }, TimeUnit.MILLISECONDS);
+            IFn<Integer> add = adder("add");
+            long curryMillis = timed(() -> {
+                for (int i = 0; i < count; i++) {
+                    curry(add, i);
+                }
+            }, TimeUnit.MILLISECONDS);
+            System.out.printf("defn of %d fns: %d millis, curry of %d fns: %d millis\n",
+                    count, defnMillis, count, curryMillis);
+        }
+    }
+}
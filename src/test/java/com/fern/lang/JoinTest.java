@@ -0,0 +1,69 @@
+package com.fern.lang;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+import com.fern.seq.ISeq;
+import com.fern.seq.List;
+
+import static com.fern.lang.Fn.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+public class JoinTest extends BaseTest {
+    static final IFn<Object> identity = defn(defargs(Object.class), new FnBody<Object>() {
+        @Override
+        public Object fnBody() {
+            return arg("$1");
+        }
+    });
+
+    static final IFn<Object> head = defn(defargs(ISeq.class), new FnBody<Object>() {
+        @Override
+        public Object fnBody() {
+            return ((ISeq) arg("$1")).first();
+        }
+    });
+
+    @Test
+    public void testJoin() {
+        ISeq users = List.neu(List.neu(1, "miguel"), List.neu(2, "lina"), List.neu(3, "admin"));
+        ISeq ids = List.neu(3, 1, 1, 7);
+        ISeq joined = join(identity, head, ids, users);
+        assertEquals(joined, List.neu(
+                List.neu(3, List.neu(3, "admin")),
+                List.neu(1, List.neu(1, "miguel")),
+                List.neu(1, List.neu(1, "miguel"))));
+        assertEquals(join(head, identity, users, ids).size(), 3);
+        assertEquals(join(identity, identity, List.neu(), ids), List.neu());
+    }
+
+    @Test
+    public void testSemiAndAntiJoin() {
+        ISeq users = List.neu(List.neu(1, "miguel"), List.neu(2, "lina"), List.neu(3, "admin"));
+        ISeq ids = List.neu(3, 1, 7);
+        assertEquals(semijoin(identity, head, ids, users), List.neu(3, 1));
+        assertEquals(antijoin(identity, head, ids, users), List.neu(7));
+        assertEquals(antijoin(identity, head, ids, List.neu()), ids);
+        assertEquals(semijoin(identity, head, ids, List.neu()), List.neu());
+    }
+
+    @Test
+    public void testLargeJoin() {
+        ISeq a = range(0, 199_999);
+        ISeq b = range(100_000, 299_999);
+        long millis = timed(() -> assertEquals(join(identity, identity, a, b).size(), 100_000), TimeUnit.MILLISECONDS);
+        assertTrue(millis < 10_000L);
+    }
+
+    public static void main(String[] args) {
+        ISeq a = range(0, 999_999);
+        ISeq b = range(500_000, 1_499_999);
+        Avg avg = new Avg();
+        for (int i = 0; i < 10; i++) {
+            avg.addPoint(timed(() -> join(identity, identity, a, b), TimeUnit.MILLISECONDS));
+        }
+        System.out.printf("join of two 10^6 seqs, avg millis: %.2f\n", avg.getAvg());
+    }
+}
@@ -0,0 +1,109 @@
+package com.fern.lang;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+
+import static com.fern.lang.Fn.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class MetricsTest extends BaseTest {
+    private static IFn<Integer> half() {
+        return defn("half", defargs(Integer.class), new FnBody<Integer>() {
+            @Override
+            public Integer fnBody() {
+                int x = arg("$1");
+                if (x % 2 != 0) {
+                    throw new IllegalArgumentException("odd");
+                }
+                return x / 2;
+            }
+        });
+    }
+
+    @Test
+    public void testFnMetrics() {
+        IFn<Integer> half = half();
+        assertNull(FnMetrics.of(half));
+        half.invoke(2);
+        assertFalse(Instrumentation.isActive());
+        FnMetrics metrics = FnMetrics.enable(half);
+        assertTrue(FnMetrics.enable(half) == metrics);
+        assertTrue(Instrumentation.isActive());
+        for (int i = 0; i < 10; i++) {
+            try {
+                half.invoke(i);
+            } catch (IllegalArgumentException expected) {
+                // odd
+            }
+        }
+        FnMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(snapshot.uniqueId(), half.uniqueId());
+        assertEquals(snapshot.invocations(), 10L);
+        assertEquals(snapshot.errors(), 5L);
+        assertEquals(snapshot.latencies().count(), 10L);
+        assertTrue(snapshot.latencies().percentile(50.0) > 0L);
+        FnMetrics.disable(half);
+        FnMetrics.disable(half);
+        assertFalse(Instrumentation.isActive());
+        half.invoke(2);
+        assertNull(FnMetrics.of(half));
+        assertEquals(metrics.snapshot().invocations(), 10L);
+    }
+
+    @Test
+    public void testNamespaceMetrics() {
+        IFn<Integer> registered = half();
+        NS.regfn("test-metrics", registered);
+        NS.enableMetrics("test-metrics");
+        Var<Integer> var = NS.def("test-metrics", "half", half());
+        registered.invoke(4);
+        var.invoke(4);
+        var.invoke(6);
+        Map<String, FnMetrics.Snapshot> snapshots = NS.metrics("test-metrics");
+        assertEquals(snapshots.size(), 2);
+        assertEquals(snapshots.get(registered.uniqueId()).invocations(), 1L);
+        assertEquals(snapshots.get(var.uniqueId()).invocations(), 2L);
+
+        NS.def("test-metrics", "half", half()); // new roots are metered too
+        var.invoke(8);
+        assertEquals(NS.metrics("test-metrics").get(var.uniqueId()).invocations(), 1L);
+
+        NS.disableMetrics("test-metrics");
+        assertTrue(NS.metrics("test-metrics").isEmpty());
+        assertTrue(NS.metrics("no-such-ns").isEmpty());
+    }
+
+    public static void main(String[] args) {
+        IFn<Integer> half = half();
+        int invocations = 10_000_000;
+        Runnable loop = () -> {
+            int acc = 0;
+            for (int i = 0; i < invocations; i++) {
+                acc += half.invoke(i << 1);
+            }
+            if (acc == 42) {
+                System.out.println(acc);
+            }
+        };
+        for (boolean enabled : new boolean[]{false, true, false, true}) {
+            if (enabled) {
+                FnMetrics.enable(half);
+            } else {
+                FnMetrics.disable(half);
+            }
+            Avg avg = new Avg();
+            for (int round = 0; round < 5; round++) {
+                avg.addPoint(timed(loop, TimeUnit.MILLISECONDS));
+            }
+            System.out.printf("metrics %s: %.2f nanos/invocation\n",
+                    enabled ? "enabled" : "disabled", avg.getAvg() * 1e6 / invocations);
+        }
+        System.out.println(FnMetrics.enable(half).snapshot().latencies());
+    }
+}
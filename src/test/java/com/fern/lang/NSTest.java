@@ -0,0 +1,105 @@
+package com.fern.lang;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+
+import static com.fern.lang.Fn.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NSTest extends BaseTest {
+    private static IFn<Integer> constantly(int value) {
+        return defn("constantly", defargs(Integer.class), new FnBody<Integer>() {
+            @Override
+            public Integer fnBody() {
+                return value + (int) arg("$1");
+            }
+        });
+    }
+
+    private static void expectAccessError(Runnable snippet) {
+        try {
+            snippet.run();
+        } catch (IllegalAccessError expected) {
+            return;
+        }
+        throw new AssertionError("expected IllegalAccessError");
+    }
+
+    @Test
+    public void testRegfn() {
+        IFn<Integer> fn = constantly(1);
+        String key = NS.regfn("test-regfn", fn);
+        assertEquals(key, "test-regfn/" + fn.uniqueId());
+        assertTrue(NS.<Integer>fn(key) == fn);
+        assertTrue(NS.<Integer>fn("test-regfn", fn.uniqueId()) == fn);
+        expectAccessError(() -> NS.regfn("test-regfn", fn));
+        expectAccessError(() -> NS.fn("test-regfn"));
+        expectAccessError(() -> NS.fn("test-regfn/missing"));
+        expectAccessError(() -> NS.fn("test-regfn/" + fn.uniqueId() + "/"));
+        expectAccessError(() -> NS.fn("missing-ns", fn.uniqueId()));
+    }
+
+    @Test
+    public void testDefAndRedef() throws Throwable {
+        Var<Integer> var = NS.def("test-def", "f", constantly(1));
+        assertEquals(var.version(), 0);
+        assertEquals(var.invoke(1), Integer.valueOf(2));
+        assertEquals(var.name(), "f");
+        assertEquals(var.toString(), "#'test-def/f");
+        assertTrue(NS.<Integer>var("test-def", "f") == var);
+        MethodHandle invoker = var.invoker();
+        assertEquals((Object) invoker.invokeExact(new Object[]{1}), 2);
+
+        assertTrue(NS.def("test-def", "f", constantly(10)) == var);
+        assertEquals(var.version(), 1);
+        assertEquals(var.invoke(1), Integer.valueOf(11));
+        assertEquals((Object) invoker.invokeExact(new Object[]{1}), 11);
+
+        expectAccessError(() -> NS.var("test-def", "g"));
+        expectFail(IllegalArgumentException.class, () -> NS.def("test-def", "a/b", constantly(1)));
+        expectFail(NullPointerException.class, () -> NS.def("test-def", "f", null));
+        expectFail(IllegalArgumentException.class, () -> NS.def("test-def", "f", var));
+        assertTrue(NS.def("g", constantly(0)) == NS.<Integer>var("g"));
+    }
+
+    @Test
+    public void testRedefWhileInvoking() throws InterruptedException {
+        Var<Integer> var = NS.def("test-hot", "f", constantly(0));
+        MethodHandle invoker = var.invoker();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] callers = new Thread[4];
+        for (int t = 0; t < callers.length; t++) {
+            callers[t] = new Thread(() -> {
+                int last = 0;
+                while (false == done.get()) {
+                    try {
+                        int value = (int) (Object) invoker.invokeExact(new Object[]{0});
+                        if (value < last) {
+                            errors.incrementAndGet(); // a redefinition was lost
+                        }
+                        last = value;
+                    } catch (Throwable e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            callers[t].start();
+        }
+        for (int i = 1; i <= 1_000; i++) {
+            NS.def("test-hot", "f", constantly(i));
+        }
+        done.set(true);
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        assertEquals(errors.get(), 0);
+        assertEquals(var.version(), 1_000);
+        assertEquals(var.invoke(0), Integer.valueOf(1_000));
+    }
+}
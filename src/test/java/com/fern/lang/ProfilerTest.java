@@ -0,0 +1,72 @@
+package com.fern.lang;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+
+import static com.fern.lang.Fn.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class ProfilerTest extends BaseTest {
+    static final IFn<Long> spin = defn("spin", defargs(Long.class), new FnBody<Long>() {
+        @Override
+        public Long fnBody() {
+            long deadline = System.nanoTime() + (long) arg("$1");
+            long acc = 0L;
+            while (System.nanoTime() < deadline) {
+                acc++;
+            }
+            return acc;
+        }
+    });
+
+    static final IFn<Long> outer = defn("outer", defargs(Long.class), new FnBody<Long>() {
+        @Override
+        public Long fnBody() {
+            long nanos = arg("$1");
+            return spin.invoke(nanos / 4) + spin.invoke(nanos * 3 / 4);
+        }
+    });
+
+    @Test
+    public void testSampling() throws Exception {
+        Profiler profiler = Profiler.start(1L, TimeUnit.MILLISECONDS);
+        try {
+            expectFail(IllegalStateException.class, () -> Profiler.start(1L, TimeUnit.MILLISECONDS));
+            outer.invoke(TimeUnit.MILLISECONDS.toNanos(300L));
+        } finally {
+            profiler.stop();
+        }
+        assertTrue(profiler.samples() > 0L);
+        assertEquals(0, Profiler.threadCount()); // stacks are forgotten once empty
+        Map<String, Long> collapsed = profiler.collapsed();
+        assertTrue(collapsed.toString(), collapsed.getOrDefault("outer;spin", 0L) > 0L);
+        for (String stack : collapsed.keySet()) {
+            assertTrue(stack, stack.startsWith("outer"));
+        }
+
+        Path file = Files.createTempFile("fern-profile", ".collapsed");
+        try {
+            profiler.writeCollapsed(file);
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(lines.size(), collapsed.size());
+            assertTrue(lines.get(0).matches("outer(;spin)? \\d+"));
+        } finally {
+            Files.delete(file);
+        }
+
+        long samples = profiler.samples();
+        outer.invoke(TimeUnit.MILLISECONDS.toNanos(20L));
+        assertEquals(profiler.samples(), samples); // stopped
+        Profiler.start(1L, TimeUnit.MILLISECONDS).stop(); // and can be started again
+        assertEquals(0, Profiler.threadCount());
+        expectFail(IllegalArgumentException.class, () -> Profiler.start(0L, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,244 @@
+package com.fern.lang;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+
+import static com.fern.lang.Fn.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RefTest extends BaseTest {
+    static final IFn<Integer> add = AtomTest.add;
+
+    static final IFn<Void> transfer = defn(defargs(Ref.class, Ref.class, Integer.class), new FnBody<Void>() {
+        @Override
+        public Void fnBody() {
+            Ref<Integer> from = arg("$1");
+            Ref<Integer> to = arg("$2");
+            int amount = arg("$3");
+            from.alter(add, -amount);
+            to.alter(add, amount);
+            return null;
+        }
+    });
+
+    @Test
+    public void testOutsideTransaction() {
+        Ref<Integer> ref = Ref.neu(1);
+        assertEquals(ref.deref(), Integer.valueOf(1));
+        expectFail(IllegalStateException.class, () -> ref.alter(add, 1));
+        expectFail(IllegalStateException.class, () -> ref.set(2));
+        expectFail(IllegalStateException.class, () -> ref.commute(add, 1));
+        expectFail(IllegalStateException.class, () -> ref.ensure());
+        expectFail(IllegalArgumentException.class, () -> Ref.neu(1, null, -1));
+    }
+
+    @Test
+    public void testDosync() {
+        Ref<Integer> a = Ref.neu(10);
+        Ref<Integer> b = Ref.neu(0);
+        Ref.dosync(transfer, a, b, 3);
+        assertEquals(a.deref(), Integer.valueOf(7));
+        assertEquals(b.deref(), Integer.valueOf(3));
+        int sum = Ref.dosync(defn(new FnBody<Integer>() {
+            @Override
+            public Integer fnBody() {
+                a.set(a.deref() * 2);
+                Ref.dosync(transfer, a, b, 4); // joins the running transaction
+                return a.deref() + b.deref();
+            }
+        }));
+        assertEquals(sum, 17);
+        assertEquals(a.deref(), Integer.valueOf(10));
+        assertEquals(b.deref(), Integer.valueOf(7));
+    }
+
+    @Test
+    public void testAbort() {
+        Ref<Integer> a = Ref.neu(1);
+        expectFail(ArithmeticException.class, () -> Ref.dosync(defn(new FnBody<Void>() {
+            @Override
+            public Void fnBody() {
+                a.set(2);
+                a.set(a.deref() / 0);
+                return null;
+            }
+        })));
+        assertEquals(a.deref(), Integer.valueOf(1));
+    }
+
+    @Test
+    public void testValidatorAndWatches() {
+        AtomicInteger calls = new AtomicInteger();
+        Ref<Integer> a = Ref.neu(5, args -> (int) args[0] >= 0, Ref.DEFAULT_MAX_HISTORY);
+        Ref<Integer> b = Ref.neu(0);
+        a.addWatch(":w", defn(defargs(Object.class, Ref.class, Integer.class, Integer.class), new FnBody<Void>() {
+            @Override
+            public Void fnBody() {
+                assertEquals((int) arg("$3") - 5, (int) arg("$4"));
+                calls.incrementAndGet();
+                return null;
+            }
+        }));
+        Ref.dosync(transfer, a, b, 5);
+        expectFail(IllegalStateException.class, () -> Ref.dosync(transfer, a, b, 1));
+        assertEquals(a.deref(), Integer.valueOf(0));
+        assertEquals(b.deref(), Integer.valueOf(5));
+        assertEquals(calls.get(), 1);
+    }
+
+    @Test
+    public void testCommute() throws InterruptedException {
+        Ref<Integer> counter = Ref.neu(0);
+        IFn<Integer> inc = defn(new FnBody<Integer>() {
+            @Override
+            public Integer fnBody() {
+                return counter.commute(add, 1);
+            }
+        });
+        runConcurrently(8, 1_000, () -> Ref.dosync(inc));
+        assertEquals(counter.deref(), Integer.valueOf(8_000));
+        expectFail(IllegalStateException.class, () -> Ref.dosync(defn(new FnBody<Void>() {
+            @Override
+            public Void fnBody() {
+                counter.commute(add, 1);
+                counter.set(0);
+                return null;
+            }
+        })));
+    }
+
+    @Test
+    public void testCommuteAfterSetOrAlter() {
+        Ref<Integer> a = Ref.neu(1);
+        Ref<Integer> b = Ref.neu(1);
+        Ref.dosync(defn(new FnBody<Void>() {
+            @Override
+            public Void fnBody() {
+                a.set(10);
+                a.commute(add, 1);
+                b.alter(add, 5);
+                b.commute(add, 1);
+                return null;
+            }
+        }));
+        assertEquals(a.deref(), Integer.valueOf(11));
+        assertEquals(b.deref(), Integer.valueOf(7));
+    }
+
+    @Test
+    public void testHistoryGrowsOnFaults() throws InterruptedException {
+        Ref<Integer> a = Ref.neu(0, null, 3);
+        Ref<Integer> b = Ref.neu(0, null, 3);
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        Thread reader = Thread.ofVirtual().start(() -> Ref.dosync(defn(new FnBody<Integer>() {
+            @Override
+            public Integer fnBody() {
+                int x = a.deref();
+                if (attempts.incrementAndGet() == 1) {
+                    read.countDown();
+                    try {
+                        written.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return x + b.deref();
+            }
+        })));
+        read.await();
+        Ref.dosync(transfer, a, b, 1);
+        written.countDown();
+        reader.join();
+        assertEquals(attempts.get(), 2); // b had no version old enough
+        assertEquals(b.faults(), 1);
+        Ref.dosync(transfer, a, b, 1);
+        assertEquals(b.historyCount(), 2);
+        for (int i = 0; i < 10; i++) {
+            Ref.dosync(transfer, a, b, 1);
+        }
+        assertEquals(b.historyCount(), 2);
+    }
+
+    @Test
+    public void testTransfersUnderContention() throws InterruptedException {
+        Ref<Integer>[] accounts = contention(16, 1_000, 4);
+        int total = 0;
+        for (Ref<Integer> account : accounts) {
+            total += account.deref();
+        }
+        assertEquals(total, 4 * 1_000);
+    }
+
+    private static void runConcurrently(int threads, int iterations, Runnable task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        task.run();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        done.await();
+        executor.shutdown();
+    }
+
+    /**
+     * Random transfers among a number of accounts, the fewer, the higher the contention.
+     *
+     * @return the accounts, each started with 1_000
+     */
+    @SuppressWarnings("unchecked")
+    static Ref<Integer>[] contention(int threads, int txnsPerThread, int accounts) throws InterruptedException {
+        Ref<Integer>[] refs = new Ref[accounts];
+        for (int i = 0; i < accounts; i++) {
+            refs[i] = Ref.neu(1_000);
+        }
+        runConcurrently(threads, txnsPerThread, () -> {
+            ThreadLocalRandom rand = ThreadLocalRandom.current();
+            int from = rand.nextInt(accounts);
+            int to = (from + 1 + rand.nextInt(accounts - 1)) % accounts;
+            Ref.dosync(transfer, refs[from], refs[to], 1);
+        });
+        return refs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int txnsPerThread = 20_000;
+        for (int accounts : new int[]{2, 8, 64, 1_024}) {
+            for (int round = 0; round < 3; round++) {
+                Ref.resetStats();
+                long millis = timed(() -> {
+                    try {
+                        contention(threads, txnsPerThread, accounts);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, TimeUnit.MILLISECONDS);
+                System.out.printf("%d threads, %d accounts: %d millis (%.0f txns/sec, %.3f retries/txn)\n",
+                        threads, accounts, millis, Ref.commits() * 1000.0 / millis,
+                        (double) Ref.retries() / Ref.commits());
+            }
+        }
+    }
+}
@@ -122,4 +122,18 @@ public class SetTest extends BaseTest {
         }
         assertEquals(s.sorted(), l);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAlgebra() {
+        final IHashed a = Set.neu(1, 2, 3, 4);
+        final IHashed b = Set.neu(3, 4, 5);
+        assertEquals(Colls.union(a, b), Set.neu(1, 2, 3, 4, 5));
+        assertEquals(Colls.union(), Set.neu());
+        assertEquals(Colls.intersection(a, b), Set.neu(3, 4));
+        assertEquals(Colls.intersection(b, a), Set.neu(3, 4));
+        assertEquals(Colls.difference(a, b), Set.neu(1, 2));
+        assertEquals(Colls.difference(b, a), Set.neu(5));
+        assertEquals(Colls.intersection(a, Map.neu(2, "two", 9, "nine")), Set.neu(2));
+        assertEquals(Colls.union(a, SortedSet.neu(7)), Set.neu(1, 2, 3, 4, 7));
+    }
+}
@@ -0,0 +1,117 @@
+package com.fern.seq;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class SortedTest extends BaseTest {
+    @Test
+    public void testFailedConstructor() {
+        expectFail(NullPointerException.class, () -> SortedMap.neu((Object[]) null));
+        expectFail(IllegalArgumentException.class, () -> SortedMap.neu(1, 2, 3));
+        expectFail(NullPointerException.class, () -> SortedMap.neu(null, 2));
+        expectFail(UnsupportedOperationException.class, () -> SortedMap.neu(1, 2).assoc(3));
+        expectFail(UnsupportedOperationException.class, () -> SortedSet.neu(1, 2).assoc(3, 4));
+    }
+
+    @Test
+    public void testEqualsHashed() {
+        ISorted sm = SortedMap.neu(3, "three", 1, "one", 2, "two");
+        IHashed m = Map.neu(2, "two", 3, "three", 1, "one");
+        assertEquals(sm, m);
+        assertEquals(m, sm);
+        assertEquals(sm.hashCode(), m.hashCode());
+        ISorted ss = SortedSet.neu("b", "c", "a");
+        IHashed s = Set.neu("a", "b", "c");
+        assertEquals(ss, s);
+        assertEquals(s, ss);
+        assertEquals(ss.hashCode(), s.hashCode());
+        assertEquals(Set.neu(1, 2, 3).hashCode(), Set.neu(3, 2, 1).hashCode());
+    }
+
+    @Test
+    public void testOrderedIteration() {
+        ISorted m = SortedMap.neu(3, "three", 1, "one", 10, "ten", 2, "two");
+        assertEquals(m.size(), 4);
+        assertEquals(m.keys(), List.neu(1, 2, 3, 10));
+        assertEquals(m.values(), List.neu("one", "two", "three", "ten"));
+        assertEquals(m.first(), List.neu(1, "one"));
+        assertEquals(m.last(), List.neu(10, "ten"));
+        assertEquals(m.nth(2), List.neu(3, "three"));
+        assertEquals(m.get(10), "ten");
+        assertNull(m.get(4));
+        assertEquals(m, Map.neu(1, "one", 2, "two", 3, "three", 10, "ten"));
+        assertEquals(m.toString(), "{[1, one], [2, two], [3, three], [10, ten]}");
+    }
+
+    @Test
+    public void testAssocIsPersistent() {
+        ISorted m = SortedMap.neu(1, "one");
+        ISorted m2 = m.assoc(2, "two");
+        ISorted m3 = m2.assoc(1, "uno");
+        assertEquals(m.size(), 1);
+        assertEquals(m2.size(), 2);
+        assertEquals(m2.get(1), "one");
+        assertEquals(m3.get(1), "uno");
+        assertTrue(m3.assoc(1, m3.get(1)) == m3);
+    }
+
+    @Test
+    public void testFloorCeiling() {
+        ISorted s = SortedSet.neu(10, 20, 30, 40);
+        assertEquals(s.floor(25), 20);
+        assertEquals(s.floor(20), 20);
+        assertNull(s.floor(5));
+        assertEquals(s.floor(99), 40);
+        assertEquals(s.ceiling(25), 30);
+        assertEquals(s.ceiling(30), 30);
+        assertEquals(s.ceiling(5), 10);
+        assertNull(s.ceiling(41));
+    }
+
+    @Test
+    public void testSubrange() {
+        ISorted s = SortedSet.neu(10, 20, 30, 40, 50);
+        ISorted view = s.subrange(20, 50);
+        assertEquals(view.size(), 3);
+        assertEquals(List.neu(view.toArray()), List.neu(20, 30, 40));
+        assertTrue(view.contains(20));
+        assertFalse(view.contains(50));
+        assertFalse(view.contains(10));
+        assertEquals(view.floor(99), 40);
+        assertNull(view.floor(15));
+        assertEquals(view.ceiling(0), 20);
+        assertNull(view.ceiling(45));
+        assertEquals(view.subrange(null, 30).size(), 1);
+        assertEquals(view.subrange(25, null).size(), 2);
+        assertEquals(s.subrange(60, 70).size(), 0);
+        assertEquals(view.assoc(35).size(), 4);
+        assertEquals(s.size(), 5);
+        expectFail(IllegalArgumentException.class, () -> view.assoc(5));
+    }
+
+    @Test
+    public void testAgainstTreeMap() {
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        ISorted m = SortedMap.neu();
+        for (int i = 0; i < 5000; i++) {
+            int k = ThreadLocalRandom.current().nextInt(10000);
+            expected.put(k, i);
+            m = m.assoc(k, i);
+        }
+        assertEquals(m.size(), expected.size());
+        assertEquals(List.neu(m.keys().toArray()), List.neu(expected.keySet().toArray()));
+        for (int k = -1; k <= 10000; k += 7) {
+            assertEquals(m.floor(k), expected.floorKey(k));
+            assertEquals(m.ceiling(k), expected.ceilingKey(k));
+        }
+        assertEquals(m.subrange(2000, 3000).size(), expected.subMap(2000, 3000).size());
+    }
+}
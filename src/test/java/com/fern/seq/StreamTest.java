@@ -0,0 +1,61 @@
+package com.fern.seq;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+import com.fern.lang.Fn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Spliterator;
+
+public class StreamTest extends BaseTest {
+    @Test
+    public void testListSpliterator() {
+        ISeq list = Fn.range(0, 999);
+        Spliterator<Object> split = list.rest().spliterator();
+        assertTrue(split.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE));
+        assertEquals(split.estimateSize(), 999L);
+        Spliterator<Object> prefix = split.trySplit();
+        assertEquals(prefix.estimateSize() + split.estimateSize(), 999L);
+        assertTrue(Math.abs(prefix.estimateSize() - split.estimateSize()) <= 1);
+    }
+
+    @Test
+    public void testHashedSpliterator() {
+        IHashed set = Set.neu(Fn.range(0, 99).toArray());
+        Spliterator<Object> split = set.spliterator();
+        assertTrue(split.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE));
+        assertEquals(split.estimateSize(), 100L);
+        assertEquals(Colls.stream(SortedMap.neu(1, "a", 2, "b")).count(), 2L);
+        assertEquals(Colls.stream(Colls.nil()).count(), 0L);
+    }
+
+    @Test
+    public void testParallelSum() {
+        ISeq list = Fn.range(1, 100_000);
+        long sum = Colls.parallelStream(list).mapToLong(i -> (Integer) i).sum();
+        assertEquals(sum, 100_000L * 100_001L / 2);
+    }
+
+    @Test
+    public void testToList() {
+        ISeq list = Fn.range(0, 9_999);
+        ISeq collected = Colls.parallelStream(list).collect(Colls.toList());
+        assertEquals(collected, list);
+        assertEquals(collected.hashCode(), list.hashCode());
+        assertEquals(Colls.stream(List.neu()).collect(Colls.toList()), List.neu());
+    }
+
+    @Test
+    public void testToSetAndMap() {
+        ISeq list = Fn.range(0, 9_999);
+        IHashed set = Colls.parallelStream(list).map(i -> (Integer) i % 100).collect(Colls.toSet());
+        assertEquals(set, Set.neu(Fn.range(0, 99).toArray()));
+        IHashed map = Colls.parallelStream(list).collect(Colls.toMap(i -> i, i -> "v" + i));
+        assertEquals(map.size(), 10_000);
+        assertEquals(map.get(1234), "v1234");
+        IHashed copy = Colls.parallelStream(map).collect(Colls.toMap());
+        assertEquals(copy, map);
+    }
+}
@@ -0,0 +1,117 @@
+package com.fern.seq;
+
+import org.junit.Test;
+import com.fern.BaseTest;
+import com.fern.lang.Fn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TransientTest extends BaseTest {
+    @Test
+    public void testTransientList() {
+        ITransient<ISeq> t = Colls.transientList(2);
+        for (int i = 0; i < 100; i++) {
+            t.conj(i);
+        }
+        t.conj(null);
+        assertEquals(t.size(), 101);
+        ISeq list = Colls.persistent(t);
+        assertEquals(list.size(), 101);
+        assertEquals(list.first(), 0);
+        assertEquals(list.nth(99), 99);
+        assertEquals(list.last(), null);
+        Object[] expected = new Object[101];
+        for (int i = 0; i < 100; i++) {
+            expected[i] = i;
+        }
+        assertEquals(list, List.neu(expected));
+        assertEquals(list.hashCode(), List.neu(expected).hashCode());
+    }
+
+    @Test
+    public void testTransientMap() {
+        ITransient<IHashed> t = Colls.transientMap();
+        for (int i = 0; i < 1000; i++) {
+            t.assoc(i, "v" + i);
+        }
+        t.assoc(7, "seven");
+        t.conj(List.neu("k", "v"));
+        assertEquals(t.size(), 1001);
+        IHashed m = Colls.persistent(t);
+        assertEquals(m.size(), 1001);
+        assertEquals(m.get(7), "seven");
+        assertEquals(m.get(999), "v999");
+        assertEquals(m.get("k"), "v");
+        assertEquals(m.keys().size(), 1001);
+        expectFail(IllegalArgumentException.class, () -> Colls.transientMap().conj(1));
+    }
+
+    @Test
+    public void testTransientSet() {
+        ITransient<IHashed> t = Colls.transientSet();
+        for (int i = 0; i < 1000; i++) {
+            t.conj(i % 500);
+        }
+        IHashed s = Colls.persistent(t);
+        assertEquals(s.size(), 500);
+        assertTrue(s.contains(499));
+        assertEquals(s, Set.neu(Fn.range(0, 499).toArray()));
+        expectFail(UnsupportedOperationException.class, () -> Colls.transientSet().assoc(1, 2));
+    }
+
+    @Test
+    public void testUseAfterPersistent() {
+        ITransient<ISeq> t = Colls.transientList();
+        t.conj(1);
+        t.persistent();
+        expectFail(IllegalStateException.class, () -> t.conj(2));
+        expectFail(IllegalStateException.class, t::persistent);
+    }
+
+    @Test
+    public void testOwnedByCreatingThread() throws InterruptedException {
+        ITransient<IHashed> t = Colls.transientMap();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread other = new Thread(() -> {
+            try {
+                t.assoc(1, 2);
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        other.start();
+        other.join();
+        assertEquals(failure.get().getClass(), IllegalStateException.class);
+    }
+
+    @Test
+    public void testInto() {
+        assertEquals(Fn.into(List.neu(1, 2), List.neu(3, 4)), List.neu(1, 2, 3, 4));
+        assertEquals(Fn.into(Colls.nil(), List.neu(3, 4)), List.neu(3, 4));
+        assertEquals(Fn.into(Set.neu(1, 2), List.neu(2, 3)), Set.neu(1, 2, 3));
+        IHashed m = (IHashed) Fn.into(Map.neu(1, "one"), List.neu(List.neu(2, "two"), List.neu(1, "uno")));
+        assertEquals(m, Map.neu(1, "uno", 2, "two"));
+        assertEquals(Fn.into(Map.neu(), Map.neu(3, "three")), Map.neu(3, "three"));
+    }
+
+    @Test
+    public void testIntoSorted() {
+        ISeq s = Fn.into(SortedSet.neu(3, 1), List.neu(2, 1, 4));
+        assertTrue(s instanceof SortedSet);
+        assertEquals(List.neu(s.toArray()), List.neu(1, 2, 3, 4));
+        Comparator<Object> reversed = (o1, o2) -> Integer.compare((int) o2, (int) o1);
+        ISeq r = Fn.into(SortedSet.neu(reversed, 3, 1), Set.neu(2, 4));
+        assertTrue(((ISorted) r).comparator() == reversed);
+        assertEquals(List.neu(r.toArray()), List.neu(4, 3, 2, 1));
+        ISeq m = Fn.into(SortedMap.neu(2, "two"), Map.neu(1, "one", 2, "dos"));
+        assertTrue(m instanceof SortedMap);
+        assertEquals(List.neu(m.toArray()), List.neu(1, "one", 2, "dos"));
+        assertEquals(Fn.into(Map.neu(), SortedMap.neu(3, "three")), Map.neu(3, "three"));
+        assertEquals(Fn.into(SortedMap.neu(), List.neu()), SortedMap.neu());
+        expectFail(IllegalArgumentException.class, () -> Fn.into(SortedMap.neu(), List.neu(1)));
+    }
+}
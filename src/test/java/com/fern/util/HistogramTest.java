@@ -0,0 +1,48 @@
+package com.fern.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+    @Test
+    public void testBuckets() {
+        for (int i = 0; i < Histogram.SUB_BUCKETS; i++) {
+            assertEquals(Histogram.bucket(i), i);
+        }
+        assertEquals(Histogram.bucket(-5L), 0);
+        assertEquals(Histogram.bucket(Long.MAX_VALUE), Histogram.BUCKETS - 1);
+        int prev = 0;
+        for (long v = 0L; v < 1L << 20; v++) {
+            int bucket = Histogram.bucket(v);
+            assertTrue(bucket == prev || bucket == prev + 1);
+            assertTrue(Histogram.lowerBound(bucket) <= v && v <= Histogram.upperBound(bucket));
+            prev = bucket;
+        }
+        for (int bucket = Histogram.SUB_BUCKETS; bucket < Histogram.BUCKETS - 1; bucket++) {
+            long lower = Histogram.lowerBound(bucket);
+            assertEquals(Histogram.bucket(lower), bucket);
+            assertEquals(Histogram.bucket(Histogram.upperBound(bucket)), bucket);
+            assertTrue(Histogram.upperBound(bucket) - lower < lower / Histogram.SUB_BUCKETS + 1);
+        }
+    }
+
+    @Test
+    public void testSnapshot() {
+        Histogram histogram = new Histogram();
+        assertEquals(histogram.snapshot().percentile(99.0), 0L);
+        for (long v = 1L; v <= 1_000L; v++) {
+            histogram.record(v);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(snapshot.count(), 1_000L);
+        assertEquals(snapshot.mean(), 500.5, 0.0);
+        long p50 = snapshot.percentile(50.0);
+        assertTrue(p50 >= 500L && p50 < 500L * 9 / 8);
+        long p99 = snapshot.percentile(99.0);
+        assertTrue(p99 >= 990L && p99 < 990L * 9 / 8);
+        assertEquals(snapshot.percentile(100.0), Histogram.upperBound(Histogram.bucket(1_000L)));
+        assertEquals(snapshot.percentile(0.0), 1L);
+    }
+}
@@ -0,0 +1,117 @@
+package com.fern.util.clf;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+import com.fern.BaseTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CLFByteParserTest {
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean parse(String line, MutableCLF clf) {
+        ByteBuffer buffer = bytes("##" + line + "##"); // not at the buffer's edges
+        return CLFByteParser.parse(buffer, 2, buffer.limit() - 4, clf);
+    }
+
+    @Test
+    public void test_parse_agrees_with_CLFParser() {
+        MutableCLF clf = new MutableCLF();
+        long start = 1604311200000L;
+        for (CLF expected : new CLFGenerator(start, 5_000L, 1L)) {
+            String line = expected.toString();
+            Assert.assertTrue(line, parse(line, clf));
+            Assert.assertEquals(clf.toCLF(), CLFParser.parseLogLine(line));
+            Assert.assertEquals(clf.getUTCTimestamp(), UTCTimestamp.truncateMillis(expected.getUTCTimestamp()));
+        }
+    }
+
+    @Test
+    public void test_parse_fields() throws ParseException {
+        MutableCLF clf = new MutableCLF();
+        Assert.assertTrue(parse("127.0.0.1 - james [09/May/2018:16:00:39 +0000] \"GET /report/x HTTP/1.0\" 200 123\r", clf));
+        Assert.assertEquals(clf.getHost(), "127.0.0.1");
+        Assert.assertEquals(clf.getIdent(), "-");
+        Assert.assertEquals(clf.getAuthUser(), "james");
+        Assert.assertEquals(clf.getUTCTimestamp(), UTCTimestamp.parse("09/05/2018:16:00:39 +0000"));
+        Assert.assertEquals(clf.getMethod(), CLF.HTTPMethod.GET);
+        Assert.assertEquals(clf.getResource(), "/report/x");
+        Assert.assertEquals(clf.getVersion(), "1.0");
+        Assert.assertEquals(clf.getStatus(), 200);
+        Assert.assertEquals(clf.getBytes(), 123L);
+        Assert.assertTrue(parse("h - u [10/November/2020:16:00:00 +0100] \"DELETE /a HTTP/2.0\" 503 0", clf));
+        Assert.assertEquals(clf.getUTCTimestamp(), UTCTimestamp.parse("10/11/2020:15:00:00 +0000"));
+        Assert.assertEquals(clf.getMethod(), CLF.HTTPMethod.DELETE);
+        Assert.assertTrue(parse("h - u [1/nov/2020:16:00:00 -0030] \"PATCH /a HTTP/2.0\" 503 0", clf));
+        Assert.assertEquals(clf.getUTCTimestamp(), UTCTimestamp.parse("01/11/2020:16:30:00 +0000"));
+    }
+
+    @Test
+    public void test_parse_malformed() {
+        MutableCLF clf = new MutableCLF();
+        String[] malformed = {
+                "",
+                "127.0.0.1 - james",
+                "127.0.0.1 - james 09/May/2018:16:00:39 +0000 \"GET /report HTTP/1.0\" 200 123",
+                "127.0.0.1 - james [09/Mayo/2018:16:00:39 +0000] \"GET /report HTTP/1.0\" 200 123",
+                "127.0.0.1 - james [09/13/2018:16:00:39 +0000] \"GET /report HTTP/1.0\" 200 123",
+                "127.0.0.1 - james [09/05/2018:16:00:39] \"GET /report HTTP/1.0\" 200 123",
+                "127.0.0.1 - james [09/05/2018:16:00:39 +0000] \"FETCH /report HTTP/1.0\" 200 123",
+                "127.0.0.1 - james [09/05/2018:16:00:39 +0000] \"GET  HTTP/1.0\" 200 123",
+                "127.0.0.1 - james [09/05/2018:16:00:39 +0000] \"GET /report HTTP/1\" 200 123",
+                "127.0.0.1 - james [09/05/2018:16:00:39 +0000] \"GET /report FTP/1.0\" 200 123",
+                "127.0.0.1 - james [09/05/2018:16:00:39 +0000] \"GET /report HTTP/1.0\" 2x0 123",
+                "127.0.0.1 - james [09/05/2018:16:00:39 +0000] \"GET /report HTTP/1.0\" 200 -",
+                "127.0.0.1 - james [09/05/2018:16:00:39 +0000] \"GET /report HTTP/1.0\" 200",
+        };
+        for (String line : malformed) {
+            Assert.assertFalse(line, parse(line, clf));
+        }
+    }
+
+    public static void main(String[] args) {
+        StringBuilder sb = new StringBuilder();
+        int lines = 0;
+        for (CLF clf : new CLFGenerator(1604311200000L, 1_000_000L, 1L)) {
+            sb.append(clf).append('\n');
+            lines++;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(sb.length());
+        buffer.put(sb.toString().getBytes(StandardCharsets.UTF_8)).flip();
+        int[] starts = new int[lines + 1];
+        for (int i = 0, line = 1; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                starts[line++] = i + 1;
+            }
+        }
+        int lineCount = lines;
+        MutableCLF clf = new MutableCLF();
+        byte[] lineBytes = new byte[512];
+        for (int round = 0; round < 5; round++) {
+            long stringMillis = BaseTest.timed(() -> {
+                for (int line = 0; line < lineCount; line++) {
+                    int length = starts[line + 1] - starts[line] - 1;
+                    buffer.get(starts[line], lineBytes, 0, length);
+                    CLFParser.parseLogLine(new String(lineBytes, 0, length, StandardCharsets.UTF_8));
+                }
+            }, TimeUnit.MILLISECONDS);
+            long byteMillis = BaseTest.timed(() -> {
+                for (int line = 0; line < lineCount; line++) {
+                    if (false == CLFByteParser.parse(buffer, starts[line], starts[line + 1] - starts[line] - 1, clf)) {
+                        throw new IllegalStateException();
+                    }
+                }
+            }, TimeUnit.MILLISECONDS);
+            System.out.printf("%d lines, decode + CLFParser: %d millis (%.0f lines/sec), CLFByteParser: %d millis (%.0f lines/sec)\n",
+                    lines,
+                    stringMillis, lines * 1000.0 / stringMillis,
+                    byteMillis, lines * 1000.0 / byteMillis);
+        }
+    }
+}
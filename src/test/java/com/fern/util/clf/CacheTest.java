@@ -6,7 +6,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
@@ -145,6 +147,143 @@ public class CacheTest {
         }
     }
 
+    @Test
+    public void test_cache_add_keeps_order() {
+        List<WithUTCTimestamp> entries = Stream.of(5L, 3L, 5L, 1L, 4L, 3L, 6L)
+                .map(ts -> (WithUTCTimestamp) () -> ts)
+                .collect(Collectors.toList());
+        ReadoutCache<WithUTCTimestamp> cache = new ReadoutCache<>();
+        entries.forEach(cache::add);
+        List<WithUTCTimestamp> cached = cache.fetch(0L, 10L);
+        Assert.assertEquals(List.of(
+                entries.get(3), entries.get(1), entries.get(5), entries.get(4),
+                entries.get(0), entries.get(2), entries.get(6)), cached);
+        Assert.assertEquals(cache.firstTimestamp(), 1L);
+    }
+
+    @Test
+    public void test_cache_addAll_appends_or_merges() {
+        List<WithUTCTimestamp> entries = LongStream.range(0L, 10L)
+                .mapToObj(ts -> (WithUTCTimestamp) () -> ts * 1000L)
+                .collect(Collectors.toList());
+        ReadoutCache<WithUTCTimestamp> cache = new ReadoutCache<>();
+        cache.addAll(new ArrayList<>(entries.subList(5, 10)));
+        cache.addAll(new ArrayList<>(List.of(entries.get(3), entries.get(0), entries.get(4))));
+        cache.addAll(new ArrayList<>(List.of(entries.get(1), entries.get(2))));
+        Assert.assertEquals(entries, cache.fetch(0L, 9000L));
+        Assert.assertEquals(cache.firstTimestamp(), 0L);
+    }
+
+    @Test
+    public void test_cache_fetch_agrees_with_sorted_list_over_gaps_and_late_entries() {
+        Random rand = new Random(0);
+        List<WithUTCTimestamp> sorted = new ArrayList<>();
+        ReadoutCache<WithUTCTimestamp> cache = new ReadoutCache<>();
+        long ts = 1604311200000L;
+        for (int i = 0; i < 5_000; i++) {
+            ts += rand.nextInt(10) == 0 ? rand.nextInt(5_000) : rand.nextInt(50);
+            long entryTs = rand.nextInt(20) == 0 ? ts - rand.nextInt(3_000) : ts;
+            WithUTCTimestamp entry = () -> entryTs;
+            sorted.add(entry);
+            cache.add(entry);
+        }
+        sorted.sort(WithUTCTimestamp.COMPARING);
+        Assert.assertEquals(sorted.size(), cache.size());
+        Assert.assertEquals(ts(sorted, 0), cache.firstTimestamp());
+        long first = ts(sorted, 0) - 2_000L;
+        long last = ts(sorted, sorted.size() - 1) + 2_000L;
+        for (int i = 0; i < 2_000; i++) {
+            long periodStart = first + (long) (rand.nextDouble() * (last - first));
+            long periodEnd = periodStart + rand.nextInt(10_000);
+            int startIdx = ReadoutCache.slideBack(sorted, ReadoutCache.findNearest(sorted, periodStart));
+            int endIdx = ReadoutCache.slideForward(sorted, ReadoutCache.findNearest(sorted, periodEnd));
+            Assert.assertEquals(sorted.subList(startIdx, endIdx + 1), cache.fetch(periodStart, periodEnd));
+        }
+    }
+
+    @Test
+    public void test_cache_evict_across_segments() {
+        List<WithUTCTimestamp> entries = LongStream.range(0L, 100L)
+                .mapToObj(i -> (WithUTCTimestamp) () -> i * 250L)
+                .collect(Collectors.toList());
+        ReadoutCache<WithUTCTimestamp> cache = new ReadoutCache<>();
+        cache.addAll(new ArrayList<>(entries));
+        cache.evict(6);
+        Assert.assertEquals(94, cache.size());
+        Assert.assertEquals(1500L, cache.firstTimestamp());
+        Assert.assertEquals(entries.subList(6, 8), cache.fetch(0L, 0L));
+        cache.evict(30);
+        Assert.assertEquals(9000L, cache.firstTimestamp());
+        Assert.assertEquals(entries.subList(36, 100), cache.fetch(0L, Long.MAX_VALUE));
+        cache.add(entries.get(0));
+        Assert.assertEquals(0L, cache.firstTimestamp());
+        Assert.assertEquals(9000L, cache.firstTimestampSince(0L));
+        cache.evict(cache.size());
+        Assert.assertTrue(cache.isEmpty());
+        Assert.assertEquals(ReadoutCache.NO_VALUE, cache.firstTimestamp());
+    }
+
+    @Test
+    public void test_cache_fetch_moves_to_nearest_second_across_gaps() {
+        List<WithUTCTimestamp> entries = Stream.of(1_000L, 1_500L, 10_000L, 10_900L, 30_000L)
+                .map(ts -> (WithUTCTimestamp) () -> ts)
+                .collect(Collectors.toList());
+        ReadoutCache<WithUTCTimestamp> cache = new ReadoutCache<>();
+        entries.forEach(cache::add);
+        Assert.assertEquals(entries.subList(0, 2), cache.fetch(5_000L, 5_000L));
+        Assert.assertEquals(entries.subList(2, 4), cache.fetch(6_000L, 6_000L));
+        Assert.assertEquals(entries.subList(0, 4), cache.fetch(1_200L, 12_000L));
+        Assert.assertEquals(entries.subList(4, 5), cache.fetch(40_000L, 50_000L));
+        Assert.assertEquals(10_000L, cache.firstTimestampSince(1_500L));
+        Assert.assertEquals(30_000L, cache.firstTimestampSince(15_000L));
+        Assert.assertEquals(ReadoutCache.NO_VALUE, cache.firstTimestampSince(30_000L));
+    }
+
+    public static void main(String... args) {
+        int size = 20_000;
+        List<WithUTCTimestamp> entries = new ArrayList<>(size);
+        Random rand = new Random(0);
+        for (int i = 0; i < size; i++) {
+            long ts = 1604311200000L + i * 10L + (i % 100 == 0 ? -rand.nextInt(1_000) : 0);
+            entries.add(() -> ts);
+        }
+        for (int round = 0; round < 3; round++) {
+            List<WithUTCTimestamp> sortEachTime = new ArrayList<>();
+            long start = System.nanoTime();
+            for (WithUTCTimestamp entry : entries) {
+                sortEachTime.add(entry);
+                sortEachTime.sort(WithUTCTimestamp.COMPARING);
+            }
+            long sortNanos = System.nanoTime() - start;
+            ReadoutCache<WithUTCTimestamp> cache = new ReadoutCache<>();
+            start = System.nanoTime();
+            entries.forEach(cache::add);
+            long addNanos = System.nanoTime() - start;
+            cache = new ReadoutCache<>();
+            start = System.nanoTime();
+            for (int i = 0; i < size; i += 4096) {
+                cache.addAll(new ArrayList<>(entries.subList(i, Math.min(size, i + 4096))));
+            }
+            long addAllNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            int fetched = 0;
+            for (int i = 0; i < size; i++) {
+                long ts = entries.get(i).getUTCTimestamp();
+                fetched += cache.fetch(ts, ts + 1000L).size();
+            }
+            long fetchNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < size; i += 100) {
+                cache.evict(100);
+            }
+            long evictNanos = System.nanoTime() - start;
+            System.out.printf("%d entries (1%% late): add+sort %d ms, add %d ms, addAll in batches %d ms, " +
+                            "%d fetches (%d entries) %d ms, evict in 100s %d ms%n",
+                    size, sortNanos / 1_000_000, addNanos / 1_000_000, addAllNanos / 1_000_000,
+                    size, fetched, fetchNanos / 1_000_000, evictNanos / 1_000_000);
+        }
+    }
+
     public static <T extends WithUTCTimestamp> long ts(List<T> entries, int idx) {
         return entries.get(idx).getUTCTimestamp();
     }
@@ -0,0 +1,180 @@
+package com.fern.util.clf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.fern.util.Store;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColumnarCLFReadoutCacheTest {
+
+    private static final long START_TS = 1604311200000L;
+
+    @Test
+    public void test_views_read_back_the_entries() {
+        CLF clf = CLF.builder()
+                .host("10.0.0.1")
+                .ident("-")
+                .authUser("admin")
+                .timestamp(START_TS + 123L)
+                .method(CLF.HTTPMethod.PATCH)
+                .resource("/api/users/7")
+                .version("1.1")
+                .status(404)
+                .bytes(5_000_000_000L)
+                .build();
+        ColumnarCLFReadoutCache cache = new ColumnarCLFReadoutCache();
+        cache.add(clf);
+        List<CLF> fetched = cache.fetch(START_TS, START_TS);
+        Assert.assertEquals(1, fetched.size());
+        CLF view = fetched.get(0);
+        Assert.assertEquals(clf, view);
+        Assert.assertEquals(view, clf);
+        Assert.assertEquals(clf.hashCode(), view.hashCode());
+        Assert.assertEquals(clf.toString(), view.toString());
+        Assert.assertEquals("/api", view.getSection());
+        Assert.assertEquals(START_TS + 123L, cache.firstTimestamp());
+    }
+
+    @Test
+    public void test_agrees_with_object_cache() {
+        Random rand = new Random(0);
+        ReadoutCache<CLF> objects = new ReadoutCache<>();
+        ColumnarCLFReadoutCache columns = new ColumnarCLFReadoutCache();
+        CLFGenerator generator = new CLFGenerator(START_TS, 60_000L, 1L);
+        List<CLF> batch = new ArrayList<>();
+        for (CLF clf : generator) {
+            CLF entry = rand.nextInt(20) == 0 ? late(clf, rand.nextInt(5_000)) : clf;
+            batch.add(entry);
+            if (batch.size() == 500) {
+                objects.addAll(new ArrayList<>(batch));
+                columns.addAll(new ArrayList<>(batch));
+                batch.clear();
+                List<CLF> expected = objects.fetch(entry.getUTCTimestamp() - 3_000L, entry.getUTCTimestamp());
+                Assert.assertEquals(expected, columns.fetch(entry.getUTCTimestamp() - 3_000L, entry.getUTCTimestamp()));
+            }
+            if (rand.nextInt(2_000) == 0) {
+                int count = objects.size() / 3;
+                objects.evict(count);
+                columns.evict(count);
+            }
+        }
+        objects.addAll(batch);
+        columns.addAll(new ArrayList<>(batch));
+        Assert.assertEquals(objects.size(), columns.size());
+        Assert.assertEquals(objects.firstTimestamp(), columns.firstTimestamp());
+        Assert.assertEquals(objects.fetch(0L, Long.MAX_VALUE), columns.fetch(0L, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void test_dictionary_holds_the_strings_of_the_second() {
+        CLFColumns columns = new CLFColumns(START_TS / 1000L, 4);
+        columns.set(0, CLF.builder().host("a").resource("/x").timestamp(START_TS).build());
+        columns.set(1, CLF.builder().host("b").resource("/x").timestamp(START_TS + 1L).build());
+        Assert.assertEquals(4, columns.dictionarySize()); // a, b, /x and -
+        CLFColumns copy = (CLFColumns) columns.copy(1, 8);
+        copy.set(1, CLF.builder().host("c").resource("/x").timestamp(START_TS + 2L).build());
+        Assert.assertEquals("b", copy.get(0).getHost());
+        Assert.assertEquals("c", copy.get(1).getHost());
+        Assert.assertEquals(5, columns.dictionarySize());
+        Assert.assertEquals(0, new CLFColumns(START_TS / 1000L + 1L, 4).dictionarySize());
+    }
+
+    @Test
+    public void test_out_of_range_status_is_rejected() {
+        ColumnarCLFReadoutCache cache = new ColumnarCLFReadoutCache();
+        cache.add(CLF.builder().host("a").timestamp(START_TS + 100L).status(200).build());
+        cache.add(CLF.builder().host("c").timestamp(START_TS + 300L).status(200).build());
+        for (int status : new int[]{Short.MAX_VALUE + 1, Short.MIN_VALUE - 1}) {
+            try {
+                cache.add(CLF.builder().host("b").timestamp(START_TS + 200L).status(status).build());
+                Assert.fail("status accepted: " + status);
+            } catch (IllegalArgumentException expected) {
+                // not stored
+            }
+        }
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(List.of("a", "c"), cache.fetch(START_TS, START_TS).stream().map(CLF::getHost).toList());
+    }
+
+    @Test
+    public void test_views_do_not_change_when_late_entries_are_inserted() {
+        ColumnarCLFReadoutCache cache = new ColumnarCLFReadoutCache();
+        cache.add(CLF.builder().host("a").timestamp(START_TS + 100L).build());
+        cache.add(CLF.builder().host("c").timestamp(START_TS + 300L).build());
+        List<CLF> before = cache.fetch(START_TS, START_TS);
+        cache.add(CLF.builder().host("b").timestamp(START_TS + 200L).build());
+        Assert.assertEquals("a", before.get(0).getHost());
+        Assert.assertEquals("c", before.get(1).getHost());
+        List<CLF> after = cache.fetch(START_TS, START_TS);
+        Assert.assertEquals(List.of("a", "b", "c"), after.stream().map(CLF::getHost).toList());
+    }
+
+    @Test
+    public void test_readout_into_columnar_cache() throws IOException {
+        Path file = Store.resolve(Store.accessLogFileName());
+        try {
+            long written = Store.storeToFile(file, new CLFGenerator(START_TS, 5_000L, 1L), false);
+            ReadoutCache<CLF> objects = new ReadoutCache<>();
+            ColumnarCLFReadoutCache columns = new ColumnarCLFReadoutCache(true);
+            Assert.assertEquals(written, new CLFReadoutHandler(file).fetchAvailableLines(objects));
+            Assert.assertEquals(written, new CLFReadoutHandler(file).fetchAvailableLines(columns));
+            Assert.assertEquals(objects.fetch(0L, Long.MAX_VALUE), columns.fetch(0L, Long.MAX_VALUE));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static CLF late(CLF clf, long millis) {
+        return CLF.builder()
+                .host(clf.getHost())
+                .ident(clf.getIdent())
+                .authUser(clf.getAuthUser())
+                .timestamp(clf.getUTCTimestamp() - millis)
+                .method(clf.getMethod())
+                .resource(clf.getResource())
+                .version(clf.getVersion())
+                .status(clf.getStatus())
+                .bytes(clf.getBytes())
+                .build();
+    }
+
+    public static void main(String... args) {
+        int size = 2_000_000;
+        for (boolean columnar : new boolean[]{false, true}) {
+            System.gc();
+            Runtime runtime = Runtime.getRuntime();
+            long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+            ReadoutCache<CLF> cache = columnar ? new ColumnarCLFReadoutCache(true) : new ReadoutCache<>(true);
+            List<CLF> batch = new ArrayList<>();
+            long start = System.nanoTime();
+            for (CLF clf : new CLFGenerator(START_TS, size, 1L)) {
+                batch.add(clf);
+                if (batch.size() == 4096) {
+                    cache.addAll(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            cache.addAll(batch);
+            long addNanos = System.nanoTime() - start;
+            System.gc();
+            long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+            start = System.nanoTime();
+            long checksum = 0;
+            for (long ts = START_TS; ts < START_TS + size; ts += 10_000L) {
+                for (CLF clf : cache.fetch(ts, ts + 10_000L)) {
+                    checksum += clf.getBytes();
+                }
+            }
+            long fetchNanos = System.nanoTime() - start;
+            System.out.printf("%s: %d entries, heap +%d MB, add %d ms, fetch all %d ms (%d)%n",
+                    columnar ? "columnar" : "objects", cache.size(), (heapAfter - heapBefore) / (1024 * 1024),
+                    addNanos / 1_000_000, fetchNanos / 1_000_000, checksum);
+        }
+    }
+}
@@ -2,9 +2,14 @@ package com.fern.util.clf;
 
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -99,4 +104,129 @@ public class FileReadoutHandlerTest {
             Files.deleteIfExists(file);
         }
     }
+
+    @Test
+    public void test_parallel_readout_agrees_with_sequential_readout() throws IOException {
+        Path file = Store.resolve(Store.accessLogFileName());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            long start = System.currentTimeMillis();
+            long written = Store.storeToFile(file, new CLFGenerator(start, 2_000L, 1L), false);
+            appendRaw(file, "not a log line\n");
+            written += Store.storeToFile(file, new CLFGenerator(start + 2_000L, 2_000L, 1L), true);
+            appendRaw(file, "127.0.0.1 - partial");
+
+            FileReadoutHandler<CLF> sequential = new CLFReadoutHandler(file);
+            ReadoutCache<CLF> sequentialCache = new ReadoutCache<>();
+            int sequentialCount = sequential.fetchAvailableLines(sequentialCache);
+
+            FileReadoutHandler<CLF> parallel = new CLFReadoutHandler(file);
+            ReadoutCache<CLF> parallelCache = new ReadoutCache<>();
+            int parallelCount = parallel.fetchAvailableLines(parallelCache, pool, 4096L);
+
+            Assert.assertEquals(written, sequentialCount);
+            Assert.assertEquals(sequentialCount, parallelCount);
+            Assert.assertEquals(sequential.getFileReadOffset(), parallel.getFileReadOffset());
+            Assert.assertTrue(parallel.getFileReadOffset() < Files.size(file));
+            assertSameEntries(sequentialCache, parallelCache);
+            Assert.assertEquals(0, parallel.fetchAvailableLines(parallelCache, pool, 4096L));
+
+            appendRaw(file, "\n");
+            Assert.assertEquals(0, parallel.fetchAvailableLines(parallelCache, pool, 4096L));
+            Assert.assertEquals(Files.size(file), parallel.getFileReadOffset());
+        } finally {
+            pool.shutdown();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void test_parallel_readout_honours_null_return_throttle() throws IOException {
+        Path file = Store.resolve(Store.accessLogFileName());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            long start = System.currentTimeMillis();
+            long written = Store.storeToFile(file, new CLFGenerator(start, 1_000L, 1L), false);
+            appendRaw(file, "THROTTLE\n");
+            Store.storeToFile(file, new CLFGenerator(start + 1_000L, 1_000L, 1L), true);
+
+            FileReadoutHandler<CLF> sequential = throttlingHandler(file);
+            ReadoutCache<CLF> sequentialCache = new ReadoutCache<>();
+            int sequentialCount = sequential.fetchAvailableLines(sequentialCache);
+
+            FileReadoutHandler<CLF> parallel = throttlingHandler(file);
+            ReadoutCache<CLF> parallelCache = new ReadoutCache<>();
+            int parallelCount = parallel.fetchAvailableLines(parallelCache, pool, 4096L);
+
+            Assert.assertEquals(written, sequentialCount);
+            Assert.assertEquals(sequentialCount, parallelCount);
+            Assert.assertEquals(sequential.getFileReadOffset(), parallel.getFileReadOffset());
+            assertSameEntries(sequentialCache, parallelCache);
+            Assert.assertEquals(0, parallel.fetchAvailableLines(parallelCache, pool, 4096L));
+            Assert.assertEquals(sequential.getFileReadOffset(), parallel.getFileReadOffset());
+        } finally {
+            pool.shutdown();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void test_merge_keeps_run_order_for_equal_timestamps() {
+        long ts = 1604311200000L;
+        CLF a = CLF.builder().host("a").timestamp(ts).build();
+        CLF b = CLF.builder().host("b").timestamp(ts).build();
+        CLF c = CLF.builder().host("c").timestamp(ts - 1000L).build();
+        CLF d = CLF.builder().host("d").timestamp(ts + 1000L).build();
+        List<CLF> merged = ReadoutCache.merge(List.of(List.of(a, d), List.of(), List.of(c, b)));
+        Assert.assertEquals(List.of(c, a, b, d), merged);
+    }
+
+    private static FileReadoutHandler<CLF> throttlingHandler(Path file) {
+        return new CLFReadoutHandler(file) {
+            @Override
+            public CLF parseLine(ByteBuffer buffer, int offset, int length) {
+                return buffer.get(offset) == 'T' ? null : super.parseLine(buffer, offset, length);
+            }
+        };
+    }
+
+    private static void appendRaw(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private static void assertSameEntries(ReadoutCache<CLF> expected, ReadoutCache<CLF> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        List<CLF> expectedEntries = expected.fetch(0L, Long.MAX_VALUE);
+        List<CLF> actualEntries = actual.fetch(0L, Long.MAX_VALUE);
+        for (int i = 0; i < expectedEntries.size(); i++) {
+            Assert.assertEquals(expectedEntries.get(i).toString(), actualEntries.get(i).toString());
+        }
+    }
+
+    public static void main(String... args) throws IOException {
+        Path file = Store.resolve(Store.accessLogFileName());
+        try {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 10; i++) {
+                Store.storeToFile(file, new CLFGenerator(start + i * 100_000L, 100_000L, 1L), i > 0);
+            }
+            System.out.printf("File size: %d MB%n", Files.size(file) / (1024 * 1024));
+            for (int round = 0; round < 5; round++) {
+                ReadoutCache<CLF> sequentialCache = new ReadoutCache<>();
+                long startNanos = System.nanoTime();
+                int lines = new CLFReadoutHandler(file).fetchAvailableLines(sequentialCache);
+                long sequentialNanos = System.nanoTime() - startNanos;
+
+                ReadoutCache<CLF> parallelCache = new ReadoutCache<>();
+                startNanos = System.nanoTime();
+                new CLFReadoutHandler(file).fetchAvailableLines(parallelCache, ForkJoinPool.commonPool(), 4L * 1024 * 1024);
+                long parallelNanos = System.nanoTime() - startNanos;
+                System.out.printf("%d lines, sequential: %d ms, parallel (%d threads): %d ms%n",
+                        lines, sequentialNanos / 1_000_000,
+                        ForkJoinPool.commonPool().getParallelism(), parallelNanos / 1_000_000);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
 }
@@ -0,0 +1,160 @@
+package com.fern.util.clf;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import com.fern.util.Store;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LogTailerTest {
+
+    private Path folder;
+    private LogTailer tailer;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Store.resolve(Store.nestedAccessLogFileName()).getParent();
+        Files.createDirectories(folder);
+        tailer = new LogTailer();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        tailer.close();
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    public void test_tails_appended_lines() throws Exception {
+        Path file = folder.resolve("access.log");
+        long start = System.currentTimeMillis();
+        long written = Store.storeToFile(file, new CLFGenerator(start, 100L, 1L), false);
+        ReadoutCache<CLF> cache = new ReadoutCache<>();
+        tailer.register(new CLFReadoutHandler(file), cache);
+        Assert.assertEquals(written, cache.size());
+        long total = written + Store.storeToFile(file, new CLFGenerator(start + 100L, 100L, 1L), true);
+        awaitUntil(() -> cache.size() == total);
+    }
+
+    @Test
+    public void test_file_created_after_registration() throws Exception {
+        Path file = folder.resolve("access.log");
+        ReadoutCache<CLF> cache = new ReadoutCache<>();
+        tailer.register(new CLFReadoutHandler(file), cache);
+        Assert.assertTrue(cache.isEmpty());
+        long written = Store.storeToFile(file, new CLFGenerator(System.currentTimeMillis(), 100L, 1L), false);
+        awaitUntil(() -> cache.size() == written);
+    }
+
+    @Test
+    public void test_truncation_reads_from_start() throws Exception {
+        Path file = folder.resolve("access.log");
+        long start = System.currentTimeMillis();
+        long written = Store.storeToFile(file, new CLFGenerator(start, 100L, 1L), false);
+        ReadoutCache<CLF> cache = new ReadoutCache<>();
+        CLFReadoutHandler handler = new CLFReadoutHandler(file);
+        tailer.register(handler, cache);
+        Assert.assertEquals(written, cache.size());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(0L);
+        }
+        long total = written + Store.storeToFile(file, new CLFGenerator(start + 100L, 10L, 1L), true);
+        awaitUntil(() -> cache.size() == total);
+        Assert.assertEquals(Files.size(file), handler.getFileReadOffset());
+    }
+
+    @Test
+    public void test_rotation_drains_old_file_and_reads_new_one() throws Exception {
+        Path file = folder.resolve("access.log");
+        long start = System.currentTimeMillis();
+        long written = Store.storeToFile(file, new CLFGenerator(start, 100L, 1L), false);
+        ReadoutCache<CLF> cache = new ReadoutCache<>();
+        CLFReadoutHandler handler = new CLFReadoutHandler(file);
+        tailer.register(handler, cache);
+        Assert.assertEquals(written, cache.size());
+        long total;
+        synchronized (tailer) { // keep the tailer from reading the last lines before the rotation
+            total = written + Store.storeToFile(file, new CLFGenerator(start + 100L, 100L, 1L), true);
+            Files.move(file, folder.resolve("access.log.1"), StandardCopyOption.ATOMIC_MOVE);
+        }
+        long rotatedTotal = total + Store.storeToFile(file, new CLFGenerator(start + 200L, 50L, 1L), false);
+        awaitUntil(() -> cache.size() == rotatedTotal);
+        Assert.assertEquals(Files.size(file), handler.getFileReadOffset());
+    }
+
+    @Test
+    public void test_one_tailer_serves_many_files() throws Exception {
+        List<ReadoutCache<CLF>> caches = new ArrayList<>();
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Path file = folder.resolve("access_" + i + ".log");
+            ReadoutCache<CLF> cache = new ReadoutCache<>();
+            tailer.register(new CLFReadoutHandler(file), cache);
+            files.add(file);
+            caches.add(cache);
+        }
+        Assert.assertEquals(200, tailer.size());
+        long start = System.currentTimeMillis();
+        long[] written = new long[files.size()];
+        for (int i = 0; i < files.size(); i++) {
+            written[i] = Store.storeToFile(files.get(i), new CLFGenerator(start, 10L + i % 7, 1L), false);
+        }
+        awaitUntil(() -> {
+            for (int i = 0; i < caches.size(); i++) {
+                if (caches.get(i).size() != written[i]) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    @Test
+    public void test_register_unregister() throws Exception {
+        CLFReadoutHandler handler = new CLFReadoutHandler(folder.resolve("access.log"));
+        tailer.register(handler, new ReadoutCache<>());
+        try {
+            tailer.register(handler, new ReadoutCache<>());
+            Assert.fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        Assert.assertTrue(tailer.unregister(handler));
+        Assert.assertFalse(tailer.unregister(handler));
+        Assert.assertEquals(0, tailer.size());
+        tailer.close();
+        try {
+            tailer.register(handler, new ReadoutCache<>());
+            Assert.fail("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (false == condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                Assert.fail("timed out");
+            }
+            TimeUnit.MILLISECONDS.sleep(20L);
+        }
+    }
+}
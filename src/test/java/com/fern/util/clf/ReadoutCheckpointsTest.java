@@ -0,0 +1,151 @@
+package com.fern.util.clf;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import com.fern.util.Store;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReadoutCheckpointsTest {
+
+    private Path folder;
+    private Path journal;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Store.resolve(Store.nestedAccessLogFileName()).getParent();
+        Files.createDirectories(folder);
+        journal = folder.resolve("checkpoints");
+        file = folder.resolve("access.log");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    public void test_resume_after_restart() throws IOException {
+        long start = System.currentTimeMillis();
+        long written = Store.storeToFile(file, new CLFGenerator(start, 100L, 1L), false);
+        CLFReadoutHandler handler = new CLFReadoutHandler(file);
+        try (ReadoutCheckpoints checkpoints = new ReadoutCheckpoints(journal, 1_000, 60_000L)) {
+            Assert.assertFalse(checkpoints.restore(handler));
+            int read = handler.fetchAvailableLines(new ReadoutCache<>());
+            Assert.assertEquals(written, read);
+            checkpoints.update(handler, read);
+        }
+        long more = Store.storeToFile(file, new CLFGenerator(start + 100L, 100L, 1L), true);
+
+        CLFReadoutHandler restarted = new CLFReadoutHandler(file);
+        try (ReadoutCheckpoints checkpoints = new ReadoutCheckpoints(journal, 1_000, 60_000L)) {
+            Assert.assertTrue(checkpoints.restore(restarted));
+            Assert.assertEquals(handler.getFileReadOffset(), restarted.getFileReadOffset());
+            Assert.assertTrue(handler.getLastTimestamp() > 0L);
+            Assert.assertEquals(handler.getLastTimestamp(), restarted.getLastTimestamp());
+            Assert.assertEquals(more, restarted.fetchAvailableLines(new ReadoutCache<>()));
+        }
+    }
+
+    @Test
+    public void test_checkpoints_are_batched() throws IOException {
+        Store.storeToFile(file, new CLFGenerator(System.currentTimeMillis(), 100L, 1L), false);
+        CLFReadoutHandler handler = new CLFReadoutHandler(file);
+        handler.fetchAvailableLines(new ReadoutCache<>());
+        try (ReadoutCheckpoints checkpoints = new ReadoutCheckpoints(journal, 1_000, 60_000L)) {
+            for (int i = 0; i < 999; i++) {
+                checkpoints.update(handler, 1);
+            }
+            Assert.assertEquals(0L, checkpoints.flushCount());
+            Assert.assertEquals(0L, Files.size(journal));
+            checkpoints.update(handler, 1);
+            Assert.assertEquals(1L, checkpoints.flushCount());
+            Assert.assertEquals(handler.getFileReadOffset(), checkpoints.get(file).offset());
+        }
+    }
+
+    @Test
+    public void test_truncated_file_is_read_from_start() throws IOException {
+        Store.storeToFile(file, new CLFGenerator(System.currentTimeMillis(), 100L, 1L), false);
+        CLFReadoutHandler handler = new CLFReadoutHandler(file);
+        try (ReadoutCheckpoints checkpoints = new ReadoutCheckpoints(journal, 1, 0L)) {
+            checkpoints.update(handler, handler.fetchAvailableLines(new ReadoutCache<>()));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(10L);
+        }
+        CLFReadoutHandler restarted = new CLFReadoutHandler(file);
+        restarted.moveToEnd();
+        try (ReadoutCheckpoints checkpoints = new ReadoutCheckpoints(journal, 1, 0L)) {
+            Assert.assertFalse(checkpoints.restore(restarted));
+            Assert.assertEquals(0L, restarted.getFileReadOffset());
+        }
+    }
+
+    @Test
+    public void test_rotated_file_is_read_from_start() throws IOException {
+        long start = System.currentTimeMillis();
+        Store.storeToFile(file, new CLFGenerator(start, 100L, 1L), false);
+        CLFReadoutHandler handler = new CLFReadoutHandler(file);
+        try (ReadoutCheckpoints checkpoints = new ReadoutCheckpoints(journal, 1, 0L)) {
+            checkpoints.update(handler, handler.fetchAvailableLines(new ReadoutCache<>()));
+        }
+        Files.move(file, folder.resolve("access.log.1"));
+        long written = Store.storeToFile(file, new CLFGenerator(start + 100L, 200L, 1L), false);
+        CLFReadoutHandler restarted = new CLFReadoutHandler(file);
+        restarted.moveToEnd();
+        try (ReadoutCheckpoints checkpoints = new ReadoutCheckpoints(journal, 1, 0L)) {
+            Assert.assertFalse(checkpoints.restore(restarted));
+            Assert.assertEquals(0L, restarted.getFileReadOffset());
+            Assert.assertEquals(written, restarted.fetchAvailableLines(new ReadoutCache<>()));
+        }
+    }
+
+    @Test
+    public void test_torn_record_is_discarded() throws IOException {
+        Store.storeToFile(file, new CLFGenerator(System.currentTimeMillis(), 100L, 1L), false);
+        CLFReadoutHandler handler = new CLFReadoutHandler(file);
+        try (ReadoutCheckpoints checkpoints = new ReadoutCheckpoints(journal, 1, 0L)) {
+            checkpoints.update(handler, handler.fetchAvailableLines(new ReadoutCache<>()));
+        }
+        long validSize = Files.size(journal);
+        Files.write(journal, "\u0000\u0000\u0000@torn".getBytes(StandardCharsets.ISO_8859_1), StandardOpenOption.APPEND);
+        try (ReadoutCheckpoints checkpoints = new ReadoutCheckpoints(journal, 1, 0L)) {
+            Assert.assertEquals(handler.getFileReadOffset(), checkpoints.get(file).offset());
+            Assert.assertEquals(validSize, Files.size(journal));
+        }
+    }
+
+    @Test
+    public void test_journal_is_compacted() throws IOException {
+        Store.storeToFile(file, new CLFGenerator(System.currentTimeMillis(), 100L, 1L), false);
+        CLFReadoutHandler handler = new CLFReadoutHandler(file);
+        handler.fetchAvailableLines(new ReadoutCache<>());
+        long offset = handler.getFileReadOffset();
+        try (ReadoutCheckpoints checkpoints = new ReadoutCheckpoints(journal, 1, 0L)) {
+            for (int i = 0; i < 5_000; i++) {
+                handler.moveTo(i % 2 == 0 ? offset : 0L, handler.getLastTimestamp());
+                checkpoints.update(handler, 1);
+            }
+            Assert.assertEquals(5_000L, checkpoints.flushCount());
+            Assert.assertTrue(Files.size(journal) < 128 * 1024);
+        }
+        try (ReadoutCheckpoints checkpoints = new ReadoutCheckpoints(journal, 1, 0L)) {
+            Assert.assertEquals(0L, checkpoints.get(file).offset());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.fern.util.clf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReorderingReadoutCacheTest {
+
+    @Test
+    public void test_entries_within_window_are_added_in_order() {
+        ReorderingReadoutCache<WithUTCTimestamp> cache = new ReorderingReadoutCache<>(2_000L, 1_000);
+        List<WithUTCTimestamp> entries = entries(1_000L, 3_000L, 2_000L, 2_500L, 5_000L, 4_000L);
+        entries.forEach(cache::add);
+        Assert.assertEquals(3_000L, cache.watermark());
+        Assert.assertEquals(List.of(entries.get(0), entries.get(2), entries.get(3), entries.get(1)),
+                cache.fetch(0L, Long.MAX_VALUE));
+        Assert.assertEquals(2, cache.pendingCount());
+        Assert.assertEquals(0L, cache.lateCount());
+        cache.flush();
+        Assert.assertEquals(0, cache.pendingCount());
+        Assert.assertEquals(List.of(entries.get(0), entries.get(2), entries.get(3), entries.get(1),
+                entries.get(5), entries.get(4)), cache.fetch(0L, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void test_entries_older_than_watermark_are_late() {
+        ReorderingReadoutCache<WithUTCTimestamp> cache = new ReorderingReadoutCache<>(1_000L, 1_000);
+        List<WithUTCTimestamp> entries = entries(10_000L, 12_000L, 10_500L, 11_500L);
+        cache.addAll(new ArrayList<>(entries));
+        Assert.assertEquals(1L, cache.lateCount());
+        Assert.assertEquals(List.of(entries.get(0), entries.get(2)), cache.fetch(0L, 10_999L));
+        Assert.assertEquals(2, cache.pendingCount());
+        cache.add(entries(10_900L).get(0));
+        Assert.assertEquals(2L, cache.lateCount());
+        Assert.assertEquals(3, cache.size());
+        cache.flush();
+        Assert.assertEquals(5, cache.size());
+    }
+
+    @Test
+    public void test_buffer_is_bounded() {
+        ReorderingReadoutCache<WithUTCTimestamp> cache = new ReorderingReadoutCache<>(60_000L, 10);
+        List<WithUTCTimestamp> entries = entries(1_000L, 2_000L, 3_000L, 4_000L, 5_000L,
+                6_000L, 7_000L, 8_000L, 9_000L, 10_000L, 11_000L, 12_000L);
+        entries.forEach(cache::add);
+        Assert.assertEquals(10, cache.pendingCount());
+        Assert.assertEquals(entries.subList(0, 2), cache.fetch(0L, 2_000L));
+        cache.add(entries(1_500L).get(0));
+        Assert.assertEquals(1L, cache.lateCount());
+        Assert.assertEquals(10, cache.pendingCount());
+        cache.fullyEvict();
+        Assert.assertEquals(0, cache.pendingCount());
+        Assert.assertTrue(cache.isEmpty());
+        Assert.assertEquals(ReadoutCache.NO_VALUE, cache.watermark());
+    }
+
+    @Test
+    public void test_shuffled_entries_end_up_sorted() {
+        Random rand = new Random(0);
+        List<WithUTCTimestamp> entries = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            long ts = 1604311200000L + i * 10L + rand.nextInt(500);
+            entries.add(() -> ts);
+        }
+        ReorderingReadoutCache<WithUTCTimestamp> cache = new ReorderingReadoutCache<>(500L, 100_000, true);
+        for (int i = 0; i < entries.size(); i += 100) {
+            cache.addAll(new ArrayList<>(entries.subList(i, i + 100)));
+        }
+        cache.flush();
+        Assert.assertEquals(0L, cache.lateCount());
+        List<WithUTCTimestamp> sorted = new ArrayList<>(entries);
+        sorted.sort(WithUTCTimestamp.COMPARING);
+        Assert.assertEquals(sorted, cache.fetch(0L, Long.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_negative_lateness_is_rejected() {
+        new ReorderingReadoutCache<>(-1L, 10);
+    }
+
+    private static List<WithUTCTimestamp> entries(Long... timestamps) {
+        return Stream.of(timestamps)
+                .map(ts -> (WithUTCTimestamp) () -> ts)
+                .collect(Collectors.toList());
+    }
+}
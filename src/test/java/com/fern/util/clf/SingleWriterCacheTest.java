@@ -0,0 +1,208 @@
+package com.fern.util.clf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SingleWriterCacheTest {
+
+    private static final long START_TS = 1604311200000L;
+
+    @Test
+    public void test_single_writer_agrees_with_locked_cache() {
+        Random rand = new Random(0);
+        ReadoutCache<WithUTCTimestamp> locked = new ReadoutCache<>();
+        ReadoutCache<WithUTCTimestamp> singleWriter = new ReadoutCache<>(true);
+        Assert.assertFalse(locked.isSingleWriter());
+        Assert.assertTrue(singleWriter.isSingleWriter());
+        long ts = START_TS;
+        for (int round = 0; round < 500; round++) {
+            int op = rand.nextInt(10);
+            if (op < 4) {
+                ts += rand.nextInt(300);
+                long entryTs = rand.nextInt(5) == 0 ? ts - rand.nextInt(5_000) : ts;
+                WithUTCTimestamp entry = () -> entryTs;
+                locked.add(entry);
+                singleWriter.add(entry);
+            } else if (op < 8) {
+                List<WithUTCTimestamp> batch = batch(rand, ts, 1 + rand.nextInt(50));
+                ts = batch.get(batch.size() - 1).getUTCTimestamp();
+                locked.addAll(new ArrayList<>(batch));
+                singleWriter.addAll(new ArrayList<>(batch));
+            } else if (op < 9) {
+                int count = rand.nextInt(Math.max(1, locked.size() / 4));
+                locked.evict(count);
+                singleWriter.evict(count);
+            } else {
+                long periodStart = START_TS + rand.nextInt((int) (ts - START_TS + 1));
+                long periodEnd = periodStart + rand.nextInt(10_000);
+                Assert.assertEquals(locked.fetch(periodStart, periodEnd), singleWriter.fetch(periodStart, periodEnd));
+                Assert.assertEquals(locked.firstTimestampSince(periodStart), singleWriter.firstTimestampSince(periodStart));
+            }
+            Assert.assertEquals(locked.size(), singleWriter.size());
+            Assert.assertEquals(locked.firstTimestamp(), singleWriter.firstTimestamp());
+        }
+        Assert.assertEquals(locked.fetch(0L, Long.MAX_VALUE), singleWriter.fetch(0L, Long.MAX_VALUE));
+        singleWriter.fullyEvict();
+        Assert.assertTrue(singleWriter.isEmpty());
+        Assert.assertEquals(ReadoutCache.NO_VALUE, singleWriter.firstTimestamp());
+    }
+
+    @Test
+    public void test_readers_only_see_whole_batches() throws InterruptedException {
+        ReadoutCache<WithUTCTimestamp> cache = new ReadoutCache<>(true);
+        AtomicBoolean isWriting = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            Random rand = new Random(0);
+            long ts = START_TS;
+            for (int i = 0; i < 2_000; i++) {
+                List<WithUTCTimestamp> batch = batch(rand, ts, 100);
+                ts = batch.get(batch.size() - 1).getUTCTimestamp();
+                cache.addAll(batch);
+                if (cache.size() > 5_000) {
+                    cache.evict(1_000);
+                }
+            }
+            isWriting.set(false);
+        }, "writer");
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(new Thread(() -> {
+                while (isWriting.get()) {
+                    List<WithUTCTimestamp> entries = cache.fetch(0L, Long.MAX_VALUE);
+                    if (entries.size() % 100 != 0) {
+                        failure.set("torn view of size " + entries.size());
+                    }
+                    for (int i = 1; i < entries.size(); i++) {
+                        if (entries.get(i - 1).getUTCTimestamp() > entries.get(i).getUTCTimestamp()) {
+                            failure.set("unsorted view at " + i);
+                        }
+                    }
+                }
+            }, "reader-" + r));
+        }
+        readers.forEach(Thread::start);
+        writer.start();
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        Assert.assertNull(failure.get());
+    }
+
+    @Test
+    public void test_readers_see_consistent_views_of_single_adds() throws InterruptedException {
+        ReadoutCache<WithUTCTimestamp> cache = new ReadoutCache<>(true);
+        ReadoutCache<WithUTCTimestamp> locked = new ReadoutCache<>();
+        AtomicBoolean isWriting = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            Random rand = new Random(0);
+            long ts = START_TS;
+            for (int i = 0; i < 50_000; i++) {
+                ts += rand.nextInt(20);
+                long entryTs = rand.nextInt(100) == 0 ? ts - rand.nextInt(3_000) : ts;
+                WithUTCTimestamp entry = () -> entryTs;
+                cache.add(entry); // appends share the published array of segments
+                locked.add(entry);
+            }
+            isWriting.set(false);
+        }, "writer");
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(new Thread(() -> {
+                int lastSize = 0;
+                while (isWriting.get()) {
+                    List<WithUTCTimestamp> entries = cache.fetch(0L, Long.MAX_VALUE);
+                    if (entries.size() < lastSize) {
+                        failure.set("view shrank from " + lastSize + " to " + entries.size());
+                    }
+                    lastSize = entries.size();
+                    for (int i = 1; i < entries.size(); i++) {
+                        if (entries.get(i - 1).getUTCTimestamp() > entries.get(i).getUTCTimestamp()) {
+                            failure.set("unsorted view at " + i);
+                        }
+                    }
+                }
+            }, "reader-" + r));
+        }
+        readers.forEach(Thread::start);
+        writer.start();
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(locked.size(), cache.size());
+        Assert.assertEquals(locked.fetch(0L, Long.MAX_VALUE), cache.fetch(0L, Long.MAX_VALUE));
+    }
+
+    private static List<WithUTCTimestamp> batch(Random rand, long ts, int size) {
+        List<WithUTCTimestamp> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ts += rand.nextInt(20);
+            long entryTs = rand.nextInt(20) == 0 ? ts - rand.nextInt(3_000) : ts;
+            batch.add(() -> entryTs);
+        }
+        return batch;
+    }
+
+    public static void main(String... args) throws InterruptedException {
+        int readers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        for (int round = 0; round < 3; round++) {
+            for (boolean singleWriter : new boolean[]{false, true}) {
+                ReadoutCache<WithUTCTimestamp> cache = new ReadoutCache<>(singleWriter);
+                AtomicBoolean isWriting = new AtomicBoolean(true);
+                AtomicLong reads = new AtomicLong();
+                CountDownLatch started = new CountDownLatch(readers + 1);
+                List<Thread> threads = new ArrayList<>();
+                for (int r = 0; r < readers; r++) {
+                    threads.add(new Thread(() -> {
+                        started.countDown();
+                        long count = 0;
+                        while (isWriting.get()) {
+                            long first = cache.firstTimestamp();
+                            if (first != ReadoutCache.NO_VALUE) {
+                                cache.fetch(first + 60_000L, first + 61_000L);
+                            }
+                            count += cache.size() >= 0 ? 1 : 0;
+                        }
+                        reads.addAndGet(count);
+                    }));
+                }
+                long[] writeNanos = new long[1];
+                threads.add(new Thread(() -> {
+                    started.countDown();
+                    Random rand = new Random(0);
+                    long ts = START_TS;
+                    long startNanos = System.nanoTime();
+                    for (int i = 0; i < 5_000; i++) {
+                        List<WithUTCTimestamp> batch = batch(rand, ts, 200);
+                        ts = batch.get(batch.size() - 1).getUTCTimestamp();
+                        cache.addAll(batch);
+                        if (cache.size() > 500_000) {
+                            cache.evict(100_000);
+                        }
+                    }
+                    writeNanos[0] = System.nanoTime() - startNanos;
+                    isWriting.set(false);
+                }));
+                threads.forEach(Thread::start);
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                System.out.printf("%s, 1 writer and %d readers: writer %d ms for 1M entries, %d reads/ms%n",
+                        singleWriter ? "single writer" : "locked", readers,
+                        writeNanos[0] / 1_000_000, reads.get() * 1_000_000 / Math.max(1L, writeNanos[0]));
+            }
+        }
+    }
+}
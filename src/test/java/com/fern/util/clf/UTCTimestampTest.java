@@ -1,6 +1,16 @@
 package com.fern.util.clf;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import com.fern.util.clf.UTCTimestamp;
 import org.junit.Assert;
@@ -16,11 +26,113 @@ public class UTCTimestampTest {
                 UTCTimestamp.parse("10/11/2020:16:00:00 +0000"));
     }
 
+    @Test
+    public void test_parse_month_abbreviation_and_zone() throws ParseException {
+        Assert.assertEquals(1604311200000L, UTCTimestamp.parse("02/Nov/2020:10:00:00 +0000"));
+        Assert.assertEquals(1604311200000L, UTCTimestamp.parse("02/nov/2020:12:30:00 +0230"));
+        Assert.assertEquals(1604311200000L, UTCTimestamp.parse("02/11/2020:05:00:00 -0500"));
+    }
+
+    @Test
+    public void test_parse_fails() {
+        for (String text : new String[]{
+                "", "02/Nov/2020", "02/Nox/2020:10:00:00 +0000", "02/13/2020:10:00:00 +0000",
+                "02/11/2020:24:00:00 +0000", "02/11/2020:10:00:00 0000", "02/11/2020 10:00:00 +0000"}) {
+            try {
+                UTCTimestamp.parse(text);
+                Assert.fail("expected ParseException: " + text);
+            } catch (ParseException expected) {
+                Assert.assertEquals(text, expected.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_parse_same_second() throws ParseException {
+        long ts = UTCTimestamp.parse("02/11/2020:10:00:00 +0000");
+        Assert.assertEquals(ts, UTCTimestamp.parse("02/11/2020:10:00:00 +0000"));
+        Assert.assertEquals(ts + 1000L, UTCTimestamp.parse("02/11/2020:10:00:01 +0000"));
+        Assert.assertEquals(ts, UTCTimestamp.parse("02/11/2020:10:00:00 +0000"));
+    }
+
+    @Test
+    public void test_parse_format_agree_with_SimpleDateFormat() throws Exception {
+        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+        sdf.setTimeZone(UTCTimestamp.UTC);
+        Random rand = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long ts = UTCTimestamp.truncateMillis(Math.abs(rand.nextLong()) % 253_402_300_799_000L);
+            String text = sdf.format(ts);
+            Assert.assertEquals(text, UTCTimestamp.format(ts));
+            Assert.assertEquals(ts, UTCTimestamp.parse(text));
+        }
+    }
+
+    @Test
+    public void test_thread_safety() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int t = 0; t < futures.length; t++) {
+                long base = 1604311200000L + t * 3_600_000L;
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        long ts = base + (i / 10) * 1000L;
+                        Assert.assertEquals(ts, UTCTimestamp.parse(UTCTimestamp.format(ts)));
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_interleaved_seconds() throws Exception {
+        long[] seconds = {1604311200000L, 1604311201000L};
+        ByteBuffer[] texts = new ByteBuffer[seconds.length];
+        for (int t = 0; t < texts.length; t++) {
+            texts[t] = ByteBuffer.wrap(UTCTimestamp.format(seconds[t]).getBytes(StandardCharsets.US_ASCII));
+        }
+        CyclicBarrier lockstep = new CyclicBarrier(seconds.length);
+        ExecutorService executor = Executors.newFixedThreadPool(seconds.length);
+        try {
+            Future<?>[] futures = new Future<?>[seconds.length];
+            for (int t = 0; t < futures.length; t++) {
+                long ts = seconds[t];
+                ByteBuffer text = texts[t];
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        lockstep.await(10, TimeUnit.SECONDS);
+                        Assert.assertEquals(ts, UTCTimestamp.parse(text, 0, text.limit()));
+                        Assert.assertEquals(ts, UTCTimestamp.parse(UTCTimestamp.format(ts + i)));
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void test_format() {
         Assert.assertEquals(
                 UTCTimestamp.format(1604311200000L),
                 "02/11/2020:10:00:00 +0000");
+        Assert.assertEquals(
+                UTCTimestamp.format(1604311200999L),
+                "02/11/2020:10:00:00 +0000");
+        Assert.assertEquals(
+                UTCTimestamp.format(0L),
+                "01/01/1970:00:00:00 +0000");
     }
 
     @Test
@@ -30,4 +142,30 @@ public class UTCTimestampTest {
                 UTCTimestamp.formatForDisplay(ts),
                 "02/11/2020:10:00:00 +0000 (" + ts + ")");
     }
+
+    public static void main(String... args) throws Exception {
+        int lines = 2_000_000;
+        int linesPerSecond = 20;
+        String[] texts = new String[lines / linesPerSecond];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = UTCTimestamp.format(1604311200000L + i * 1000L);
+        }
+        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+        sdf.setTimeZone(UTCTimestamp.UTC);
+        for (int round = 0; round < 5; round++) {
+            long sum = 0L;
+            long start = System.nanoTime();
+            for (int i = 0; i < lines; i++) {
+                sum += sdf.parse(texts[i / linesPerSecond]).getTime();
+            }
+            long sdfNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < lines; i++) {
+                sum -= UTCTimestamp.parse(texts[i / linesPerSecond]);
+            }
+            long fastNanos = System.nanoTime() - start;
+            System.out.printf("parse %d lines: SimpleDateFormat %d ms, UTCTimestamp %d ms (%d)%n",
+                    lines, sdfNanos / 1_000_000, fastNanos / 1_000_000, sum);
+        }
+    }
 }